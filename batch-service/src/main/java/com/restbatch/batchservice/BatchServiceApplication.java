@@ -2,10 +2,9 @@ package com.restbatch.batchservice;
 
 import com.fasterxml.jackson.databind.Module;
 import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.restbatch.batchservice.config.FeignTransportConfig;
 import com.restbatch.batchservice.deserializer.JobExecutionDeserializer;
 import com.restbatch.batchservice.deserializer.JobInstanceDeserializer;
-import feign.Logger;
-import feign.Logger.Level;
 import org.springframework.batch.core.JobExecution;
 import org.springframework.batch.core.JobInstance;
 import org.springframework.batch.core.configuration.annotation.EnableBatchProcessing;
@@ -15,7 +14,7 @@ import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
 import org.springframework.cloud.openfeign.EnableFeignClients;
 import org.springframework.context.annotation.Bean;
 
-@EnableFeignClients
+@EnableFeignClients(defaultConfiguration = FeignTransportConfig.class)
 @EnableBatchProcessing
 @SpringBootApplication(exclude = {DataSourceAutoConfiguration.class})
 public class BatchServiceApplication {
@@ -31,9 +30,4 @@ public class BatchServiceApplication {
     module.addDeserializer(JobExecution.class, new JobExecutionDeserializer());
     return module;
   }
-
-  @Bean
-  Logger.Level feignLoggerLevel() {
-    return Level.BASIC;
-  }
 }
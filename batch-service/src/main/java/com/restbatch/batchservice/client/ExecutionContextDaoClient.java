@@ -1,9 +1,13 @@
 package com.restbatch.batchservice.client;
 
+import com.restbatch.batchservice.dto.ExecutionContextDeltaDto;
 import com.restbatch.batchservice.dto.SerializedContextDto;
 import com.restbatch.batchservice.dto.SerializedContextsDto;
+import com.restbatch.batchservice.dto.UpdateResultDto;
+import feign.Response;
 import org.springframework.batch.item.ExecutionContext;
 import org.springframework.cloud.openfeign.FeignClient;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
@@ -13,7 +17,7 @@ import org.springframework.web.bind.annotation.RequestParam;
  * @author Anton Belousov
  * @since 0.0.1-SNAPSHOT
  */
-@FeignClient(name = "execCtxDaoClient", url = "${api.base-url}/dao/execCtx")
+@FeignClient(name = "execCtxDaoClient", url = "${api.base-url}/dao/execCtx", primary = false)
 public interface ExecutionContextDaoClient {
 
   @GetMapping("/getJobExecutionContext")
@@ -27,4 +31,21 @@ public interface ExecutionContextDaoClient {
 
   @PostMapping("/persistSerializedContexts")
   void persistSerializedContexts(@RequestBody SerializedContextsDto ctxDto);
+
+  @GetMapping(value = "/getJobExecutionContextBytes",
+      produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+  Response getJobExecutionContextBytes(@RequestParam Long executionId);
+
+  @GetMapping(value = "/getStepExecutionContextBytes",
+      produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+  Response getStepExecutionContextBytes(@RequestParam Long executionId);
+
+  @PostMapping(value = "/persistContextBytes",
+      consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+  void persistContextBytes(@RequestParam Long executionId, @RequestParam String sqlType,
+      @RequestParam int shortContextLength, @RequestParam int clobTypeToUse,
+      @RequestBody byte[] context);
+
+  @PostMapping("/applyContextDelta")
+  UpdateResultDto applyContextDelta(@RequestBody ExecutionContextDeltaDto delta);
 }
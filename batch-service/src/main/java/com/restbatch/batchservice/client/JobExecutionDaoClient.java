@@ -1,11 +1,17 @@
 package com.restbatch.batchservice.client;
 
+import com.restbatch.batchservice.dto.JobExecutionGraphDto;
+import com.restbatch.batchservice.dto.JobExecutionLaunchDto;
+import com.restbatch.batchservice.dto.UpdateResultDto;
 import com.restbatch.batchservice.dto.holder.JobExecutionHolder;
 import com.restbatch.batchservice.dto.holder.JobExecutionParamHolder;
+import feign.Request;
+import feign.Response;
 import java.util.List;
 import java.util.Set;
 import org.springframework.batch.core.JobExecution;
 import org.springframework.cloud.openfeign.FeignClient;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
@@ -15,20 +21,26 @@ import org.springframework.web.bind.annotation.RequestParam;
  * @author Anton Belousov
  * @since 0.0.1-SNAPSHOT
  */
-@FeignClient(name = "jobExecDaoClient", url = "${api.base-url}/dao/jobExec")
+@FeignClient(name = "jobExecDaoClient", url = "${api.base-url}/dao/jobExec", primary = false)
 public interface JobExecutionDaoClient {
 
   @GetMapping("/findJobExecutions")
   List<JobExecution> findJobExecutions(@RequestParam Long jobInstanceId);
 
+  @GetMapping(value = "/streamJobExecutions", produces = MediaType.APPLICATION_NDJSON_VALUE)
+  Response streamJobExecutions(@RequestParam Long jobInstanceId);
+
   @PostMapping("/saveJobExecution")
   Long saveJobExecution(@RequestBody JobExecutionHolder holder);
 
+  @PostMapping("/launchJobExecution")
+  Long launchJobExecution(@RequestBody JobExecutionLaunchDto launchDto);
+
   @GetMapping("/countJobExecutions")
   Integer countJobExecutions(@RequestParam Long jobExecutionId);
 
   @PostMapping("/updateJobExecution")
-  Integer updateJobExecution(@RequestBody JobExecutionHolder holder);
+  UpdateResultDto updateJobExecution(@RequestBody JobExecutionHolder holder);
 
   @GetMapping("/getJobExecutionVersion")
   Integer getJobExecutionVersion(@RequestParam Long jobExecutionId);
@@ -42,9 +54,21 @@ public interface JobExecutionDaoClient {
   @GetMapping("/getJobExecution")
   JobExecution getJobExecution(@RequestParam Long executionId);
 
+  @GetMapping("/getJobExecutionGraph")
+  JobExecutionGraphDto getJobExecutionGraph(@RequestParam Long executionId);
+
+  @GetMapping(value = "/statusStream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  Response statusStream(@RequestParam Long jobExecutionId, Request.Options options);
+
   @GetMapping("/findRunningJobExecutions")
   Set<JobExecution> findRunningJobExecutions(@RequestParam String jobName);
 
   @PostMapping("/createJobParameters")
   void createJobParameters(@RequestBody JobExecutionParamHolder holder);
+
+  @PostMapping("/insertJobParameters")
+  void insertJobParameters(@RequestBody List<JobExecutionParamHolder> holders);
+
+  @GetMapping("/nextJobExecutionIds")
+  List<Long> nextJobExecutionIds(@RequestParam int count);
 }
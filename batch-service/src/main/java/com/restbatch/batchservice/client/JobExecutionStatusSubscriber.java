@@ -0,0 +1,219 @@
+package com.restbatch.batchservice.client;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.restbatch.batchservice.dto.JobExecutionStatusDto;
+import feign.Request;
+import feign.Response;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.util.Assert;
+
+/**
+ * Follows the status of job executions through the Server-Sent Events stream of the database
+ * service, so that checking a running job execution for a stop request does not poll the
+ * database service. While the stream of a job execution is disconnected, its status is unknown
+ * and has to be polled; the stream is reconnected after a delay until it is unsubscribed, or
+ * until the job execution is no longer running.
+ * <p>
+ * The streams go through the transport of the {@link JobExecutionDaoClient}, without read
+ * timeout. Events are text, so the streams use json whatever the wire format of the client.
+ *
+ * @author Anton Belousov
+ * @since 0.0.1-SNAPSHOT
+ */
+@Slf4j
+public class JobExecutionStatusSubscriber {
+
+  private static final String DATA_FIELD = "data:";
+  private static final int CONNECT_TIMEOUT_SECONDS = 10;
+
+  private final JobExecutionDaoClient client;
+  private final ObjectMapper objectMapper;
+  private final Duration reconnectDelay;
+  private final Executor executor;
+  private final Request.Options streamOptions = new Request.Options(
+      CONNECT_TIMEOUT_SECONDS, TimeUnit.SECONDS, 0, TimeUnit.MILLISECONDS, true);
+
+  private final Map<Long, Subscription> subscriptions = new ConcurrentHashMap<>();
+
+  /**
+   * @param client         the client to open the streams with
+   * @param objectMapper   the mapper to read the events with
+   * @param reconnectDelay delay before reconnecting a closed stream
+   */
+  public JobExecutionStatusSubscriber(JobExecutionDaoClient client, ObjectMapper objectMapper,
+      Duration reconnectDelay) {
+    this(client, objectMapper, reconnectDelay, createDefaultExecutor());
+  }
+
+  /**
+   * @param client         the client to open the streams with
+   * @param objectMapper   the mapper to read the events with
+   * @param reconnectDelay delay before reconnecting a closed stream
+   * @param executor       executor to read the streams with, using one thread per subscription
+   */
+  public JobExecutionStatusSubscriber(JobExecutionDaoClient client, ObjectMapper objectMapper,
+      Duration reconnectDelay, Executor executor) {
+    Assert.notNull(client, "Client must not be null.");
+    Assert.notNull(objectMapper, "Object mapper must not be null.");
+    Assert.notNull(reconnectDelay, "Reconnect delay must not be null.");
+    Assert.notNull(executor, "Executor must not be null.");
+    this.client = client;
+    this.objectMapper = objectMapper;
+    this.reconnectDelay = reconnectDelay;
+    this.executor = executor;
+  }
+
+  private static Executor createDefaultExecutor() {
+    SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("job-execution-status-");
+    executor.setDaemon(true);
+    return executor;
+  }
+
+  /**
+   * Start following the status of the job execution.
+   *
+   * @param jobExecutionId id of the job execution
+   */
+  public void subscribe(Long jobExecutionId) {
+    Assert.notNull(jobExecutionId, "Job execution id must not be null.");
+    Subscription subscription = new Subscription(jobExecutionId);
+    if (subscriptions.putIfAbsent(jobExecutionId, subscription) == null) {
+      executor.execute(subscription::follow);
+    }
+  }
+
+  /**
+   * Stop following the status of the job execution.
+   *
+   * @param jobExecutionId id of the job execution
+   */
+  public void unsubscribe(Long jobExecutionId) {
+    Subscription subscription = subscriptions.remove(jobExecutionId);
+    if (subscription != null) {
+      subscription.close();
+    }
+  }
+
+  /**
+   * Synchronize the status and version of the job execution with the state last received from
+   * the stream, unless the job execution is already ahead of it.
+   *
+   * @param jobExecution the job execution to synchronize
+   * @return {@code true} if the job execution has been synchronized, {@code false} if its stream
+   * is not connected and it has to be synchronized with the database service
+   */
+  public boolean synchronizeStatus(JobExecution jobExecution) {
+    Subscription subscription = subscriptions.get(jobExecution.getId());
+    JobExecutionStatusDto status = subscription != null ? subscription.status : null;
+    if (status == null) {
+      return false;
+    }
+    if (status.getVersion() > jobExecution.getVersion()) {
+      jobExecution.upgradeStatus(BatchStatus.valueOf(status.getStatus()));
+      jobExecution.setVersion(status.getVersion());
+    }
+    return true;
+  }
+
+  private class Subscription {
+
+    private final Long jobExecutionId;
+    private volatile JobExecutionStatusDto status;
+    private volatile InputStream body;
+    private volatile boolean closed;
+
+    private Subscription(Long jobExecutionId) {
+      this.jobExecutionId = jobExecutionId;
+    }
+
+    private void follow() {
+      while (!closed) {
+        try {
+          read();
+        } catch (IOException e) {
+          if (!closed) {
+            log.warn("Status stream of job execution {} failed: {}", jobExecutionId,
+                e.getMessage());
+          }
+        } finally {
+          // The status is unknown until the stream is connected again
+          status = null;
+        }
+        if (!closed) {
+          sleep();
+        }
+      }
+    }
+
+    private void read() throws IOException {
+      Response response;
+      try {
+        response = client.statusStream(jobExecutionId, streamOptions);
+      } catch (RuntimeException e) {
+        throw new IOException(e.getMessage(), e);
+      }
+      try (response) {
+        if (response.status() != 200 || response.body() == null) {
+          throw new IOException("Unexpected response status " + response.status());
+        }
+        body = response.body().asInputStream();
+        if (closed) {
+          return;
+        }
+
+        BufferedReader reader = new BufferedReader(
+            new InputStreamReader(body, StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+          // Every event is a single data line holding the status as json
+          if (line.startsWith(DATA_FIELD)) {
+            JobExecutionStatusDto received = objectMapper.readValue(
+                line.substring(DATA_FIELD.length()), JobExecutionStatusDto.class);
+            if (!BatchStatus.valueOf(received.getStatus()).isRunning()) {
+              // The job execution has ended, possibly without this process noticing
+              subscriptions.remove(jobExecutionId, this);
+              close();
+              return;
+            }
+            status = received;
+          }
+        }
+      }
+    }
+
+    private void sleep() {
+      try {
+        Thread.sleep(reconnectDelay.toMillis());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        closed = true;
+      }
+    }
+
+    private void close() {
+      closed = true;
+      status = null;
+      InputStream stream = body;
+      if (stream != null) {
+        try {
+          stream.close();
+        } catch (IOException e) {
+          log.debug("Cannot close status stream of job execution {}", jobExecutionId, e);
+        }
+      }
+    }
+  }
+}
@@ -1,8 +1,12 @@
 package com.restbatch.batchservice.client;
 
+import com.restbatch.batchservice.dto.JobInstancePageDto;
+import com.restbatch.batchservice.dto.JobInstanceResultDto;
+import feign.Response;
 import java.util.List;
 import org.springframework.batch.core.JobInstance;
 import org.springframework.cloud.openfeign.FeignClient;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
@@ -12,12 +16,16 @@ import org.springframework.web.bind.annotation.RequestParam;
  * @author Anton Belousov
  * @since 0.0.1-SNAPSHOT
  */
-@FeignClient(name = "jobInstDaoClient", url = "${api.base-url}/dao/jobInst")
+@FeignClient(name = "jobInstDaoClient", url = "${api.base-url}/dao/jobInst", primary = false)
 public interface JobInstanceDaoClient {
 
   @PostMapping("/createJobInstance")
   Long createJobInstance(@RequestBody Object[] args);
 
+  @PostMapping("/getOrCreateJobInstance")
+  JobInstanceResultDto getOrCreateJobInstance(@RequestParam String jobName,
+      @RequestParam String jobKey);
+
   @GetMapping("/getJobInstance")
   List<JobInstance> getJobInstance(@RequestParam String jobName,
       @RequestParam String jobKey);
@@ -32,6 +40,10 @@ public interface JobInstanceDaoClient {
   List<JobInstance> getJobInstances(@RequestParam String jobName, @RequestParam int start,
       @RequestParam int count);
 
+  @GetMapping("/getJobInstancesPage")
+  JobInstancePageDto getJobInstancesPage(@RequestParam String jobName,
+      @RequestParam(required = false) String pageToken, @RequestParam int count);
+
   @GetMapping("/getLastJobInstance")
   JobInstance getLastJobInstance(@RequestParam String jobName);
 
@@ -44,4 +56,11 @@ public interface JobInstanceDaoClient {
   @GetMapping("/findJobInstancesByName")
   List<JobInstance> findJobInstancesByName(@RequestParam String jobName,
       @RequestParam int start, @RequestParam int count);
+
+  @GetMapping(value = "/streamJobInstancesByName", produces = MediaType.APPLICATION_NDJSON_VALUE)
+  Response streamJobInstancesByName(@RequestParam String jobName);
+
+  @GetMapping("/findJobInstancesByNamePage")
+  JobInstancePageDto findJobInstancesByNamePage(@RequestParam String jobName,
+      @RequestParam(required = false) String pageToken, @RequestParam int count);
 }
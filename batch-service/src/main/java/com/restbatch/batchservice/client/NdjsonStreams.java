@@ -0,0 +1,58 @@
+package com.restbatch.batchservice.client;
+
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectReader;
+import feign.Response;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Decodes newline-delimited JSON responses of the database service lazily, one row at a time
+ * while the stream is consumed, so that the memory needed does not depend on the count of rows.
+ *
+ * @author Anton Belousov
+ * @since 0.0.1-SNAPSHOT
+ */
+public final class NdjsonStreams {
+
+  private NdjsonStreams() {
+  }
+
+  /**
+   * The returned stream holds the connection of the response until it is closed, so it must be
+   * closed after use, e.g. with a try-with-resources statement.
+   *
+   * @param response the unbuffered response
+   * @param reader   the reader of a single row
+   * @param <T>      the type of the rows
+   * @return the stream of the rows
+   */
+  public static <T> Stream<T> stream(Response response, ObjectReader reader) {
+    try {
+      if (response.status() < 200 || response.status() >= 300) {
+        throw new IllegalStateException(
+            "Unexpected response status " + response.status() + " of " + response.request().url());
+      }
+      if (response.body() == null) {
+        response.close();
+        return Stream.empty();
+      }
+
+      MappingIterator<T> iterator = reader.readValues(response.body().asInputStream());
+      return StreamSupport.stream(
+              Spliterators.spliteratorUnknownSize(iterator,
+                  Spliterator.ORDERED | Spliterator.NONNULL), false)
+          .onClose(response::close);
+    } catch (IOException e) {
+      response.close();
+      throw new UncheckedIOException(e);
+    } catch (RuntimeException e) {
+      response.close();
+      throw e;
+    }
+  }
+}
@@ -1,8 +1,12 @@
 package com.restbatch.batchservice.client;
 
+import com.restbatch.batchservice.dto.StepExecutionCommitDto;
+import com.restbatch.batchservice.dto.UpdateResultDto;
 import com.restbatch.batchservice.dto.holder.StepExecutionHolder;
+import feign.Response;
 import java.util.List;
 import org.springframework.cloud.openfeign.FeignClient;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
@@ -12,7 +16,7 @@ import org.springframework.web.bind.annotation.RequestParam;
  * @author Anton Belousov
  * @since 0.0.1-SNAPSHOT
  */
-@FeignClient(name = "stepExecDaoClient", url = "${api.base-url}/dao/stepExec")
+@FeignClient(name = "stepExecDaoClient", url = "${api.base-url}/dao/stepExec", primary = false)
 public interface StepExecutionDaoClient {
 
   @PostMapping("/saveStepExecution")
@@ -22,7 +26,10 @@ public interface StepExecutionDaoClient {
   void saveStepExecutions(@RequestBody List<StepExecutionHolder> stepExecutionHolders);
 
   @PostMapping("/updateStepExecution")
-  Integer updateStepExecution(@RequestBody StepExecutionHolder holder);
+  UpdateResultDto updateStepExecution(@RequestBody StepExecutionHolder holder);
+
+  @PostMapping("/commitStepExecution")
+  UpdateResultDto commitStepExecution(@RequestBody StepExecutionCommitDto commitDto);
 
   @GetMapping("/getStepExecutionVersion")
   Integer getStepExecutionVersion(@RequestParam Long stepExecutionId);
@@ -38,10 +45,16 @@ public interface StepExecutionDaoClient {
   @GetMapping("/getStepExecutions")
   List<StepExecutionHolder> getStepExecutions(@RequestParam Long jobExecutionId);
 
+  @GetMapping(value = "/streamStepExecutions", produces = MediaType.APPLICATION_NDJSON_VALUE)
+  Response streamStepExecutions(@RequestParam Long jobExecutionId);
+
   @GetMapping("/countStepExecutions")
   Integer countStepExecutions(@RequestParam Long jobInstanceId,
       @RequestParam String stepName);
 
   @GetMapping("/nextStepExecutionId")
   Long nextStepExecutionId();
+
+  @GetMapping("/nextStepExecutionIds")
+  List<Long> nextStepExecutionIds(@RequestParam int count);
 }
@@ -0,0 +1,237 @@
+package com.restbatch.batchservice.client;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.SocketAddress;
+import java.net.SocketTimeoutException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousCloseException;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import javax.net.SocketFactory;
+
+/**
+ * Creates sockets connected to the Unix domain socket of a co-located database service, whatever
+ * host and port they are asked to connect to, so that an HTTP client can talk to it without
+ * going through the TCP loopback.
+ *
+ * @author Anton Belousov
+ * @since 0.0.1-SNAPSHOT
+ */
+public class UnixDomainSocketFactory extends SocketFactory {
+
+  private static final ScheduledExecutorService CONNECT_TIMEOUTS =
+      Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "unix-socket-connect-timeout");
+        thread.setDaemon(true);
+        return thread;
+      });
+
+  private final UnixDomainSocketAddress address;
+
+  /**
+   * @param path path of the Unix domain socket of the database service
+   */
+  public UnixDomainSocketFactory(Path path) {
+    this.address = UnixDomainSocketAddress.of(path);
+  }
+
+  @Override
+  public Socket createSocket() {
+    return new UnixDomainSocket(address);
+  }
+
+  @Override
+  public Socket createSocket(String host, int port) throws IOException {
+    return connect(createSocket());
+  }
+
+  @Override
+  public Socket createSocket(String host, int port, InetAddress localHost, int localPort)
+      throws IOException {
+    return connect(createSocket());
+  }
+
+  @Override
+  public Socket createSocket(InetAddress host, int port) throws IOException {
+    return connect(createSocket());
+  }
+
+  @Override
+  public Socket createSocket(InetAddress address, int port, InetAddress localAddress,
+      int localPort) throws IOException {
+    return connect(createSocket());
+  }
+
+  private static Socket connect(Socket socket) throws IOException {
+    socket.connect(null);
+    return socket;
+  }
+
+  /**
+   * {@link Socket} over a Unix domain {@link SocketChannel}. The streams read and write the
+   * channel directly, since the streams of {@link java.nio.channels.Channels} block writes while a
+   * read is pending, which would stall HTTP/2. Read timeouts are not enforced by the socket
+   * itself; the HTTP client closes it when they expire.
+   */
+  private static class UnixDomainSocket extends Socket {
+
+    private final UnixDomainSocketAddress address;
+    private SocketChannel channel;
+    private int soTimeout;
+    private volatile boolean inputShutdown;
+    private volatile boolean outputShutdown;
+
+    private UnixDomainSocket(UnixDomainSocketAddress address) {
+      this.address = address;
+    }
+
+    @Override
+    public void connect(SocketAddress endpoint) throws IOException {
+      connect(endpoint, 0);
+    }
+
+    /**
+     * Connect to the Unix domain socket, whatever the given endpoint, within the given timeout
+     * in milliseconds, {@code 0} waiting as long as it takes.
+     */
+    @Override
+    public void connect(SocketAddress endpoint, int timeout) throws IOException {
+      SocketChannel connecting = SocketChannel.open(StandardProtocolFamily.UNIX);
+      // A blocking connect waits while the backlog of the server is full, and returns when the
+      // channel is closed, whereas a non-blocking one fails right away
+      ScheduledFuture<?> abort = timeout > 0
+          ? CONNECT_TIMEOUTS.schedule(() -> closeQuietly(connecting), timeout,
+              TimeUnit.MILLISECONDS)
+          : null;
+      try {
+        connecting.connect(address);
+        if (abort != null && !abort.cancel(false)) {
+          throw new AsynchronousCloseException();
+        }
+      } catch (ClosedByInterruptException e) {
+        throw e;
+      } catch (AsynchronousCloseException e) {
+        throw new SocketTimeoutException(
+            "Connect to " + address + " timed out after " + timeout + " ms");
+      } catch (IOException e) {
+        connecting.close();
+        throw e;
+      }
+      channel = connecting;
+    }
+
+    private static void closeQuietly(SocketChannel connecting) {
+      try {
+        connecting.close();
+      } catch (IOException e) {
+        // The connect fails anyway
+      }
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+      checkConnected();
+      return new InputStream() {
+
+        @Override
+        public int read() throws IOException {
+          byte[] b = new byte[1];
+          return read(b, 0, 1) < 0 ? -1 : b[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+          return len == 0 ? 0 : channel.read(ByteBuffer.wrap(b, off, len));
+        }
+      };
+    }
+
+    @Override
+    public OutputStream getOutputStream() throws IOException {
+      checkConnected();
+      return new OutputStream() {
+
+        @Override
+        public void write(int b) throws IOException {
+          write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+          ByteBuffer buffer = ByteBuffer.wrap(b, off, len);
+          while (buffer.hasRemaining()) {
+            channel.write(buffer);
+          }
+        }
+      };
+    }
+
+    private void checkConnected() throws IOException {
+      if (channel == null) {
+        throw new IOException("Socket is not connected");
+      }
+    }
+
+    @Override
+    public boolean isConnected() {
+      return channel != null && channel.isConnected();
+    }
+
+    @Override
+    public boolean isClosed() {
+      return channel != null && !channel.isOpen();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+      if (channel != null) {
+        channel.close();
+      }
+    }
+
+    @Override
+    public void shutdownInput() throws IOException {
+      checkConnected();
+      channel.shutdownInput();
+      inputShutdown = true;
+    }
+
+    @Override
+    public void shutdownOutput() throws IOException {
+      checkConnected();
+      channel.shutdownOutput();
+      outputShutdown = true;
+    }
+
+    @Override
+    public boolean isInputShutdown() {
+      return inputShutdown || isClosed();
+    }
+
+    @Override
+    public boolean isOutputShutdown() {
+      return outputShutdown || isClosed();
+    }
+
+    @Override
+    public synchronized void setSoTimeout(int timeout) {
+      soTimeout = timeout;
+    }
+
+    @Override
+    public synchronized int getSoTimeout() {
+      return soTimeout;
+    }
+  }
+}
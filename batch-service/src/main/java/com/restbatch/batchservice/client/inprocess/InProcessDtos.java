@@ -0,0 +1,159 @@
+package com.restbatch.batchservice.client.inprocess;
+
+import com.restbatch.batchservice.dto.ExecutionContextDeltaDto;
+import com.restbatch.batchservice.dto.JobExecutionGraphDto;
+import com.restbatch.batchservice.dto.JobExecutionLaunchDto;
+import com.restbatch.batchservice.dto.JobInstancePageDto;
+import com.restbatch.batchservice.dto.JobInstanceResultDto;
+import com.restbatch.batchservice.dto.SerializedContextDto;
+import com.restbatch.batchservice.dto.SerializedContextsDto;
+import com.restbatch.batchservice.dto.StepExecutionCommitDto;
+import com.restbatch.batchservice.dto.UpdateResultDto;
+import com.restbatch.batchservice.dto.holder.JobExecutionHolder;
+import com.restbatch.batchservice.dto.holder.JobExecutionParamHolder;
+import com.restbatch.batchservice.dto.holder.StepExecutionHolder;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import org.springframework.beans.BeanUtils;
+
+/**
+ * Converts between the DTOs of this service and their mirrors in the database service. The
+ * mirrors have the same properties, so they are copied property by property instead of being
+ * serialized.
+ *
+ * @author Anton Belousov
+ * @since 0.0.1-SNAPSHOT
+ */
+final class InProcessDtos {
+
+  private InProcessDtos() {
+  }
+
+  static com.restdatabase.databaseservice.dto.holder.JobExecutionHolder toService(
+      JobExecutionHolder holder) {
+    return copy(holder, com.restdatabase.databaseservice.dto.holder.JobExecutionHolder::new);
+  }
+
+  static com.restdatabase.databaseservice.dto.holder.JobExecutionParamHolder toService(
+      JobExecutionParamHolder holder) {
+    return copy(holder,
+        com.restdatabase.databaseservice.dto.holder.JobExecutionParamHolder::new);
+  }
+
+  static List<com.restdatabase.databaseservice.dto.holder.JobExecutionParamHolder> toService(
+      List<JobExecutionParamHolder> holders) {
+    return map(holders, InProcessDtos::toService);
+  }
+
+  static com.restdatabase.databaseservice.dto.holder.StepExecutionHolder toService(
+      StepExecutionHolder holder) {
+    return copy(holder, com.restdatabase.databaseservice.dto.holder.StepExecutionHolder::new);
+  }
+
+  static List<com.restdatabase.databaseservice.dto.holder.StepExecutionHolder> toServiceSteps(
+      List<StepExecutionHolder> holders) {
+    return map(holders, InProcessDtos::toService);
+  }
+
+  static com.restdatabase.databaseservice.dto.SerializedContextDto toService(
+      SerializedContextDto ctxDto) {
+    return copy(ctxDto, com.restdatabase.databaseservice.dto.SerializedContextDto::new);
+  }
+
+  static com.restdatabase.databaseservice.dto.SerializedContextsDto toService(
+      SerializedContextsDto ctxDto) {
+    return copy(ctxDto, com.restdatabase.databaseservice.dto.SerializedContextsDto::new);
+  }
+
+  static com.restdatabase.databaseservice.dto.ExecutionContextDeltaDto toService(
+      ExecutionContextDeltaDto delta) {
+    return copy(delta, com.restdatabase.databaseservice.dto.ExecutionContextDeltaDto::new);
+  }
+
+  static com.restdatabase.databaseservice.dto.JobExecutionLaunchDto toService(
+      JobExecutionLaunchDto launchDto) {
+    if (launchDto == null) {
+      return null;
+    }
+    return com.restdatabase.databaseservice.dto.JobExecutionLaunchDto.builder()
+        .jobExecution(toService(launchDto.getJobExecution()))
+        .jobParameters(toService(launchDto.getJobParameters()))
+        .executionContext(toService(launchDto.getExecutionContext()))
+        .build();
+  }
+
+  static com.restdatabase.databaseservice.dto.StepExecutionCommitDto toService(
+      StepExecutionCommitDto commitDto) {
+    if (commitDto == null) {
+      return null;
+    }
+    return com.restdatabase.databaseservice.dto.StepExecutionCommitDto.builder()
+        .stepExecution(toService(commitDto.getStepExecution()))
+        .executionContext(toService(commitDto.getExecutionContext()))
+        .executionContextDelta(toService(commitDto.getExecutionContextDelta()))
+        .build();
+  }
+
+  static StepExecutionHolder toClient(
+      com.restdatabase.databaseservice.dto.holder.StepExecutionHolder holder) {
+    return copy(holder, StepExecutionHolder::new);
+  }
+
+  static List<StepExecutionHolder> toClient(
+      List<com.restdatabase.databaseservice.dto.holder.StepExecutionHolder> holders) {
+    return map(holders, InProcessDtos::toClient);
+  }
+
+  static UpdateResultDto toClient(com.restdatabase.databaseservice.dto.UpdateResultDto result) {
+    if (result == null) {
+      return null;
+    }
+    // The status enums are mirrored as well, so they are not assignable to each other
+    UpdateResultDto converted = copy(result, UpdateResultDto::new);
+    if (result.getStatus() != null) {
+      converted.setStatus(UpdateResultDto.Status.valueOf(result.getStatus().name()));
+    }
+    return converted;
+  }
+
+  static JobInstanceResultDto toClient(
+      com.restdatabase.databaseservice.dto.JobInstanceResultDto result) {
+    return copy(result, JobInstanceResultDto::new);
+  }
+
+  static JobInstancePageDto toClient(com.restdatabase.databaseservice.dto.JobInstancePageDto page) {
+    return copy(page, JobInstancePageDto::new);
+  }
+
+  static JobExecutionGraphDto toClient(
+      com.restdatabase.databaseservice.dto.JobExecutionGraphDto graph) {
+    if (graph == null) {
+      return null;
+    }
+    return JobExecutionGraphDto.builder()
+        .jobExecution(graph.getJobExecution())
+        .jobInstance(graph.getJobInstance())
+        .executionContext(graph.getExecutionContext())
+        .stepExecutions(toClient(graph.getStepExecutions()))
+        .stepExecutionContexts(graph.getStepExecutionContexts())
+        .build();
+  }
+
+  private static <S, T> T copy(S source, Supplier<T> target) {
+    if (source == null) {
+      return null;
+    }
+    T copy = target.get();
+    BeanUtils.copyProperties(source, copy);
+    return copy;
+  }
+
+  private static <S, T> List<T> map(List<S> sources, Function<S, T> mapper) {
+    if (sources == null) {
+      return null;
+    }
+    return sources.stream().map(mapper).collect(Collectors.toList());
+  }
+}
@@ -0,0 +1,88 @@
+package com.restbatch.batchservice.client.inprocess;
+
+import com.restbatch.batchservice.client.ExecutionContextDaoClient;
+import com.restbatch.batchservice.dto.ExecutionContextDeltaDto;
+import com.restbatch.batchservice.dto.SerializedContextDto;
+import com.restbatch.batchservice.dto.SerializedContextsDto;
+import com.restbatch.batchservice.dto.UpdateResultDto;
+import com.restdatabase.databaseservice.service.ExecutionContextService;
+import feign.Request;
+import feign.Request.HttpMethod;
+import feign.Response;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import lombok.RequiredArgsConstructor;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+
+/**
+ * {@link ExecutionContextDaoClient} calling the {@link ExecutionContextService} of the database
+ * service running in the same process.
+ *
+ * @author Anton Belousov
+ * @since 0.0.1-SNAPSHOT
+ */
+@RequiredArgsConstructor
+public class InProcessExecutionContextDaoClient implements ExecutionContextDaoClient {
+
+  private final ExecutionContextService executionContextService;
+
+  @Override
+  public ExecutionContext getJobExecutionContext(Long executionId) {
+    return executionContextService.getJobExecutionContext(executionId);
+  }
+
+  @Override
+  public ExecutionContext getStepExecutionContext(Long executionId) {
+    return executionContextService.getStepExecutionContext(executionId);
+  }
+
+  @Override
+  public void persistSerializedContext(SerializedContextDto ctxDto) {
+    executionContextService.persistSerializedContext(InProcessDtos.toService(ctxDto));
+  }
+
+  @Override
+  public void persistSerializedContexts(SerializedContextsDto ctxDto) {
+    executionContextService.persistSerializedContexts(InProcessDtos.toService(ctxDto));
+  }
+
+  @Override
+  public Response getJobExecutionContextBytes(Long executionId) {
+    return toResponse("/dao/execCtx/getJobExecutionContextBytes",
+        executionContextService.getJobExecutionContextBytes(executionId));
+  }
+
+  @Override
+  public Response getStepExecutionContextBytes(Long executionId) {
+    return toResponse("/dao/execCtx/getStepExecutionContextBytes",
+        executionContextService.getStepExecutionContextBytes(executionId));
+  }
+
+  @Override
+  public void persistContextBytes(Long executionId, String sqlType, int shortContextLength,
+      int clobTypeToUse, byte[] context) {
+    executionContextService.persistContextBytes(executionId, context, sqlType,
+        shortContextLength, clobTypeToUse);
+  }
+
+  @Override
+  public UpdateResultDto applyContextDelta(ExecutionContextDeltaDto delta) {
+    return InProcessDtos.toClient(
+        executionContextService.applyContextDelta(InProcessDtos.toService(delta)));
+  }
+
+  private static Response toResponse(String path, byte[] context) {
+    return Response.builder()
+        .status(200)
+        .request(Request.create(HttpMethod.GET, path, Collections.emptyMap(), null,
+            StandardCharsets.UTF_8, null))
+        .headers(Map.of(HttpHeaders.CONTENT_TYPE,
+            List.of(MediaType.APPLICATION_OCTET_STREAM_VALUE)))
+        .body(context)
+        .build();
+  }
+}
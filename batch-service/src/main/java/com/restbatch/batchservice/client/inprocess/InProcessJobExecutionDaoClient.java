@@ -0,0 +1,115 @@
+package com.restbatch.batchservice.client.inprocess;
+
+import com.restbatch.batchservice.client.JobExecutionDaoClient;
+import com.restbatch.batchservice.dto.JobExecutionGraphDto;
+import com.restbatch.batchservice.dto.JobExecutionLaunchDto;
+import com.restbatch.batchservice.dto.UpdateResultDto;
+import com.restbatch.batchservice.dto.holder.JobExecutionHolder;
+import com.restbatch.batchservice.dto.holder.JobExecutionParamHolder;
+import com.restdatabase.databaseservice.service.JobExecutionService;
+import feign.Request;
+import feign.Response;
+import java.util.List;
+import java.util.Set;
+import lombok.RequiredArgsConstructor;
+import org.springframework.batch.core.JobExecution;
+
+/**
+ * {@link JobExecutionDaoClient} calling the {@link JobExecutionService} of the database service
+ * running in the same process.
+ *
+ * @author Anton Belousov
+ * @since 0.0.1-SNAPSHOT
+ */
+@RequiredArgsConstructor
+public class InProcessJobExecutionDaoClient implements JobExecutionDaoClient {
+
+  private final JobExecutionService jobExecutionService;
+  private final NdjsonPipe ndjsonPipe;
+
+  @Override
+  public List<JobExecution> findJobExecutions(Long jobInstanceId) {
+    return jobExecutionService.findJobExecutions(jobInstanceId);
+  }
+
+  @Override
+  public Response streamJobExecutions(Long jobInstanceId) {
+    return ndjsonPipe.<JobExecution>open("/dao/jobExec/streamJobExecutions",
+        action -> jobExecutionService.findJobExecutions(jobInstanceId, action));
+  }
+
+  @Override
+  public Long saveJobExecution(JobExecutionHolder holder) {
+    return jobExecutionService.saveJobExecution(InProcessDtos.toService(holder));
+  }
+
+  @Override
+  public Long launchJobExecution(JobExecutionLaunchDto launchDto) {
+    return jobExecutionService.launchJobExecution(InProcessDtos.toService(launchDto));
+  }
+
+  @Override
+  public Integer countJobExecutions(Long jobExecutionId) {
+    return jobExecutionService.countJobExecutions(jobExecutionId);
+  }
+
+  @Override
+  public UpdateResultDto updateJobExecution(JobExecutionHolder holder) {
+    return InProcessDtos.toClient(
+        jobExecutionService.updateJobExecution(InProcessDtos.toService(holder)));
+  }
+
+  @Override
+  public Integer getJobExecutionVersion(Long jobExecutionId) {
+    return jobExecutionService.getJobExecutionVersion(jobExecutionId);
+  }
+
+  @Override
+  public String getJobExecutionStatus(Long jobExecutionId) {
+    return jobExecutionService.getJobExecutionStatus(jobExecutionId);
+  }
+
+  @Override
+  public List<JobExecution> getLastJobExecution(Long jobInstanceId) {
+    return jobExecutionService.getLastJobExecution(jobInstanceId);
+  }
+
+  /**
+   * The status stream is pushed by the web layer of the database service, which does not run in
+   * process, so the status is always polled in this mode.
+   */
+  @Override
+  public Response statusStream(Long jobExecutionId, Request.Options options) {
+    throw new UnsupportedOperationException("The status stream is not available in process");
+  }
+
+  @Override
+  public JobExecution getJobExecution(Long executionId) {
+    return jobExecutionService.getJobExecution(executionId);
+  }
+
+  @Override
+  public JobExecutionGraphDto getJobExecutionGraph(Long executionId) {
+    return InProcessDtos.toClient(jobExecutionService.getJobExecutionGraph(executionId));
+  }
+
+  @Override
+  public Set<JobExecution> findRunningJobExecutions(String jobName) {
+    return jobExecutionService.findRunningJobExecutions(jobName);
+  }
+
+  @Override
+  public void createJobParameters(JobExecutionParamHolder holder) {
+    jobExecutionService.createJobParameters(InProcessDtos.toService(holder));
+  }
+
+  @Override
+  public void insertJobParameters(List<JobExecutionParamHolder> holders) {
+    jobExecutionService.insertJobParameters(InProcessDtos.toService(holders));
+  }
+
+  @Override
+  public List<Long> nextJobExecutionIds(int count) {
+    return jobExecutionService.nextJobExecutionIds(count);
+  }
+}
@@ -0,0 +1,93 @@
+package com.restbatch.batchservice.client.inprocess;
+
+import com.restbatch.batchservice.client.JobInstanceDaoClient;
+import com.restbatch.batchservice.dto.JobInstancePageDto;
+import com.restbatch.batchservice.dto.JobInstanceResultDto;
+import com.restdatabase.databaseservice.service.JobInstanceService;
+import feign.Response;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import org.springframework.batch.core.JobInstance;
+
+/**
+ * {@link JobInstanceDaoClient} calling the {@link JobInstanceService} of the database service
+ * running in the same process.
+ *
+ * @author Anton Belousov
+ * @since 0.0.1-SNAPSHOT
+ */
+@RequiredArgsConstructor
+public class InProcessJobInstanceDaoClient implements JobInstanceDaoClient {
+
+  private final JobInstanceService jobInstanceService;
+  private final NdjsonPipe ndjsonPipe;
+
+  @Override
+  public Long createJobInstance(Object[] args) {
+    return jobInstanceService.createJobInstance(args);
+  }
+
+  @Override
+  public JobInstanceResultDto getOrCreateJobInstance(String jobName, String jobKey) {
+    return InProcessDtos.toClient(jobInstanceService.getOrCreateJobInstance(jobName, jobKey));
+  }
+
+  @Override
+  public List<JobInstance> getJobInstance(String jobName, String jobKey) {
+    return jobInstanceService.getJobInstance(jobName, jobKey);
+  }
+
+  @Override
+  public JobInstance getJobInstance(Long instanceId) {
+    return jobInstanceService.getJobInstance(instanceId);
+  }
+
+  @Override
+  public List<String> getJobNames() {
+    return jobInstanceService.getJobNames();
+  }
+
+  @Override
+  public List<JobInstance> getJobInstances(String jobName, int start, int count) {
+    return jobInstanceService.getJobInstances(jobName, start, count);
+  }
+
+  @Override
+  public JobInstancePageDto getJobInstancesPage(String jobName, String pageToken, int count) {
+    return InProcessDtos.toClient(
+        jobInstanceService.getJobInstancesPage(jobName, pageToken, count));
+  }
+
+  @Override
+  public JobInstance getLastJobInstance(String jobName) {
+    return jobInstanceService.getLastJobInstance(jobName);
+  }
+
+  @Override
+  public JobInstance getJobInstanceByJobExecutionId(Long jobExecutionId) {
+    return jobInstanceService.getJobInstanceByJobExecutionId(jobExecutionId);
+  }
+
+  @Override
+  public Object getJobInstanceCount(String jobName) {
+    return jobInstanceService.getJobInstanceCount(jobName);
+  }
+
+  @Override
+  public List<JobInstance> findJobInstancesByName(String jobName, int start, int count) {
+    return jobInstanceService.findJobInstancesByName(jobName, start, count);
+  }
+
+  @Override
+  public Response streamJobInstancesByName(String jobName) {
+    return ndjsonPipe.<JobInstance>open("/dao/jobInst/streamJobInstancesByName",
+        action -> jobInstanceService.findJobInstancesByName(jobName, action));
+  }
+
+  @Override
+  public JobInstancePageDto findJobInstancesByNamePage(String jobName, String pageToken,
+      int count) {
+    return InProcessDtos.toClient(
+        jobInstanceService.findJobInstancesByNamePage(jobName, pageToken, count));
+  }
+}
@@ -0,0 +1,90 @@
+package com.restbatch.batchservice.client.inprocess;
+
+import com.restbatch.batchservice.client.StepExecutionDaoClient;
+import com.restbatch.batchservice.dto.StepExecutionCommitDto;
+import com.restbatch.batchservice.dto.UpdateResultDto;
+import com.restbatch.batchservice.dto.holder.StepExecutionHolder;
+import com.restdatabase.databaseservice.service.StepExecutionService;
+import feign.Response;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * {@link StepExecutionDaoClient} calling the {@link StepExecutionService} of the database service
+ * running in the same process.
+ *
+ * @author Anton Belousov
+ * @since 0.0.1-SNAPSHOT
+ */
+@RequiredArgsConstructor
+public class InProcessStepExecutionDaoClient implements StepExecutionDaoClient {
+
+  private final StepExecutionService stepExecutionService;
+  private final NdjsonPipe ndjsonPipe;
+
+  @Override
+  public void saveStepExecution(StepExecutionHolder holder) {
+    stepExecutionService.saveStepExecution(InProcessDtos.toService(holder));
+  }
+
+  @Override
+  public void saveStepExecutions(List<StepExecutionHolder> stepExecutionHolders) {
+    stepExecutionService.saveStepExecutions(InProcessDtos.toServiceSteps(stepExecutionHolders));
+  }
+
+  @Override
+  public UpdateResultDto updateStepExecution(StepExecutionHolder holder) {
+    return InProcessDtos.toClient(
+        stepExecutionService.updateStepExecution(InProcessDtos.toService(holder)));
+  }
+
+  @Override
+  public UpdateResultDto commitStepExecution(StepExecutionCommitDto commitDto) {
+    return InProcessDtos.toClient(
+        stepExecutionService.commitStepExecution(InProcessDtos.toService(commitDto)));
+  }
+
+  @Override
+  public Integer getStepExecutionVersion(Long stepExecutionId) {
+    return stepExecutionService.getStepExecutionVersion(stepExecutionId);
+  }
+
+  @Override
+  public List<StepExecutionHolder> getStepExecution(Long jobExecutionId, Long stepExecutionId) {
+    return InProcessDtos.toClient(
+        stepExecutionService.getStepExecution(jobExecutionId, stepExecutionId));
+  }
+
+  @Override
+  public StepExecutionHolder getLastStepExecution(Long jobInstanceId, String stepName) {
+    return InProcessDtos.toClient(
+        stepExecutionService.getLastStepExecution(jobInstanceId, stepName));
+  }
+
+  @Override
+  public List<StepExecutionHolder> getStepExecutions(Long jobExecutionId) {
+    return InProcessDtos.toClient(stepExecutionService.getStepExecutions(jobExecutionId));
+  }
+
+  @Override
+  public Response streamStepExecutions(Long jobExecutionId) {
+    return ndjsonPipe.<com.restdatabase.databaseservice.dto.holder.StepExecutionHolder>open(
+        "/dao/stepExec/streamStepExecutions",
+        action -> stepExecutionService.getStepExecutions(jobExecutionId, action));
+  }
+
+  @Override
+  public Integer countStepExecutions(Long jobInstanceId, String stepName) {
+    return stepExecutionService.countStepExecutions(jobInstanceId, stepName);
+  }
+
+  @Override
+  public Long nextStepExecutionId() {
+    return stepExecutionService.nextStepExecutionId();
+  }
+
+  @Override
+  public List<Long> nextStepExecutionIds(int count) {
+    return stepExecutionService.nextStepExecutionIds(count);
+  }
+}
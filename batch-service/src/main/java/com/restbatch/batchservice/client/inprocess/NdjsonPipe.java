@@ -0,0 +1,165 @@
+package com.restbatch.batchservice.client.inprocess;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import feign.Request;
+import feign.Request.HttpMethod;
+import feign.Response;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.util.Assert;
+
+/**
+ * Hands the listings of the in-process clients to the remote DAOs as newline-delimited JSON
+ * responses, so that they are read the same way as those of the database service: one row at a
+ * time while the query is still running, instead of all rows at once. The query runs on a
+ * separate thread and writes into a pipe the response body is read from. If the query fails,
+ * reading the body fails after the last row written.
+ *
+ * @author Anton Belousov
+ * @since 0.0.1-SNAPSHOT
+ */
+@Slf4j
+public class NdjsonPipe {
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private final ObjectMapper objectMapper;
+  private final Executor executor;
+
+  /**
+   * @param objectMapper the mapper to write the rows with
+   */
+  public NdjsonPipe(ObjectMapper objectMapper) {
+    this(objectMapper, createDefaultExecutor());
+  }
+
+  /**
+   * @param objectMapper the mapper to write the rows with
+   * @param executor     executor to run the queries with, using one thread per response
+   */
+  public NdjsonPipe(ObjectMapper objectMapper, Executor executor) {
+    Assert.notNull(objectMapper, "Object mapper must not be null.");
+    Assert.notNull(executor, "Executor must not be null.");
+    this.objectMapper = objectMapper;
+    this.executor = executor;
+  }
+
+  private static Executor createDefaultExecutor() {
+    SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("in-process-listing-");
+    executor.setDaemon(true);
+    return executor;
+  }
+
+  /**
+   * The returned response holds the thread of the query until its body is read to the end or
+   * closed.
+   *
+   * @param path  path of the equivalent endpoint of the database service, for diagnostics
+   * @param query the query passing every row it reads to the given action
+   * @param <T>   the type of the rows
+   * @return the streaming response
+   */
+  public <T> Response open(String path, Consumer<Consumer<T>> query) {
+    PipedInputStream in = new PipedInputStream(BUFFER_SIZE);
+    PipedOutputStream out;
+    try {
+      out = new PipedOutputStream(in);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    PipeInputStream body = new PipeInputStream(in);
+    executor.execute(() -> write(path, out, body, query));
+
+    return Response.builder()
+        .status(200)
+        .request(Request.create(HttpMethod.GET, path, Collections.emptyMap(), null,
+            StandardCharsets.UTF_8, null))
+        .headers(Map.of(HttpHeaders.CONTENT_TYPE, List.of(MediaType.APPLICATION_NDJSON_VALUE)))
+        .body(body, null)
+        .build();
+  }
+
+  private <T> void write(String path, PipedOutputStream out, PipeInputStream body,
+      Consumer<Consumer<T>> query) {
+    try (SequenceWriter writer = objectMapper.writer()
+        .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+        .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+        .withRootValueSeparator("\n")
+        .writeValues(out)) {
+      query.accept(row -> {
+        try {
+          writer.write(row);
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      });
+    } catch (IOException | RuntimeException e) {
+      if (body.closed) {
+        log.debug("Listing {} has been closed before it was read to the end", path);
+      } else {
+        body.failure = e;
+      }
+    } finally {
+      // The failure must be visible before the reader reaches the end of the pipe
+      try {
+        out.close();
+      } catch (IOException e) {
+        log.debug("Cannot close listing {}", path, e);
+      }
+    }
+  }
+
+  /**
+   * Body of the response, which fails at the end of the pipe if the query has failed.
+   */
+  private static class PipeInputStream extends FilterInputStream {
+
+    private volatile Exception failure;
+    private volatile boolean closed;
+
+    private PipeInputStream(InputStream in) {
+      super(in);
+    }
+
+    @Override
+    public int read() throws IOException {
+      return checkFailure(super.read());
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      return checkFailure(super.read(b, off, len));
+    }
+
+    @Override
+    public void close() throws IOException {
+      closed = true;
+      super.close();
+    }
+
+    private int checkFailure(int result) throws IOException {
+      Exception e = failure;
+      if (result == -1 && e != null) {
+        throw new IOException("Listing query failed: " + e.getMessage(), e);
+      }
+      return result;
+    }
+  }
+}
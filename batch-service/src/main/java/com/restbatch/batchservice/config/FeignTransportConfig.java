@@ -0,0 +1,99 @@
+package com.restbatch.batchservice.config;
+
+import com.restbatch.batchservice.client.UnixDomainSocketFactory;
+import feign.Client;
+import feign.okhttp.OkHttpClient;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.okhttp3.OkHttpConnectionPoolMetrics;
+import io.micrometer.core.instrument.binder.okhttp3.OkHttpMetricsEventListener;
+import java.net.Proxy;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import okhttp3.ConnectionPool;
+import okhttp3.Protocol;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.env.Environment;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+
+/**
+ * Transport of the Feign DAO clients, applied to the context of each client. If pooling is
+ * enabled, every client gets its own OkHttp connection pool, which can use HTTP/2 to multiplex
+ * the calls of all threads over a single connection, and connect to the Unix domain socket of a
+ * co-located database service instead of the host of the base url. Otherwise the default
+ * {@link java.net.HttpURLConnection} transport is used.
+ * <p>
+ * HTTP/2 is negotiated through ALPN for an https base url, falling back to HTTP/1.1. For a plain
+ * http base url, there is no negotiation: HTTP/2 is used with prior knowledge, so it is only to
+ * be enabled if the database service accepts cleartext HTTP/2.
+ * <p>
+ * The pool settings under {@code api.transport} can be overridden per client under
+ * {@code api.transport.clients.<client name>}. Timeouts and logger level are set per client
+ * under {@code feign.client.config.<client name>}. If the application has a meter registry, e.g.
+ * the one of Spring Boot Actuator, the connection pools and the calls are reported to it, tagged
+ * with the client name.
+ *
+ * @author Anton Belousov
+ * @since 0.0.1-SNAPSHOT
+ */
+public class FeignTransportConfig {
+
+  private static final String PROPERTY_PREFIX = "api.transport.";
+  private static final String CLIENT_PROPERTY_PREFIX = PROPERTY_PREFIX + "clients.";
+  private static final String HTTPS_SCHEME = "https:";
+
+  @Bean
+  public Client feignClient(Environment environment,
+      ObjectProvider<MeterRegistry> meterRegistry) {
+    String clientName = environment.getRequiredProperty("feign.client.name");
+    if (!environment.getRequiredProperty(PROPERTY_PREFIX + "pooled", Boolean.class)) {
+      Assert.state(!StringUtils.hasText(getProperty(environment, clientName, "unix-socket-path")),
+          "Unix domain sockets require the pooled transport.");
+      return new Client.Default(null, null);
+    }
+
+    Duration keepAlive = DurationStyle.detectAndParse(
+        getProperty(environment, clientName, "keep-alive"));
+    ConnectionPool connectionPool = new ConnectionPool(
+        Integer.parseInt(getProperty(environment, clientName, "max-idle-connections")),
+        keepAlive.toMillis(), TimeUnit.MILLISECONDS);
+
+    okhttp3.OkHttpClient.Builder builder = new okhttp3.OkHttpClient.Builder()
+        .connectionPool(connectionPool);
+    MeterRegistry registry = meterRegistry.getIfAvailable();
+    if (registry != null) {
+      Tags tags = Tags.of("client", clientName);
+      new OkHttpConnectionPoolMetrics(connectionPool, "feign.client.connections", tags)
+          .bindTo(registry);
+      builder.eventListener(OkHttpMetricsEventListener
+          .builder(registry, "feign.client.requests")
+          .uriMapper(request -> request.url().encodedPath())
+          .tags(tags)
+          .build());
+    }
+    if (Boolean.parseBoolean(getProperty(environment, clientName, "http2"))) {
+      boolean tls = environment.getRequiredProperty("api.base-url").startsWith(HTTPS_SCHEME);
+      builder.protocols(tls ? List.of(Protocol.HTTP_2, Protocol.HTTP_1_1)
+          : List.of(Protocol.H2_PRIOR_KNOWLEDGE));
+    }
+    String unixSocketPath = getProperty(environment, clientName, "unix-socket-path");
+    if (StringUtils.hasText(unixSocketPath)) {
+      builder.socketFactory(new UnixDomainSocketFactory(Path.of(unixSocketPath)))
+          .proxy(Proxy.NO_PROXY);
+    }
+    return new OkHttpClient(builder.build());
+  }
+
+  /**
+   * The contexts of the clients do not convert durations, so the properties are read as strings.
+   */
+  private static String getProperty(Environment environment, String clientName, String name) {
+    String value = environment.getProperty(CLIENT_PROPERTY_PREFIX + clientName + "." + name);
+    return value != null ? value : environment.getRequiredProperty(PROPERTY_PREFIX + name);
+  }
+}
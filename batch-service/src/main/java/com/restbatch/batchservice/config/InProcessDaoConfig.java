@@ -0,0 +1,106 @@
+package com.restbatch.batchservice.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.restbatch.batchservice.client.ExecutionContextDaoClient;
+import com.restbatch.batchservice.client.JobExecutionDaoClient;
+import com.restbatch.batchservice.client.JobInstanceDaoClient;
+import com.restbatch.batchservice.client.StepExecutionDaoClient;
+import com.restbatch.batchservice.client.inprocess.InProcessExecutionContextDaoClient;
+import com.restbatch.batchservice.client.inprocess.InProcessJobExecutionDaoClient;
+import com.restbatch.batchservice.client.inprocess.InProcessJobInstanceDaoClient;
+import com.restbatch.batchservice.client.inprocess.InProcessStepExecutionDaoClient;
+import com.restbatch.batchservice.client.inprocess.NdjsonPipe;
+import com.restdatabase.databaseservice.config.ServiceConfig;
+import com.restdatabase.databaseservice.service.ExecutionContextService;
+import com.restdatabase.databaseservice.service.JobExecutionService;
+import com.restdatabase.databaseservice.service.JobInstanceService;
+import com.restdatabase.databaseservice.service.StepExecutionService;
+import com.restdatabase.databaseservice.service.impl.ContextBlobServiceImpl;
+import com.restdatabase.databaseservice.service.impl.ExecutionContextServiceImpl;
+import com.restdatabase.databaseservice.service.impl.JobExecutionServiceImpl;
+import com.restdatabase.databaseservice.service.impl.JobExecutionStatusServiceImpl;
+import com.restdatabase.databaseservice.service.impl.JobInstanceServiceImpl;
+import com.restdatabase.databaseservice.service.impl.StepExecutionServiceImpl;
+import javax.sql.DataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.annotation.Primary;
+
+/**
+ * In-process mode for single-node deployments: the services of the database service run inside
+ * this service over its own data source, and the DAO clients call them directly instead of going
+ * through HTTP. The in-process clients take precedence over the Feign clients, so the rest of the
+ * batch infrastructure works the same way in both modes.
+ * <p>
+ * The database service is only a dependency of the {@code in-process} Maven profile, which also
+ * builds this configuration and the in-process clients.
+ *
+ * @author Anton Belousov
+ * @since 0.0.1-SNAPSHOT
+ */
+@Configuration
+@ConditionalOnProperty(name = "api.in-process.enabled", havingValue = "true")
+@Import({ServiceConfig.class, ContextBlobServiceImpl.class, ExecutionContextServiceImpl.class,
+    JobExecutionServiceImpl.class, JobExecutionStatusServiceImpl.class,
+    JobInstanceServiceImpl.class, StepExecutionServiceImpl.class})
+public class InProcessDaoConfig {
+
+  @Value("${api.in-process.datasource.driver-class-name}")
+  private String driverClassName;
+
+  @Value("${api.in-process.datasource.url}")
+  private String url;
+
+  @Value("${api.in-process.datasource.username}")
+  private String username;
+
+  @Value("${api.in-process.datasource.password}")
+  private String password;
+
+  @Bean
+  public DataSource dataSource() {
+    return DataSourceBuilder.create()
+        .driverClassName(driverClassName)
+        .url(url)
+        .username(username)
+        .password(password)
+        .build();
+  }
+
+  @Bean
+  public NdjsonPipe ndjsonPipe(ObjectMapper objectMapper) {
+    return new NdjsonPipe(objectMapper);
+  }
+
+  @Bean
+  @Primary
+  public ExecutionContextDaoClient inProcessExecutionContextDaoClient(
+      ExecutionContextService executionContextService) {
+    return new InProcessExecutionContextDaoClient(executionContextService);
+  }
+
+  @Bean
+  @Primary
+  public JobInstanceDaoClient inProcessJobInstanceDaoClient(
+      JobInstanceService jobInstanceService, NdjsonPipe ndjsonPipe) {
+    return new InProcessJobInstanceDaoClient(jobInstanceService, ndjsonPipe);
+  }
+
+  @Bean
+  @Primary
+  public JobExecutionDaoClient inProcessJobExecutionDaoClient(
+      JobExecutionService jobExecutionService, NdjsonPipe ndjsonPipe) {
+    return new InProcessJobExecutionDaoClient(jobExecutionService, ndjsonPipe);
+  }
+
+  @Bean
+  @Primary
+  public StepExecutionDaoClient inProcessStepExecutionDaoClient(
+      StepExecutionService stepExecutionService, NdjsonPipe ndjsonPipe) {
+    return new InProcessStepExecutionDaoClient(stepExecutionService, ndjsonPipe);
+  }
+}
@@ -1,9 +1,15 @@
 package com.restbatch.batchservice.config;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.restbatch.batchservice.client.ExecutionContextDaoClient;
 import com.restbatch.batchservice.client.JobExecutionDaoClient;
+import com.restbatch.batchservice.client.JobExecutionStatusSubscriber;
 import com.restbatch.batchservice.client.JobInstanceDaoClient;
 import com.restbatch.batchservice.client.StepExecutionDaoClient;
+import com.restbatch.batchservice.dao.CompactExecutionContextSerializer;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import javax.sql.DataSource;
 import javax.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -14,11 +20,19 @@ import org.springframework.batch.core.launch.JobLauncher;
 import org.springframework.batch.core.launch.support.SimpleJobLauncher;
 import org.springframework.batch.core.repository.JobRepository;
 import org.springframework.batch.support.transaction.ResourcelessTransactionManager;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
 
 /**
+ * Batch configuration over the DAO clients, which call the database service over HTTP, or the
+ * services of the database service in the same process if the in-process mode is enabled, see
+ * {@code InProcessDaoConfig}, which is only built with the {@code in-process} Maven profile.
+ *
  * @author Anton Belousov
  * @since 0.0.1-SNAPSHOT
  */
@@ -27,14 +41,45 @@ import org.springframework.transaction.PlatformTransactionManager;
 @RequiredArgsConstructor
 public class RemoteBatchConfigurer implements BatchConfigurer {
 
+  private static final String IN_PROCESS_CONFIG =
+      "com.restbatch.batchservice.config.InProcessDaoConfig";
+
   private final ExecutionContextDaoClient executionContextDaoClient;
   private final JobInstanceDaoClient jobInstanceDaoClient;
   private final JobExecutionDaoClient jobExecutionDaoClient;
   private final StepExecutionDaoClient stepExecutionDaoClient;
+  private final ObjectMapper objectMapper;
+  private final ObjectProvider<DataSource> dataSource;
+  private final ObjectProvider<MeterRegistry> meterRegistry;
 
   @Value("${database.type}")
   private String databaseType;
 
+  @Value("${api.in-process.enabled}")
+  private boolean inProcessEnabled;
+
+  @Value("${api.status-stream.enabled}")
+  private boolean statusStreamEnabled;
+
+  @Value("${api.status-stream.reconnect-delay}")
+  private Duration statusStreamReconnectDelay;
+
+  @Value("${context-fingerprints.enabled}")
+  private boolean contextFingerprintsEnabled;
+
+  @Value("${context-fingerprints.capacity}")
+  private int contextFingerprintCapacity;
+
+  @Value("${context-delta.enabled}")
+  private boolean contextDeltaEnabled;
+
+  @Value("${context-delta.max-context-size}")
+  private int contextDeltaMaxContextSize;
+
+  @Value("${compact-contexts.enabled}")
+  private boolean compactContextsEnabled;
+
+  private PlatformTransactionManager transactionManager;
   private JobRepository jobRepository;
   private JobLauncher jobLauncher;
   private JobExplorer jobExplorer;
@@ -46,7 +91,7 @@ public class RemoteBatchConfigurer implements BatchConfigurer {
 
   @Override
   public PlatformTransactionManager getTransactionManager() {
-    return new ResourcelessTransactionManager();
+    return transactionManager;
   }
 
   @Override
@@ -62,6 +107,7 @@ public class RemoteBatchConfigurer implements BatchConfigurer {
   @PostConstruct
   public void initialize() {
     try {
+      transactionManager = createTransactionManager();
       jobRepository = createJobRepository();
       jobExplorer = createJobExplorer();
       jobLauncher = createJobLauncher();
@@ -70,6 +116,16 @@ public class RemoteBatchConfigurer implements BatchConfigurer {
     }
   }
 
+  protected PlatformTransactionManager createTransactionManager() {
+    if (inProcessEnabled) {
+      Assert.state(ClassUtils.isPresent(IN_PROCESS_CONFIG, getClass().getClassLoader()),
+          "The in-process mode requires a build with the in-process profile.");
+      // The in-process services update the database within the transactions of the steps
+      return new DataSourceTransactionManager(dataSource.getObject());
+    }
+    return new ResourcelessTransactionManager();
+  }
+
   protected JobLauncher createJobLauncher() throws Exception {
     SimpleJobLauncher jobLauncher = new SimpleJobLauncher();
     jobLauncher.setJobRepository(jobRepository);
@@ -83,8 +139,22 @@ public class RemoteBatchConfigurer implements BatchConfigurer {
     factory.setJobInstanceDaoClient(jobInstanceDaoClient);
     factory.setJobExecutionDaoClient(jobExecutionDaoClient);
     factory.setStepExecutionDaoClient(stepExecutionDaoClient);
+    factory.setObjectMapper(objectMapper);
     factory.setTransactionManager(getTransactionManager());
     factory.setDatabaseType(databaseType);
+    factory.setContextFingerprintCapacity(
+        contextFingerprintsEnabled ? contextFingerprintCapacity : 0);
+    factory.setContextDeltaMaxContextSize(
+        contextDeltaEnabled ? contextDeltaMaxContextSize : 0);
+    factory.setMeterRegistry(meterRegistry.getIfAvailable());
+    if (compactContextsEnabled) {
+      factory.setSerializer(new CompactExecutionContextSerializer());
+    }
+    if (statusStreamEnabled && !inProcessEnabled) {
+      factory.setJobExecutionStatusSubscriber(
+          new JobExecutionStatusSubscriber(jobExecutionDaoClient, objectMapper,
+              statusStreamReconnectDelay));
+    }
     factory.afterPropertiesSet();
     return factory.getObject();
   }
@@ -95,6 +165,10 @@ public class RemoteBatchConfigurer implements BatchConfigurer {
     factory.setJobInstanceDaoClient(jobInstanceDaoClient);
     factory.setJobExecutionDaoClient(jobExecutionDaoClient);
     factory.setStepExecutionDaoClient(stepExecutionDaoClient);
+    factory.setObjectMapper(objectMapper);
+    if (compactContextsEnabled) {
+      factory.setSerializer(new CompactExecutionContextSerializer());
+    }
     factory.afterPropertiesSet();
     return factory.getObject();
   }
@@ -1,5 +1,6 @@
 package com.restbatch.batchservice.config;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.restbatch.batchservice.client.ExecutionContextDaoClient;
 import com.restbatch.batchservice.client.JobExecutionDaoClient;
 import com.restbatch.batchservice.client.JobInstanceDaoClient;
@@ -8,17 +9,13 @@ import com.restbatch.batchservice.dao.RemoteExecutionContextDao;
 import com.restbatch.batchservice.dao.RemoteJobExecutionDao;
 import com.restbatch.batchservice.dao.RemoteJobInstanceDao;
 import com.restbatch.batchservice.dao.RemoteStepExecutionDao;
+import com.restbatch.batchservice.explore.RemoteJobExplorer;
 import lombok.Setter;
 import org.springframework.batch.core.explore.JobExplorer;
 import org.springframework.batch.core.explore.support.AbstractJobExplorerFactoryBean;
-import org.springframework.batch.core.explore.support.SimpleJobExplorer;
 import org.springframework.batch.core.repository.ExecutionContextSerializer;
 import org.springframework.batch.core.repository.dao.AbstractJdbcBatchMetadataDao;
-import org.springframework.batch.core.repository.dao.ExecutionContextDao;
 import org.springframework.batch.core.repository.dao.Jackson2ExecutionContextStringSerializer;
-import org.springframework.batch.core.repository.dao.JobExecutionDao;
-import org.springframework.batch.core.repository.dao.JobInstanceDao;
-import org.springframework.batch.core.repository.dao.StepExecutionDao;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.util.Assert;
 
@@ -34,6 +31,7 @@ public class RemoteJobExplorerFactoryBean extends AbstractJobExplorerFactoryBean
   private JobInstanceDaoClient jobInstanceDaoClient;
   private JobExecutionDaoClient jobExecutionDaoClient;
   private StepExecutionDaoClient stepExecutionDaoClient;
+  private ObjectMapper objectMapper;
   private String tablePrefix = AbstractJdbcBatchMetadataDao.DEFAULT_TABLE_PREFIX;
   private ExecutionContextSerializer serializer;
 
@@ -64,6 +62,7 @@ public class RemoteJobExplorerFactoryBean extends AbstractJobExplorerFactoryBean
     Assert.notNull(jobInstanceDaoClient, "JobInstanceDaoClient must not be null.");
     Assert.notNull(jobExecutionDaoClient, "JobExecutionDaoClient must not be null.");
     Assert.notNull(stepExecutionDaoClient, "StepExecutionDaoClient must not be null.");
+    Assert.notNull(objectMapper, "ObjectMapper must not be null.");
 
     if (serializer == null) {
       serializer = new Jackson2ExecutionContextStringSerializer();
@@ -71,13 +70,13 @@ public class RemoteJobExplorerFactoryBean extends AbstractJobExplorerFactoryBean
   }
 
   private JobExplorer getTarget() {
-    return new SimpleJobExplorer(createJobInstanceDao(),
+    return new RemoteJobExplorer(createJobInstanceDao(),
         createJobExecutionDao(), createStepExecutionDao(),
         createExecutionContextDao());
   }
 
   @Override
-  protected ExecutionContextDao createExecutionContextDao() {
+  protected RemoteExecutionContextDao createExecutionContextDao() {
     RemoteExecutionContextDao dao = new RemoteExecutionContextDao();
     dao.setClient(executionContextDaoClient);
     dao.setTablePrefix(tablePrefix);
@@ -87,27 +86,30 @@ public class RemoteJobExplorerFactoryBean extends AbstractJobExplorerFactoryBean
   }
 
   @Override
-  protected JobInstanceDao createJobInstanceDao() {
+  protected RemoteJobInstanceDao createJobInstanceDao() {
     RemoteJobInstanceDao dao = new RemoteJobInstanceDao();
     dao.setClient(jobInstanceDaoClient);
+    dao.setObjectMapper(objectMapper);
     dao.setTablePrefix(tablePrefix);
     dao.afterPropertiesSet();
     return dao;
   }
 
   @Override
-  protected JobExecutionDao createJobExecutionDao() {
+  protected RemoteJobExecutionDao createJobExecutionDao() {
     RemoteJobExecutionDao dao = new RemoteJobExecutionDao();
     dao.setClient(jobExecutionDaoClient);
+    dao.setObjectMapper(objectMapper);
     dao.setTablePrefix(tablePrefix);
     dao.afterPropertiesSet();
     return dao;
   }
 
   @Override
-  protected StepExecutionDao createStepExecutionDao() {
+  protected RemoteStepExecutionDao createStepExecutionDao() {
     RemoteStepExecutionDao dao = new RemoteStepExecutionDao();
     dao.setClient(stepExecutionDaoClient);
+    dao.setObjectMapper(objectMapper);
     dao.setTablePrefix(tablePrefix);
     dao.afterPropertiesSet();
     return dao;
@@ -2,30 +2,37 @@ package com.restbatch.batchservice.config;
 
 import static org.springframework.batch.support.DatabaseType.SYBASE;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.restbatch.batchservice.client.ExecutionContextDaoClient;
 import com.restbatch.batchservice.client.JobExecutionDaoClient;
+import com.restbatch.batchservice.client.JobExecutionStatusSubscriber;
 import com.restbatch.batchservice.client.JobInstanceDaoClient;
 import com.restbatch.batchservice.client.StepExecutionDaoClient;
+import com.restbatch.batchservice.dao.ExecutionContextDeltas;
+import com.restbatch.batchservice.dao.ExecutionContextFingerprints;
+import com.restbatch.batchservice.dao.ExecutionIdPool;
+import com.restbatch.batchservice.dao.JobExecutionStatusCache;
 import com.restbatch.batchservice.dao.RemoteExecutionContextDao;
 import com.restbatch.batchservice.dao.RemoteJobExecutionDao;
 import com.restbatch.batchservice.dao.RemoteJobInstanceDao;
 import com.restbatch.batchservice.dao.RemoteStepExecutionDao;
+import com.restbatch.batchservice.repository.RemoteJobRepository;
+import io.micrometer.core.instrument.MeterRegistry;
 import java.lang.reflect.Field;
 import java.sql.Types;
+import java.util.concurrent.Executor;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.batch.core.repository.ExecutionContextSerializer;
+import org.springframework.batch.core.repository.JobRepository;
 import org.springframework.batch.core.repository.dao.AbstractJdbcBatchMetadataDao;
-import org.springframework.batch.core.repository.dao.ExecutionContextDao;
 import org.springframework.batch.core.repository.dao.Jackson2ExecutionContextStringSerializer;
-import org.springframework.batch.core.repository.dao.JobExecutionDao;
-import org.springframework.batch.core.repository.dao.JobInstanceDao;
-import org.springframework.batch.core.repository.dao.StepExecutionDao;
 import org.springframework.batch.core.repository.support.AbstractJobRepositoryFactoryBean;
 import org.springframework.batch.item.database.support.DefaultDataFieldMaxValueIncrementerFactory;
 import org.springframework.batch.support.DatabaseType;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.util.Assert;
 
 /**
@@ -37,16 +44,30 @@ import org.springframework.util.Assert;
 public class RemoteJobRepositoryFactoryBean extends AbstractJobRepositoryFactoryBean implements
     InitializingBean {
 
+  /**
+   * Default count of step execution ids reserved ahead of time.
+   */
+  public static final int DEFAULT_STEP_EXECUTION_ID_BATCH_SIZE = 100;
+
   private ExecutionContextDaoClient executionContextDaoClient;
   private JobInstanceDaoClient jobInstanceDaoClient;
   private JobExecutionDaoClient jobExecutionDaoClient;
   private StepExecutionDaoClient stepExecutionDaoClient;
+  private ObjectMapper objectMapper;
   @Value("${database.type}")
   private String databaseType;
   private String tablePrefix = AbstractJdbcBatchMetadataDao.DEFAULT_TABLE_PREFIX;
   private int maxVarCharLength = AbstractJdbcBatchMetadataDao.DEFAULT_EXIT_MESSAGE_LENGTH;
   private ExecutionContextSerializer serializer;
   private Integer lobType;
+  private int stepExecutionIdBatchSize = DEFAULT_STEP_EXECUTION_ID_BATCH_SIZE;
+  private int jobExecutionIdBatchSize;
+  private int contextFingerprintCapacity = ExecutionContextFingerprints.DEFAULT_CAPACITY;
+  private int contextDeltaMaxContextSize = ExecutionContextDeltas.DEFAULT_MAX_CONTEXT_SIZE;
+  private Executor idPoolExecutor;
+  private JobExecutionStatusSubscriber jobExecutionStatusSubscriber;
+  private MeterRegistry meterRegistry;
+  private final JobExecutionStatusCache jobExecutionStatusCache = new JobExecutionStatusCache();
 
   /**
    * @param type a value from the {@link Types} class to indicate the type to use for a CLOB
@@ -81,6 +102,52 @@ public class RemoteJobRepositoryFactoryBean extends AbstractJobRepositoryFactory
     this.maxVarCharLength = maxVarCharLength;
   }
 
+  /**
+   * Public setter for the count of step execution ids reserved ahead of time, so that saving step
+   * executions does not cost a round trip per id. Set to {@code 0} to reserve ids only on save.
+   * Defaults to {@link #DEFAULT_STEP_EXECUTION_ID_BATCH_SIZE}.
+   *
+   * @param stepExecutionIdBatchSize count of step execution ids to reserve ahead of time
+   */
+  public void setStepExecutionIdBatchSize(int stepExecutionIdBatchSize) {
+    this.stepExecutionIdBatchSize = stepExecutionIdBatchSize;
+  }
+
+  /**
+   * Public setter for the count of job execution ids reserved ahead of time. Disabled by default,
+   * since the latest job execution of a job instance is the one with the highest id, which only
+   * holds for ids reserved ahead of time if a single node launches the jobs.
+   *
+   * @param jobExecutionIdBatchSize count of job execution ids to reserve ahead of time
+   */
+  public void setJobExecutionIdBatchSize(int jobExecutionIdBatchSize) {
+    this.jobExecutionIdBatchSize = jobExecutionIdBatchSize;
+  }
+
+  /**
+   * Public setter for the count of executions whose context fingerprint is kept, so that updates
+   * of contexts which have not changed since they were persisted last are skipped. Set to
+   * {@code 0} to always persist the contexts. Defaults to
+   * {@link ExecutionContextFingerprints#DEFAULT_CAPACITY}.
+   *
+   * @param contextFingerprintCapacity count of executions to keep the context fingerprint of
+   */
+  public void setContextFingerprintCapacity(int contextFingerprintCapacity) {
+    this.contextFingerprintCapacity = contextFingerprintCapacity;
+  }
+
+  /**
+   * Public setter for the maximum size of the serialized contexts whose updates are sent as the
+   * entries put and removed since they were persisted last, instead of the full contexts. Set to
+   * {@code 0} to always send the full contexts. Defaults to
+   * {@link ExecutionContextDeltas#DEFAULT_MAX_CONTEXT_SIZE}.
+   *
+   * @param contextDeltaMaxContextSize maximum size of the serialized contexts to send deltas for
+   */
+  public void setContextDeltaMaxContextSize(int contextDeltaMaxContextSize) {
+    this.contextDeltaMaxContextSize = contextDeltaMaxContextSize;
+  }
+
   /**
    * Sets the database type.
    *
@@ -106,11 +173,16 @@ public class RemoteJobRepositoryFactoryBean extends AbstractJobRepositoryFactory
     Assert.notNull(jobInstanceDaoClient, "JobInstanceDaoClient must not be null.");
     Assert.notNull(jobExecutionDaoClient, "JobExecutionDaoClient must not be null.");
     Assert.notNull(stepExecutionDaoClient, "StepExecutionDaoClient must not be null.");
+    Assert.notNull(objectMapper, "ObjectMapper must not be null.");
 
     if (serializer == null) {
       serializer = new Jackson2ExecutionContextStringSerializer();
     }
 
+    if (idPoolExecutor == null) {
+      idPoolExecutor = new SimpleAsyncTaskExecutor("execution-id-pool-");
+    }
+
     if (lobType != null) {
       Assert.isTrue(isValidTypes(lobType), "lobType must be a value from the java.sql.Types class");
     }
@@ -119,43 +191,58 @@ public class RemoteJobRepositoryFactoryBean extends AbstractJobRepositoryFactory
   }
 
   @Override
-  protected JobInstanceDao createJobInstanceDao() {
+  protected RemoteJobInstanceDao createJobInstanceDao() {
     RemoteJobInstanceDao dao = new RemoteJobInstanceDao();
     dao.setClient(jobInstanceDaoClient);
+    dao.setObjectMapper(objectMapper);
     dao.setTablePrefix(tablePrefix);
     dao.afterPropertiesSet();
     return dao;
   }
 
   @Override
-  protected JobExecutionDao createJobExecutionDao() {
+  protected RemoteJobExecutionDao createJobExecutionDao() {
     RemoteJobExecutionDao dao = new RemoteJobExecutionDao();
     dao.setClient(jobExecutionDaoClient);
+    dao.setObjectMapper(objectMapper);
     dao.setTablePrefix(tablePrefix);
     dao.setClobTypeToUse(determineClobTypeToUse(databaseType));
     dao.setExitMessageLength(maxVarCharLength);
+    if (jobExecutionIdBatchSize > 0) {
+      dao.setIdPool(new ExecutionIdPool(jobExecutionDaoClient::nextJobExecutionIds,
+          jobExecutionIdBatchSize, idPoolExecutor));
+    }
+    dao.setJobExecutionStatusCache(jobExecutionStatusCache);
+    dao.setStatusSubscriber(jobExecutionStatusSubscriber);
     dao.afterPropertiesSet();
     return dao;
   }
 
   @Override
-  protected StepExecutionDao createStepExecutionDao() {
+  protected RemoteStepExecutionDao createStepExecutionDao() {
     RemoteStepExecutionDao dao = new RemoteStepExecutionDao();
     dao.setClient(stepExecutionDaoClient);
+    dao.setObjectMapper(objectMapper);
     dao.setTablePrefix(tablePrefix);
     dao.setClobTypeToUse(determineClobTypeToUse(databaseType));
     dao.setExitMessageLength(maxVarCharLength);
+    dao.setIdPool(new ExecutionIdPool(stepExecutionDaoClient::nextStepExecutionIds,
+        stepExecutionIdBatchSize, idPoolExecutor));
+    dao.setJobExecutionStatusCache(jobExecutionStatusCache);
     dao.afterPropertiesSet();
     return dao;
   }
 
   @Override
-  protected ExecutionContextDao createExecutionContextDao() {
+  protected RemoteExecutionContextDao createExecutionContextDao() {
     RemoteExecutionContextDao dao = new RemoteExecutionContextDao();
     dao.setClient(executionContextDaoClient);
     dao.setTablePrefix(tablePrefix);
     dao.setClobTypeToUse(determineClobTypeToUse(databaseType));
     dao.setSerializer(serializer);
+    dao.setFingerprintCapacity(contextFingerprintCapacity);
+    dao.setDeltaMaxContextSize(contextDeltaMaxContextSize);
+    dao.setMeterRegistry(meterRegistry);
 
     dao.afterPropertiesSet();
     // Assume the same length.
@@ -163,6 +250,18 @@ public class RemoteJobRepositoryFactoryBean extends AbstractJobRepositoryFactory
     return dao;
   }
 
+  /**
+   * The remote DAOs are not bound to the transaction manager of this factory, so the repository is
+   * returned as is instead of being wrapped into a transactional proxy.
+   *
+   * @return {@link RemoteJobRepository} over the remote DAOs
+   */
+  @Override
+  public JobRepository getObject() throws Exception {
+    return new RemoteJobRepository(createJobInstanceDao(), createJobExecutionDao(),
+        createStepExecutionDao(), createExecutionContextDao());
+  }
+
   private int determineClobTypeToUse(String databaseType) {
     if (lobType != null) {
       return lobType;
@@ -0,0 +1,93 @@
+package com.restbatch.batchservice.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.restbatch.wireformat.EpochTimestamps;
+import feign.RequestInterceptor;
+import feign.codec.Encoder;
+import java.util.ArrayList;
+import java.util.List;
+import org.springframework.beans.factory.ObjectFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.http.HttpMessageConverters;
+import org.springframework.cloud.openfeign.support.SpringEncoder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+
+/**
+ * Wire format of the Feign clients. The request bodies are sent in the preferred enabled format:
+ * CBOR, then the {@link EpochTimestamps} json, then plain json. The responses are asked for in
+ * the same order of preference, always falling back to plain json if the database service does
+ * not support the others, and are decoded in whichever format they come in. The format of the
+ * request bodies is not negotiated, so the formats other than plain json are disabled by default
+ * and are only to be enabled against a database service supporting them.
+ *
+ * @author Anton Belousov
+ * @since 0.0.1-SNAPSHOT
+ */
+@Configuration
+public class WireFormatConfig {
+
+  @Value("${api.cbor.enabled}")
+  private boolean cborEnabled;
+
+  @Value("${api.epoch-timestamps.enabled}")
+  private boolean epochTimestampsEnabled;
+
+  @Bean
+  public MappingJackson2HttpMessageConverter mappingJackson2HttpMessageConverter(
+      ObjectMapper objectMapper) {
+    MappingJackson2HttpMessageConverter converter =
+        new MappingJackson2HttpMessageConverter(objectMapper);
+    EpochTimestamps.register(converter);
+    return converter;
+  }
+
+  @Bean
+  public MappingJackson2CborHttpMessageConverter mappingJackson2CborHttpMessageConverter(
+      Jackson2ObjectMapperBuilder objectMapperBuilder) {
+    ObjectMapper cborMapper = objectMapperBuilder.factory(new CBORFactory()).build();
+    cborMapper.registerModule(EpochTimestamps.module());
+    return new MappingJackson2CborHttpMessageConverter(cborMapper);
+  }
+
+  @Bean
+  public RequestInterceptor wireFormatInterceptor() {
+    List<String> accepted = new ArrayList<>();
+    if (cborEnabled) {
+      accepted.add(MediaType.APPLICATION_CBOR_VALUE);
+    }
+    if (epochTimestampsEnabled) {
+      accepted.add(EpochTimestamps.MEDIA_TYPE_VALUE);
+    }
+    accepted.add(MediaType.APPLICATION_JSON_VALUE);
+
+    return template -> {
+      // Streaming endpoints declare their own media type
+      if (accepted.size() > 1 && !template.headers().containsKey(HttpHeaders.ACCEPT)) {
+        template.header(HttpHeaders.ACCEPT, accepted);
+      }
+    };
+  }
+
+  @Bean
+  public Encoder wireFormatEncoder(ObjectFactory<HttpMessageConverters> messageConverters) {
+    Encoder encoder = new SpringEncoder(messageConverters);
+    String contentType = cborEnabled ? MediaType.APPLICATION_CBOR_VALUE
+        : epochTimestampsEnabled ? EpochTimestamps.MEDIA_TYPE_VALUE : null;
+    if (contentType == null) {
+      return encoder;
+    }
+    return (object, bodyType, template) -> {
+      if (!template.headers().containsKey(HttpHeaders.CONTENT_TYPE)) {
+        template.header(HttpHeaders.CONTENT_TYPE, contentType);
+      }
+      encoder.encode(object, bodyType, template);
+    };
+  }
+}
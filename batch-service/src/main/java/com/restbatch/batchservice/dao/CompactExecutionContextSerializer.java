@@ -0,0 +1,372 @@
+package com.restbatch.batchservice.dao;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import org.springframework.batch.core.repository.ExecutionContextSerializer;
+import org.springframework.batch.core.repository.dao.Jackson2ExecutionContextStringSerializer;
+import org.springframework.util.Assert;
+
+/**
+ * Compact binary {@link ExecutionContextSerializer}. Every entry is written as its key followed
+ * by a tag of the type of its value, the length of the value if it is variable, and the value
+ * itself: lengths and integral numbers as variable-length integers, strings as UTF-8, dates as
+ * milliseconds and maps with string keys as nested entries. Values of other types are serialized
+ * by the fallback serializer, as single-entry contexts.
+ * <p>
+ * The contexts are stored in character columns, which do not hold arbitrary bytes on every
+ * database, so the output is the codec header followed by the Base64 encoding of the binary form,
+ * the same way as the compressed contexts of the database service. The output of json and xml
+ * serializers never starts with the codec header, so contexts serialized by the fallback
+ * serializer, e.g. before this serializer was used, are deserialized by the fallback serializer.
+ *
+ * @author Anton Belousov
+ * @since 0.0.1-SNAPSHOT
+ */
+public class CompactExecutionContextSerializer implements ExecutionContextSerializer {
+
+  public static final String COMPACT_HEADER = "compact:";
+
+  private static final byte[] HEADER_BYTES = COMPACT_HEADER.getBytes(StandardCharsets.US_ASCII);
+  private static final int FORMAT_VERSION = 1;
+
+  private static final int NULL = 0;
+  private static final int STRING = 1;
+  private static final int INTEGER = 2;
+  private static final int LONG = 3;
+  private static final int DOUBLE = 4;
+  private static final int FLOAT = 5;
+  private static final int TRUE = 6;
+  private static final int FALSE = 7;
+  private static final int SHORT = 8;
+  private static final int BYTE = 9;
+  private static final int CHARACTER = 10;
+  private static final int DATE = 11;
+  private static final int HASH_MAP = 12;
+  private static final int LINKED_HASH_MAP = 13;
+  private static final int OBJECT = 14;
+
+  private static final String FALLBACK_KEY = "value";
+  private static final int INITIAL_BUFFER_SIZE = 256;
+
+  private final ExecutionContextSerializer fallback;
+
+  /**
+   * Uses the {@link Jackson2ExecutionContextStringSerializer} as the fallback serializer.
+   */
+  public CompactExecutionContextSerializer() {
+    this(new Jackson2ExecutionContextStringSerializer());
+  }
+
+  /**
+   * @param fallback serializer of the values of other types, and of the contexts not serialized
+   *                 by this serializer
+   */
+  public CompactExecutionContextSerializer(ExecutionContextSerializer fallback) {
+    Assert.notNull(fallback, "Fallback serializer must not be null");
+    this.fallback = fallback;
+  }
+
+  @Override
+  public void serialize(Map<String, Object> context, OutputStream out) throws IOException {
+    Assert.notNull(out, "An OutputStream is required");
+    out.write(serialize(context));
+  }
+
+  /**
+   * @param context the context to serialize
+   * @return the serialized context
+   * @throws IOException if a value cannot be serialized by the fallback serializer
+   */
+  public byte[] serialize(Map<String, Object> context) throws IOException {
+    Assert.notNull(context, "A context is required");
+    Output out = new Output();
+    out.writeByte(FORMAT_VERSION);
+    writeEntries(context, out);
+
+    ByteBuffer encoded = Base64.getEncoder().encode(out.toByteBuffer());
+    byte[] serialized = Arrays.copyOf(HEADER_BYTES, HEADER_BYTES.length + encoded.remaining());
+    encoded.get(serialized, HEADER_BYTES.length, encoded.remaining());
+    return serialized;
+  }
+
+  @Override
+  public Map<String, Object> deserialize(InputStream inputStream) throws IOException {
+    Assert.notNull(inputStream, "An InputStream is required");
+    PushbackInputStream in = new PushbackInputStream(inputStream, HEADER_BYTES.length);
+    byte[] header = in.readNBytes(HEADER_BYTES.length);
+    if (!Arrays.equals(header, HEADER_BYTES)) {
+      in.unread(header);
+      return fallback.deserialize(in);
+    }
+
+    Input input;
+    try {
+      input = new Input(Base64.getDecoder().decode(in.readAllBytes()));
+    } catch (IllegalArgumentException e) {
+      throw new IOException("Serialized execution context is not valid Base64", e);
+    }
+    int version = input.readByte();
+    if (version != FORMAT_VERSION) {
+      throw new IOException("Unsupported execution context format version " + version);
+    }
+    Map<String, Object> context = new HashMap<>();
+    readEntries(input, context);
+    return context;
+  }
+
+  private void writeEntries(Map<?, ?> entries, Output out) throws IOException {
+    out.writeVarint(entries.size());
+    for (Entry<?, ?> entry : entries.entrySet()) {
+      out.writeString((String) entry.getKey());
+      writeValue(entry.getValue(), out);
+    }
+  }
+
+  private void writeValue(Object value, Output out) throws IOException {
+    if (value == null) {
+      out.writeByte(NULL);
+      return;
+    }
+    Class<?> type = value.getClass();
+    if (type == String.class) {
+      out.writeByte(STRING);
+      out.writeString((String) value);
+    } else if (type == Integer.class) {
+      out.writeByte(INTEGER);
+      out.writeZigZag((Integer) value);
+    } else if (type == Long.class) {
+      out.writeByte(LONG);
+      out.writeZigZag((Long) value);
+    } else if (type == Double.class) {
+      out.writeByte(DOUBLE);
+      out.writeFixed(Double.doubleToRawLongBits((Double) value), Long.BYTES);
+    } else if (type == Float.class) {
+      out.writeByte(FLOAT);
+      out.writeFixed(Float.floatToRawIntBits((Float) value), Integer.BYTES);
+    } else if (type == Boolean.class) {
+      out.writeByte((Boolean) value ? TRUE : FALSE);
+    } else if (type == Short.class) {
+      out.writeByte(SHORT);
+      out.writeZigZag((Short) value);
+    } else if (type == Byte.class) {
+      out.writeByte(BYTE);
+      out.writeByte((Byte) value);
+    } else if (type == Character.class) {
+      out.writeByte(CHARACTER);
+      out.writeVarint((Character) value);
+    } else if (type == Date.class) {
+      out.writeByte(DATE);
+      out.writeZigZag(((Date) value).getTime());
+    } else if ((type == HashMap.class || type == LinkedHashMap.class)
+        && hasStringKeys((Map<?, ?>) value)) {
+      out.writeByte(type == HashMap.class ? HASH_MAP : LINKED_HASH_MAP);
+      writeEntries((Map<?, ?>) value, out);
+    } else {
+      Map<String, Object> wrapper = new HashMap<>(2);
+      wrapper.put(FALLBACK_KEY, value);
+      ByteArrayOutputStream serialized = new ByteArrayOutputStream();
+      fallback.serialize(wrapper, serialized);
+      out.writeByte(OBJECT);
+      out.writeVarint(serialized.size());
+      out.writeBytes(serialized.toByteArray());
+    }
+  }
+
+  private static boolean hasStringKeys(Map<?, ?> map) {
+    for (Object key : map.keySet()) {
+      if (!(key instanceof String)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private void readEntries(Input in, Map<String, Object> entries) throws IOException {
+    int size = in.readLength();
+    for (int i = 0; i < size; i++) {
+      String key = in.readString();
+      entries.put(key, readValue(in));
+    }
+  }
+
+  private Object readValue(Input in) throws IOException {
+    int tag = in.readByte();
+    switch (tag) {
+      case NULL:
+        return null;
+      case STRING:
+        return in.readString();
+      case INTEGER:
+        return (int) in.readZigZag();
+      case LONG:
+        return in.readZigZag();
+      case DOUBLE:
+        return Double.longBitsToDouble(in.readFixed(Long.BYTES));
+      case FLOAT:
+        return Float.intBitsToFloat((int) in.readFixed(Integer.BYTES));
+      case TRUE:
+        return Boolean.TRUE;
+      case FALSE:
+        return Boolean.FALSE;
+      case SHORT:
+        return (short) in.readZigZag();
+      case BYTE:
+        return (byte) in.readByte();
+      case CHARACTER:
+        return (char) in.readVarint();
+      case DATE:
+        return new Date(in.readZigZag());
+      case HASH_MAP:
+      case LINKED_HASH_MAP:
+        Map<String, Object> map = tag == HASH_MAP ? new HashMap<>() : new LinkedHashMap<>();
+        readEntries(in, map);
+        return map;
+      case OBJECT:
+        return fallback.deserialize(in.readStream()).get(FALLBACK_KEY);
+      default:
+        throw new IOException("Unknown execution context value tag " + tag);
+    }
+  }
+
+  /**
+   * Growable buffer of the serialized context.
+   */
+  private static class Output {
+
+    private byte[] buffer = new byte[INITIAL_BUFFER_SIZE];
+    private int count;
+
+    private void ensureCapacity(int length) {
+      if (count + length > buffer.length) {
+        buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, count + length));
+      }
+    }
+
+    private void writeByte(int b) {
+      ensureCapacity(1);
+      buffer[count++] = (byte) b;
+    }
+
+    private void writeBytes(byte[] bytes) {
+      ensureCapacity(bytes.length);
+      System.arraycopy(bytes, 0, buffer, count, bytes.length);
+      count += bytes.length;
+    }
+
+    private void writeVarint(long value) {
+      ensureCapacity(10);
+      while ((value & ~0x7FL) != 0) {
+        buffer[count++] = (byte) ((value & 0x7F) | 0x80);
+        value >>>= 7;
+      }
+      buffer[count++] = (byte) value;
+    }
+
+    private void writeZigZag(long value) {
+      writeVarint((value << 1) ^ (value >> 63));
+    }
+
+    private void writeFixed(long value, int length) {
+      ensureCapacity(length);
+      for (int shift = (length - 1) * 8; shift >= 0; shift -= 8) {
+        buffer[count++] = (byte) (value >>> shift);
+      }
+    }
+
+    private void writeString(String value) {
+      byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+      writeVarint(bytes.length);
+      writeBytes(bytes);
+    }
+
+    private ByteBuffer toByteBuffer() {
+      return ByteBuffer.wrap(buffer, 0, count);
+    }
+  }
+
+  /**
+   * Reader of the serialized context.
+   */
+  private static class Input {
+
+    private final byte[] buffer;
+    private int position;
+
+    private Input(byte[] buffer) {
+      this.buffer = buffer;
+    }
+
+    private void require(int length) throws EOFException {
+      if (length > buffer.length - position) {
+        throw new EOFException("Serialized execution context is truncated");
+      }
+    }
+
+    private int readByte() throws EOFException {
+      require(1);
+      return buffer[position++] & 0xFF;
+    }
+
+    private long readVarint() throws IOException {
+      long value = 0;
+      for (int shift = 0; shift < 64; shift += 7) {
+        int b = readByte();
+        value |= (long) (b & 0x7F) << shift;
+        if ((b & 0x80) == 0) {
+          return value;
+        }
+      }
+      throw new IOException("Serialized execution context has a malformed number");
+    }
+
+    private long readZigZag() throws IOException {
+      long value = readVarint();
+      return (value >>> 1) ^ -(value & 1);
+    }
+
+    private long readFixed(int length) throws EOFException {
+      require(length);
+      long value = 0;
+      for (int i = 0; i < length; i++) {
+        value = (value << 8) | (buffer[position++] & 0xFF);
+      }
+      return value;
+    }
+
+    private int readLength() throws IOException {
+      long length = readVarint();
+      if (length > buffer.length - position) {
+        throw new EOFException("Serialized execution context is truncated");
+      }
+      return (int) length;
+    }
+
+    private String readString() throws IOException {
+      int length = readLength();
+      String value = new String(buffer, position, length, StandardCharsets.UTF_8);
+      position += length;
+      return value;
+    }
+
+    private InputStream readStream() throws IOException {
+      int length = readLength();
+      InputStream in = new ByteArrayInputStream(buffer, position, length);
+      position += length;
+      return in;
+    }
+  }
+}
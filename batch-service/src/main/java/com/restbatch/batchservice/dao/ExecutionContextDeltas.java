@@ -0,0 +1,134 @@
+package com.restbatch.batchservice.dao;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.restbatch.batchservice.dto.ExecutionContextDeltaDto;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+import org.springframework.lang.Nullable;
+
+/**
+ * Deltas of execution contexts serialized as json objects, e.g. by the
+ * {@link org.springframework.batch.core.repository.dao.Jackson2ExecutionContextStringSerializer}.
+ * The entries put and removed are found by comparing the json trees of the context persisted last
+ * and of the context to persist, so that the entries compare the same whatever the order they are
+ * serialized in. The trees are only kept for contexts up to a maximum size, since they are held
+ * for every execution whose context is tracked.
+ *
+ * @author Anton Belousov
+ * @since 0.0.1-SNAPSHOT
+ */
+public class ExecutionContextDeltas {
+
+  /**
+   * Default maximum size of the serialized contexts to send deltas for.
+   */
+  public static final int DEFAULT_MAX_CONTEXT_SIZE = 64 * 1024;
+
+  /**
+   * Keeps the numbers as they were written, so that unchanged entries compare equal and the
+   * entries put are sent as they were serialized.
+   */
+  private static final ObjectMapper CONTEXT_MAPPER = JsonMapper.builder()
+      .enable(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS)
+      .nodeFactory(JsonNodeFactory.withExactBigDecimals(true))
+      .build();
+
+  /**
+   * Json trees compare numbers by their value, e.g. {@code 1.50} equal to {@code 1.5}, which the
+   * deserialized entries are not, so numbers only compare equal if they were written the same.
+   */
+  private static final Comparator<JsonNode> AS_WRITTEN = (a, b) -> {
+    if (a != null && b != null && a.isNumber() && b.isNumber()) {
+      return a.numberValue().equals(b.numberValue()) ? 0 : 1;
+    }
+    return a != null && a.equals(b) ? 0 : 1;
+  };
+
+  private final int maxContextSize;
+
+  /**
+   * @param maxContextSize maximum size of the serialized contexts to send deltas for
+   */
+  public ExecutionContextDeltas(int maxContextSize) {
+    this.maxContextSize = maxContextSize;
+  }
+
+  /**
+   * @param serializedContext the raw bytes of the serialized context
+   * @return the json tree of the context, {@code null} if the context is too large or is not a
+   * json object
+   */
+  @Nullable
+  public ObjectNode parse(byte[] serializedContext) {
+    if (serializedContext.length > maxContextSize) {
+      return null;
+    }
+    try {
+      JsonNode content = CONTEXT_MAPPER.readTree(serializedContext);
+      return content instanceof ObjectNode ? (ObjectNode) content : null;
+    } catch (IOException e) {
+      return null;
+    }
+  }
+
+  /**
+   * @param base          the json tree of the context persisted last
+   * @param content       the json tree of the context to persist
+   * @param contextLength the length of the serialized context to persist
+   * @return the entries put and removed since the context persisted last, or {@code null} if
+   * they are not much shorter than the context itself
+   */
+  @Nullable
+  public ExecutionContextDeltaDto diff(ObjectNode base, ObjectNode content, int contextLength) {
+    ObjectNode putEntries = CONTEXT_MAPPER.createObjectNode();
+    Iterator<Entry<String, JsonNode>> entries = content.fields();
+    while (entries.hasNext()) {
+      Entry<String, JsonNode> entry = entries.next();
+      if (!entry.getValue().equals(AS_WRITTEN, base.get(entry.getKey()))) {
+        putEntries.set(entry.getKey(), entry.getValue());
+      }
+    }
+    List<String> removedKeys = new ArrayList<>();
+    int removedLength = 0;
+    Iterator<String> keys = base.fieldNames();
+    while (keys.hasNext()) {
+      String key = keys.next();
+      if (!content.has(key)) {
+        removedKeys.add(key);
+        removedLength += key.length();
+      }
+    }
+
+    String serializedPutEntries;
+    try {
+      serializedPutEntries = CONTEXT_MAPPER.writeValueAsString(putEntries);
+    } catch (JsonProcessingException e) {
+      return null;
+    }
+    if (serializedPutEntries.length() + removedLength > contextLength / 2) {
+      return null;
+    }
+    return ExecutionContextDeltaDto.builder()
+        .putEntries(serializedPutEntries)
+        .removedKeys(removedKeys)
+        .build();
+  }
+
+  /**
+   * @param delta the delta to check
+   * @return {@code true} if the delta neither puts nor removes any entry
+   */
+  public static boolean isEmpty(ExecutionContextDeltaDto delta) {
+    return delta.getRemovedKeys().isEmpty() && "{}".equals(delta.getPutEntries());
+  }
+}
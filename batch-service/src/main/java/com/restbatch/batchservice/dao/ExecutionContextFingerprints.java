@@ -0,0 +1,145 @@
+package com.restbatch.batchservice.dao;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import org.springframework.lang.Nullable;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Fingerprints of the execution contexts persisted last, so that a context which has not changed
+ * since is not sent again, along with the version and content of the context as stored, so that
+ * a context which has changed can be sent as a delta. Only the most recently persisted contexts
+ * are kept, since the executions they belong to are not known to end. A context put within a
+ * transaction is forgotten if the transaction does not commit, since it may have been rolled back
+ * along with it.
+ *
+ * @author Anton Belousov
+ * @since 0.0.1-SNAPSHOT
+ */
+public class ExecutionContextFingerprints {
+
+  /**
+   * Default count of executions to keep the fingerprint of the context of.
+   */
+  public static final int DEFAULT_CAPACITY = 1000;
+
+  private final Map<Long, PersistedContext> contexts;
+
+  /**
+   * @param capacity count of executions to keep the fingerprint of the context of
+   */
+  public ExecutionContextFingerprints(int capacity) {
+    this.contexts = Collections.synchronizedMap(
+        new LinkedHashMap<Long, PersistedContext>(16, 0.75f, true) {
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<Long, PersistedContext> eldest) {
+            return size() > capacity;
+          }
+        });
+  }
+
+  /**
+   * @param serializedContext the raw bytes of the serialized context
+   * @return the fingerprint of the context
+   */
+  public static Fingerprint of(byte[] serializedContext) {
+    try {
+      return new Fingerprint(
+          MessageDigest.getInstance("SHA-256").digest(serializedContext),
+          serializedContext.length);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not supported", e);
+    }
+  }
+
+  /**
+   * @param executionId id of the execution
+   * @param fingerprint fingerprint of the context to persist
+   * @return {@code true} if it is the fingerprint of the context persisted last
+   */
+  public boolean isUnchanged(Long executionId, Fingerprint fingerprint) {
+    PersistedContext persisted = contexts.get(executionId);
+    return persisted != null && fingerprint.equals(persisted.fingerprint);
+  }
+
+  /**
+   * @param executionId id of the execution
+   * @return the context persisted last, {@code null} if it is not known
+   */
+  @Nullable
+  public PersistedContext get(Long executionId) {
+    return contexts.get(executionId);
+  }
+
+  /**
+   * @param executionId id of the execution
+   * @param persisted   the context persisted
+   */
+  public void put(Long executionId, PersistedContext persisted) {
+    contexts.put(executionId, persisted);
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCompletion(int status) {
+          if (status != STATUS_COMMITTED) {
+            contexts.remove(executionId, persisted);
+          }
+        }
+      });
+    }
+  }
+
+  /**
+   * @param executionId id of the execution to forget the context persisted last of
+   */
+  public void evict(Long executionId) {
+    contexts.remove(executionId);
+  }
+
+  /**
+   * SHA-256 hash and length of a serialized context.
+   */
+  @EqualsAndHashCode
+  @AllArgsConstructor
+  public static class Fingerprint {
+
+    private final byte[] hash;
+    private final int length;
+
+    /**
+     * @return the version of the context as stored by the database service if it is stored as
+     * serialized, which is the hex form of its hash
+     */
+    public String toVersion() {
+      StringBuilder version = new StringBuilder(hash.length * 2);
+      for (byte b : hash) {
+        version.append(Character.forDigit((b >> 4) & 0xF, 16))
+            .append(Character.forDigit(b & 0xF, 16));
+      }
+      return version.toString();
+    }
+  }
+
+  /**
+   * Context persisted last: the fingerprint of the context as serialized, the version of the
+   * context as stored, which differs once a delta has been merged into it, and the json tree of
+   * the context if deltas are sent for it.
+   */
+  @Getter
+  @AllArgsConstructor
+  public static class PersistedContext {
+
+    private final Fingerprint fingerprint;
+    private final String version;
+    @Nullable
+    private final ObjectNode content;
+  }
+}
@@ -0,0 +1,47 @@
+package com.restbatch.batchservice.dao;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.restbatch.batchservice.dao.ExecutionContextFingerprints.Fingerprint;
+import com.restbatch.batchservice.dto.ExecutionContextDeltaDto;
+import com.restbatch.batchservice.dto.SerializedContextDto;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.lang.Nullable;
+
+/**
+ * Update of the context of a step execution to send along with the step execution itself,
+ * either as the full serialized context or as a delta since the context persisted last. Once
+ * sent, it is to be passed back to
+ * {@link RemoteExecutionContextDao#commitExecutionContextUpdate} with the outcome.
+ *
+ * @author Anton Belousov
+ * @since 0.0.1-SNAPSHOT
+ */
+@Getter
+@AllArgsConstructor(access = AccessLevel.PACKAGE)
+public class ExecutionContextUpdate {
+
+  /**
+   * The full serialized context, {@code null} if a delta is sent instead.
+   */
+  @Nullable
+  private final SerializedContextDto context;
+
+  /**
+   * The delta since the context persisted last, {@code null} if the full context is sent.
+   */
+  @Nullable
+  private final ExecutionContextDeltaDto delta;
+
+  @Getter(AccessLevel.PACKAGE)
+  private final byte[] serializedContext;
+
+  @Nullable
+  @Getter(AccessLevel.PACKAGE)
+  private final Fingerprint fingerprint;
+
+  @Nullable
+  @Getter(AccessLevel.PACKAGE)
+  private final ObjectNode content;
+}
@@ -0,0 +1,105 @@
+package com.restbatch.batchservice.dao;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.util.Assert;
+
+/**
+ * Thread-safe pool of execution ids reserved on the database service ahead of time, so that
+ * saving an execution does not cost a round trip for its id. Ids are handed out in the order
+ * they were reserved. Once the amount of ids left drops to the refill threshold, the next batch is
+ * reserved asynchronously; callers only reserve ids synchronously if the pool runs dry.
+ *
+ * @author Anton Belousov
+ * @since 0.0.1-SNAPSHOT
+ */
+@Slf4j
+public class ExecutionIdPool {
+
+  private final IntFunction<List<Long>> allocator;
+  private final int batchSize;
+  private final int refillThreshold;
+  private final Executor executor;
+
+  private final Queue<Long> ids = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger available = new AtomicInteger();
+  private final AtomicBoolean refilling = new AtomicBoolean();
+
+  /**
+   * @param allocator reserves the given count of ids on the database service
+   * @param batchSize count of ids to reserve ahead of time, {@code 0} to reserve ids only when
+   *                  they are requested
+   * @param executor  executor to refill the pool with
+   */
+  public ExecutionIdPool(IntFunction<List<Long>> allocator, int batchSize, Executor executor) {
+    Assert.notNull(allocator, "Allocator must not be null.");
+    Assert.isTrue(batchSize >= 0, "Batch size must not be negative.");
+    Assert.notNull(executor, "Executor must not be null.");
+    this.allocator = allocator;
+    this.batchSize = batchSize;
+    this.refillThreshold = batchSize / 4;
+    this.executor = executor;
+  }
+
+  /**
+   * @return next reserved id
+   */
+  public Long next() {
+    return next(1).get(0);
+  }
+
+  /**
+   * @param count count of ids to take
+   * @return next {@code count} reserved ids
+   */
+  public List<Long> next(int count) {
+    List<Long> result = new ArrayList<>(count);
+    Long id;
+    while (result.size() < count && (id = ids.poll()) != null) {
+      available.decrementAndGet();
+      result.add(id);
+    }
+
+    if (result.size() < count) {
+      int missing = count - result.size();
+      List<Long> reserved = allocator.apply(missing + batchSize);
+      result.addAll(reserved.subList(0, missing));
+      offer(reserved.subList(missing, reserved.size()));
+    }
+
+    refillIfNeeded();
+    return result;
+  }
+
+  private void refillIfNeeded() {
+    if (batchSize > 0 && available.get() <= refillThreshold
+        && refilling.compareAndSet(false, true)) {
+      try {
+        executor.execute(() -> {
+          try {
+            offer(allocator.apply(batchSize));
+          } catch (RuntimeException e) {
+            log.warn("Cannot reserve execution ids ahead of time: {}", e.getMessage());
+          } finally {
+            refilling.set(false);
+          }
+        });
+      } catch (RuntimeException e) {
+        refilling.set(false);
+        throw e;
+      }
+    }
+  }
+
+  private void offer(List<Long> reserved) {
+    ids.addAll(reserved);
+    available.addAndGet(reserved.size());
+  }
+}
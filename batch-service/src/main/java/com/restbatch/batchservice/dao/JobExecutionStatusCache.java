@@ -0,0 +1,64 @@
+package com.restbatch.batchservice.dao;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.AllArgsConstructor;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.JobExecution;
+
+/**
+ * Status and version of job executions as reported by the database service along with the update
+ * of one of their step executions. Spring Batch checks a job execution for interruption right
+ * after each step execution update, so the reported state is used once to synchronize the job
+ * execution locally, instead of querying the database service again.
+ *
+ * @author Anton Belousov
+ * @since 0.0.1-SNAPSHOT
+ */
+public class JobExecutionStatusCache {
+
+  private final Map<Long, ReportedStatus> statuses = new ConcurrentHashMap<>();
+
+  /**
+   * @param jobExecutionId id of the job execution
+   * @param version        current version of the job execution
+   * @param status         current status of the job execution
+   */
+  public void put(Long jobExecutionId, int version, BatchStatus status) {
+    statuses.put(jobExecutionId, new ReportedStatus(version, status));
+  }
+
+  /**
+   * Synchronize the status and version of the job execution with the state reported last, if
+   * it has not been used yet.
+   *
+   * @param jobExecution the job execution to synchronize
+   * @return {@code true} if the job execution has been synchronized, {@code false} if there is no
+   * reported state and it has to be synchronized with the database service
+   */
+  public boolean synchronizeStatus(JobExecution jobExecution) {
+    ReportedStatus reported = statuses.remove(jobExecution.getId());
+    if (reported == null) {
+      return false;
+    }
+    if (reported.version != jobExecution.getVersion()) {
+      jobExecution.upgradeStatus(reported.status);
+      jobExecution.setVersion(reported.version);
+    }
+    return true;
+  }
+
+  /**
+   * @param jobExecutionId id of the job execution to forget the reported state of
+   */
+  public void evict(Long jobExecutionId) {
+    statuses.remove(jobExecutionId);
+  }
+
+  @AllArgsConstructor
+  private static class ReportedStatus {
+
+    private final int version;
+    private final BatchStatus status;
+  }
+}
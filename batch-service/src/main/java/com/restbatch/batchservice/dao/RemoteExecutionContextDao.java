@@ -1,11 +1,22 @@
 package com.restbatch.batchservice.dao;
 
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.restbatch.batchservice.client.ExecutionContextDaoClient;
+import com.restbatch.batchservice.dao.ExecutionContextFingerprints.Fingerprint;
+import com.restbatch.batchservice.dao.ExecutionContextFingerprints.PersistedContext;
+import com.restbatch.batchservice.dto.ExecutionContextDeltaDto;
 import com.restbatch.batchservice.dto.SerializedContextDto;
 import com.restbatch.batchservice.dto.SerializedContextsDto;
+import com.restbatch.batchservice.dto.UpdateResultDto;
+import feign.Response;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.Collection;
 import java.util.HashMap;
@@ -16,11 +27,23 @@ import org.springframework.batch.core.JobExecution;
 import org.springframework.batch.core.StepExecution;
 import org.springframework.batch.core.repository.ExecutionContextSerializer;
 import org.springframework.batch.core.repository.dao.ExecutionContextDao;
+import org.springframework.batch.core.repository.dao.Jackson2ExecutionContextStringSerializer;
 import org.springframework.batch.item.ExecutionContext;
 import org.springframework.core.serializer.Serializer;
+import org.springframework.lang.Nullable;
 import org.springframework.util.Assert;
 
 /**
+ * Execution context DAO over the database service. Single contexts are read and persisted as the
+ * raw bytes of the serializer output, and read contexts are deserialized while they are received;
+ * the contexts coalesced into other calls are sent as strings within their json. Updates of
+ * contexts which have not changed since they were persisted last are skipped, which is counted
+ * by the {@code execution.context.writes.skipped} metric. Updates of contexts serialized as json
+ * are sent as the entries put and removed since they were persisted last, which are merged into
+ * the stored contexts by the database service; if the stored context is not the one persisted
+ * last, the full context is persisted instead, which is counted by the
+ * {@code execution.context.delta.conflicts} metric.
+ *
  * @author Anton Belousov
  * @since 0.0.1-SNAPSHOT
  */
@@ -33,6 +56,16 @@ public class RemoteExecutionContextDao extends AbstractBatchMetaDataDao
   private ExecutionContextDaoClient client;
   private int shortContextLength = DEFAULT_MAX_VARCHAR_LENGTH;
   private ExecutionContextSerializer serializer;
+  private ExecutionContextFingerprints jobContextFingerprints =
+      new ExecutionContextFingerprints(ExecutionContextFingerprints.DEFAULT_CAPACITY);
+  private ExecutionContextFingerprints stepContextFingerprints =
+      new ExecutionContextFingerprints(ExecutionContextFingerprints.DEFAULT_CAPACITY);
+  private MeterRegistry meterRegistry;
+  private Counter skippedJobContextWrites;
+  private Counter skippedStepContextWrites;
+  private Counter deltaConflicts;
+  private ExecutionContextDeltas deltas =
+      new ExecutionContextDeltas(ExecutionContextDeltas.DEFAULT_MAX_CONTEXT_SIZE);
 
   /**
    * Setter for {@link Serializer} implementation
@@ -57,13 +90,49 @@ public class RemoteExecutionContextDao extends AbstractBatchMetaDataDao
     this.shortContextLength = shortContextLength;
   }
 
+  /**
+   * The count of executions whose context fingerprint is kept, so that updates of their contexts
+   * are skipped while the contexts have not changed since they were persisted last. Set to
+   * {@code 0} to always persist the contexts. Defaults to
+   * {@link ExecutionContextFingerprints#DEFAULT_CAPACITY}.
+   *
+   * @param fingerprintCapacity count of executions to keep the context fingerprint of
+   */
+  public void setFingerprintCapacity(int fingerprintCapacity) {
+    this.jobContextFingerprints = fingerprintCapacity > 0
+        ? new ExecutionContextFingerprints(fingerprintCapacity) : null;
+    this.stepContextFingerprints = fingerprintCapacity > 0
+        ? new ExecutionContextFingerprints(fingerprintCapacity) : null;
+  }
+
+  /**
+   * The maximum size of the serialized contexts to send deltas for, instead of the full contexts,
+   * when the contexts persisted last are known. Deltas are only sent for contexts serialized as
+   * json objects. Set to {@code 0} to always send the full contexts. Defaults to
+   * {@link ExecutionContextDeltas#DEFAULT_MAX_CONTEXT_SIZE}.
+   *
+   * @param deltaMaxContextSize maximum size of the serialized contexts to send deltas for
+   */
+  public void setDeltaMaxContextSize(int deltaMaxContextSize) {
+    this.deltas = deltaMaxContextSize > 0 ? new ExecutionContextDeltas(deltaMaxContextSize) : null;
+  }
+
+  /**
+   * The registry to count the skipped context writes and the delta conflicts in. By default, they
+   * are not counted.
+   *
+   * @param meterRegistry the registry of the counters
+   */
+  public void setMeterRegistry(MeterRegistry meterRegistry) {
+    this.meterRegistry = meterRegistry;
+  }
+
   @Override
   public ExecutionContext getExecutionContext(JobExecution jobExecution) {
     Long executionId = jobExecution.getId();
     Assert.notNull(executionId, "ExecutionId must not be null.");
 
-    ExecutionContext ctx = client.getJobExecutionContext(executionId);
-    return ctx.containsKey("_CTX") ? deserializeContext(ctx.getString("_CTX")) : ctx;
+    return deserializeContext(client.getJobExecutionContextBytes(executionId));
   }
 
   @Override
@@ -71,8 +140,7 @@ public class RemoteExecutionContextDao extends AbstractBatchMetaDataDao
     Long executionId = stepExecution.getId();
     Assert.notNull(executionId, "ExecutionId must not be null.");
 
-    ExecutionContext ctx = client.getStepExecutionContext(executionId);
-    return ctx.containsKey("_CTX") ? deserializeContext(ctx.getString("_CTX")) : ctx;
+    return deserializeContext(client.getStepExecutionContextBytes(executionId));
   }
 
   @Override
@@ -82,9 +150,8 @@ public class RemoteExecutionContextDao extends AbstractBatchMetaDataDao
     Assert.notNull(executionId, "ExecutionId must not be null.");
     Assert.notNull(executionContext, "The ExecutionContext must not be null.");
 
-    String serializedContext = serializeContext(executionContext);
-
-    persistSerializedContext(executionId, serializedContext, "updateJobExecutionContext");
+    updateContext(executionId, executionContext, "updateJobExecutionContext",
+        jobContextFingerprints, skippedJobContextWrites);
   }
 
   @Override
@@ -97,12 +164,98 @@ public class RemoteExecutionContextDao extends AbstractBatchMetaDataDao
       Assert.notNull(executionId, "ExecutionId must not be null.");
       Assert.notNull(executionContext, "The ExecutionContext must not be null.");
 
-      String serializedContext = serializeContext(executionContext);
+      updateContext(executionId, executionContext, "updateStepExecutionContext",
+          stepContextFingerprints, skippedStepContextWrites);
+    }
+  }
+
+  /**
+   * Serializes the context of the given step execution into an update without sending it, so that
+   * it can be persisted together with the step execution itself in a single call. Once sent, the
+   * update must be passed to {@link #commitExecutionContextUpdate}, or the step execution to
+   * {@link #evictExecutionContext(StepExecution)} if sending it has failed.
+   *
+   * @param stepExecution the step execution whose context is to be updated
+   * @return step execution context update, or {@code null} if the context has not changed since
+   * it was persisted last
+   */
+  @Nullable
+  public ExecutionContextUpdate createExecutionContextUpdate(final StepExecution stepExecution) {
+    synchronized (stepExecution) {
+      Long executionId = stepExecution.getId();
+      ExecutionContext executionContext = stepExecution.getExecutionContext();
+      Assert.notNull(executionId, "ExecutionId must not be null.");
+      Assert.notNull(executionContext, "The ExecutionContext must not be null.");
+
+      ExecutionContextUpdate update = createUpdate(executionId,
+          serializeContextBytes(executionContext), "updateStepExecutionContext",
+          stepContextFingerprints, skippedStepContextWrites);
+      if (update == null || update.getDelta() != null) {
+        return update;
+      }
+      return new ExecutionContextUpdate(
+          createSerializedContextDto(executionId,
+              new String(update.getSerializedContext(), StandardCharsets.ISO_8859_1),
+              "updateStepExecutionContext"),
+          null, update.getSerializedContext(), update.getFingerprint(), update.getContent());
+    }
+  }
 
-      persistSerializedContext(executionId, serializedContext, "updateStepExecutionContext");
+  /**
+   * Record the update of the context of the given step execution as sent. If it has been sent as
+   * a delta which could not be merged into the stored context, the full context is persisted
+   * instead, in a call of its own: the step execution has already been committed without its
+   * context by then. Should this call fail, the step execution stays committed with the context
+   * stored before, and the failure is thrown to the caller.
+   *
+   * @param stepExecution  the step execution whose context has been updated
+   * @param update         the update sent
+   * @param contextVersion the version of the context as stored after a delta has been merged,
+   *                       {@code null} if it has not been merged
+   */
+  public void commitExecutionContextUpdate(final StepExecution stepExecution,
+      ExecutionContextUpdate update, @Nullable String contextVersion) {
+    synchronized (stepExecution) {
+      Long executionId = stepExecution.getId();
+      if (update.getDelta() != null && contextVersion == null) {
+        deltaConflicts.increment();
+        client.persistContextBytes(executionId, "updateStepExecutionContext",
+            shortContextLength, getClobTypeToUse(), update.getSerializedContext());
+      }
+      recordUpdate(executionId, update,
+          update.getDelta() != null ? contextVersion : null, stepContextFingerprints);
     }
   }
 
+  /**
+   * Forget the context of the given step execution as persisted last, so that its next update is
+   * persisted whether it has changed or not.
+   *
+   * @param stepExecution the step execution whose context update may not have been persisted
+   */
+  public void evictExecutionContext(final StepExecution stepExecution) {
+    if (stepContextFingerprints != null) {
+      stepContextFingerprints.evict(stepExecution.getId());
+    }
+  }
+
+  /**
+   * Serializes the context of the given, not yet saved, job execution into an insert without
+   * sending it, so that it can be persisted together with the job execution itself in a single
+   * call. The execution id is assigned once the job execution is saved.
+   *
+   * @param jobExecution the job execution whose context is to be inserted
+   * @return serialized job execution context insert
+   */
+  public SerializedContextDto createExecutionContextInsert(final JobExecution jobExecution) {
+    ExecutionContext executionContext = jobExecution.getExecutionContext();
+    Assert.notNull(executionContext, "The ExecutionContext must not be null.");
+
+    String serializedContext = serializeContext(executionContext);
+
+    return createSerializedContextDto(null, serializedContext, "insertJobExecutionContext");
+  }
+
   @Override
   public void saveExecutionContext(JobExecution jobExecution) {
     Long executionId = jobExecution.getId();
@@ -110,9 +263,8 @@ public class RemoteExecutionContextDao extends AbstractBatchMetaDataDao
     Assert.notNull(executionId, "ExecutionId must not be null.");
     Assert.notNull(executionContext, "The ExecutionContext must not be null.");
 
-    String serializedContext = serializeContext(executionContext);
-
-    persistSerializedContext(executionId, serializedContext, "insertJobExecutionContext");
+    insertContext(executionId, executionContext, "insertJobExecutionContext",
+        jobContextFingerprints);
   }
 
   @Override
@@ -122,33 +274,152 @@ public class RemoteExecutionContextDao extends AbstractBatchMetaDataDao
     Assert.notNull(executionId, "ExecutionId must not be null.");
     Assert.notNull(executionContext, "The ExecutionContext must not be null.");
 
-    String serializedContext = serializeContext(executionContext);
-
-    persistSerializedContext(executionId, serializedContext, "insertStepExecutionContext");
+    insertContext(executionId, executionContext, "insertStepExecutionContext",
+        stepContextFingerprints);
   }
 
   @Override
   public void saveExecutionContexts(Collection<StepExecution> stepExecutions) {
     Assert.notNull(stepExecutions, "Attempt to save an null collection of step executions");
     Map<Long, String> serializedContexts = new HashMap<>(stepExecutions.size());
+    Map<Long, byte[]> rawContexts = new HashMap<>(stepExecutions.size());
     for (StepExecution stepExecution : stepExecutions) {
       Long executionId = stepExecution.getId();
       ExecutionContext executionContext = stepExecution.getExecutionContext();
       Assert.notNull(executionId, "ExecutionId must not be null.");
       Assert.notNull(executionContext, "The ExecutionContext must not be null.");
-      serializedContexts.put(executionId, serializeContext(executionContext));
+      byte[] serializedContext = serializeContextBytes(executionContext);
+      serializedContexts.put(executionId,
+          new String(serializedContext, StandardCharsets.ISO_8859_1));
+      rawContexts.put(executionId, serializedContext);
     }
     persistSerializedContexts(serializedContexts, "insertStepExecutionContext");
+    rawContexts.forEach((executionId, serializedContext) ->
+        recordPersisted(executionId, serializedContext, stepContextFingerprints));
   }
 
   @Override
   public void afterPropertiesSet() {
     Assert.state(client != null, "ExecutionContextDaoClient is required");
     Assert.state(serializer != null, "ExecutionContextSerializer is required");
+    // A composite registry without registries counts nothing
+    MeterRegistry registry = meterRegistry != null ? meterRegistry : new CompositeMeterRegistry();
+    skippedJobContextWrites =
+        registry.counter("execution.context.writes.skipped", "context", "job");
+    skippedStepContextWrites =
+        registry.counter("execution.context.writes.skipped", "context", "step");
+    deltaConflicts = registry.counter("execution.context.delta.conflicts");
   }
 
-  private void persistSerializedContext(final Long executionId, String serializedContext,
-      String sqlType) {
+  private void insertContext(final Long executionId, ExecutionContext executionContext,
+      String sqlType, @Nullable ExecutionContextFingerprints fingerprints) {
+    byte[] serializedContext = serializeContextBytes(executionContext);
+    client.persistContextBytes(executionId, sqlType, shortContextLength, getClobTypeToUse(),
+        serializedContext);
+    recordPersisted(executionId, serializedContext, fingerprints);
+  }
+
+  private void updateContext(final Long executionId, ExecutionContext executionContext,
+      String sqlType, @Nullable ExecutionContextFingerprints fingerprints, Counter skipped) {
+    ExecutionContextUpdate update = createUpdate(executionId,
+        serializeContextBytes(executionContext), sqlType, fingerprints, skipped);
+    if (update == null) {
+      return;
+    }
+
+    if (update.getDelta() != null) {
+      UpdateResultDto result = client.applyContextDelta(update.getDelta());
+      if (result != null && result.getStatus() == UpdateResultDto.Status.UPDATED) {
+        recordUpdate(executionId, update, result.getContextVersion(), fingerprints);
+        return;
+      }
+      // The stored context is not the one persisted last, so the full context is persisted
+      deltaConflicts.increment();
+    }
+    client.persistContextBytes(executionId, sqlType, shortContextLength, getClobTypeToUse(),
+        update.getSerializedContext());
+    recordUpdate(executionId, update, null, fingerprints);
+  }
+
+  /**
+   * @param fingerprints fingerprints of the contexts persisted last, {@code null} if they are not
+   *                     kept
+   * @param skipped      counter of the skipped writes
+   * @return the update of the context, as a delta if the context persisted last is known and the
+   * delta is shorter, or {@code null} if the context has not changed since it was persisted last
+   */
+  @Nullable
+  private ExecutionContextUpdate createUpdate(final Long executionId, byte[] serializedContext,
+      String sqlType, @Nullable ExecutionContextFingerprints fingerprints, Counter skipped) {
+    if (fingerprints == null) {
+      return new ExecutionContextUpdate(null, null, serializedContext, null, null);
+    }
+    Fingerprint fingerprint = ExecutionContextFingerprints.of(serializedContext);
+    if (fingerprints.isUnchanged(executionId, fingerprint)) {
+      skipped.increment();
+      return null;
+    }
+
+    ObjectNode content = parseContent(serializedContext);
+    PersistedContext persisted = fingerprints.get(executionId);
+    if (content == null || persisted == null || persisted.getContent() == null) {
+      return new ExecutionContextUpdate(null, null, serializedContext, fingerprint, content);
+    }
+    ExecutionContextDeltaDto delta = deltas.diff(persisted.getContent(), content,
+        serializedContext.length);
+    if (delta == null) {
+      return new ExecutionContextUpdate(null, null, serializedContext, fingerprint, content);
+    }
+    if (ExecutionContextDeltas.isEmpty(delta)) {
+      // Serialized in another order only, so the stored context is still up to date
+      fingerprints.put(executionId,
+          new PersistedContext(fingerprint, persisted.getVersion(), content));
+      skipped.increment();
+      return null;
+    }
+
+    delta.setExecutionId(executionId);
+    delta.setSqlType(sqlType);
+    delta.setBaseVersion(persisted.getVersion());
+    delta.setShortContextLength(shortContextLength);
+    delta.setClobTypeToUse(getClobTypeToUse());
+    return new ExecutionContextUpdate(null, delta, serializedContext, fingerprint, content);
+  }
+
+  /**
+   * @param contextVersion the version of the context as stored after the delta of the update has
+   *                       been merged, {@code null} if the full context has been persisted
+   */
+  private void recordUpdate(Long executionId, ExecutionContextUpdate update,
+      @Nullable String contextVersion, @Nullable ExecutionContextFingerprints fingerprints) {
+    if (fingerprints == null || update.getFingerprint() == null) {
+      return;
+    }
+    fingerprints.put(executionId, new PersistedContext(update.getFingerprint(),
+        contextVersion != null ? contextVersion : update.getFingerprint().toVersion(),
+        update.getContent()));
+  }
+
+  @Nullable
+  private ObjectNode parseContent(byte[] serializedContext) {
+    if (deltas == null || !(serializer instanceof Jackson2ExecutionContextStringSerializer)) {
+      return null;
+    }
+    return deltas.parse(serializedContext);
+  }
+
+  private void recordPersisted(Long executionId, byte[] serializedContext,
+      @Nullable ExecutionContextFingerprints fingerprints) {
+    if (fingerprints == null) {
+      return;
+    }
+    Fingerprint fingerprint = ExecutionContextFingerprints.of(serializedContext);
+    fingerprints.put(executionId, new PersistedContext(fingerprint, fingerprint.toVersion(),
+        parseContent(serializedContext)));
+  }
+
+  private SerializedContextDto createSerializedContextDto(final Long executionId,
+      String serializedContext, String sqlType) {
     final String shortContext;
     final String longContext;
     if (serializedContext.length() > shortContextLength) {
@@ -161,14 +432,13 @@ public class RemoteExecutionContextDao extends AbstractBatchMetaDataDao
       longContext = null;
     }
 
-    client.persistSerializedContext(
-        SerializedContextDto.builder()
-            .sqlType(sqlType)
-            .shortContext(shortContext)
-            .longContext(longContext)
-            .clobTypeToUse(getClobTypeToUse())
-            .executionId(executionId)
-            .build());
+    return SerializedContextDto.builder()
+        .sqlType(sqlType)
+        .shortContext(shortContext)
+        .longContext(longContext)
+        .clobTypeToUse(getClobTypeToUse())
+        .executionId(executionId)
+        .build();
   }
 
   private void persistSerializedContexts(final Map<Long, String> serializedContexts,
@@ -183,30 +453,79 @@ public class RemoteExecutionContextDao extends AbstractBatchMetaDataDao
   }
 
   private String serializeContext(ExecutionContext ctx) {
+    return new String(serializeContextBytes(ctx), StandardCharsets.ISO_8859_1);
+  }
+
+  private byte[] serializeContextBytes(ExecutionContext ctx) {
     Map<String, Object> m = new HashMap<>();
     for (Entry<String, Object> me : ctx.entrySet()) {
       m.put(me.getKey(), me.getValue());
     }
 
-    ByteArrayOutputStream out = new ByteArrayOutputStream();
-    String results;
-
     try {
+      if (serializer instanceof CompactExecutionContextSerializer) {
+        // Serialized into a single buffer, which is not to be copied through a stream
+        return ((CompactExecutionContextSerializer) serializer).serialize(m);
+      }
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
       serializer.serialize(m, out);
-      results = out.toString(StandardCharsets.ISO_8859_1);
+      return out.toByteArray();
     } catch (IOException ioe) {
       throw new IllegalArgumentException("Could not serialize the execution context", ioe);
     }
+  }
 
-    return results;
+  /**
+   * Deserialize an execution context as stored by the database service.
+   *
+   * @param serializedCtx the serialized context, {@code null} if none is stored
+   * @return the execution context, empty if none is stored
+   */
+  public ExecutionContext deserializeContext(String serializedCtx) {
+    if (serializedCtx == null) {
+      return new ExecutionContext();
+    }
+    return deserializeContext(
+        new ByteArrayInputStream(serializedCtx.getBytes(StandardCharsets.ISO_8859_1)));
   }
 
-  private ExecutionContext deserializeContext(String serializedCtx) {
+  /**
+   * Deserialize an execution context from the body of a response of the database service.
+   *
+   * @param response the unbuffered response, which is closed once read
+   * @return the execution context, empty if none is stored
+   */
+  private ExecutionContext deserializeContext(Response response) {
+    try (response) {
+      if (response.status() < 200 || response.status() >= 300) {
+        throw new IllegalStateException(
+            "Unexpected response status " + response.status() + " of " + response.request().url());
+      }
+      if (response.body() == null) {
+        return new ExecutionContext();
+      }
+      return deserializeContext(response.body().asInputStream());
+    } catch (IOException ioe) {
+      throw new IllegalArgumentException("Unable to deserialize the execution context", ioe);
+    }
+  }
+
+  /**
+   * Deserialize an execution context from the raw bytes of the serializer output.
+   *
+   * @param serializedCtx the serialized context, empty if none is stored
+   * @return the execution context, empty if none is stored
+   */
+  private ExecutionContext deserializeContext(InputStream serializedCtx) {
     ExecutionContext executionContext = new ExecutionContext();
     Map<String, Object> map;
     try {
-      ByteArrayInputStream in = new ByteArrayInputStream(
-          serializedCtx.getBytes(StandardCharsets.ISO_8859_1));
+      PushbackInputStream in = new PushbackInputStream(serializedCtx);
+      int first = in.read();
+      if (first == -1) {
+        return executionContext;
+      }
+      in.unread(first);
       map = serializer.deserialize(in);
     } catch (IOException ioe) {
       throw new IllegalArgumentException("Unable to deserialize the execution context", ioe);
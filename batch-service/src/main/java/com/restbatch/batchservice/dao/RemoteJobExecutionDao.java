@@ -1,13 +1,23 @@
 package com.restbatch.batchservice.dao;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.restbatch.batchservice.client.JobExecutionDaoClient;
+import com.restbatch.batchservice.client.JobExecutionStatusSubscriber;
+import com.restbatch.batchservice.client.NdjsonStreams;
+import com.restbatch.batchservice.dto.JobExecutionGraphDto;
+import com.restbatch.batchservice.dto.JobExecutionLaunchDto;
+import com.restbatch.batchservice.dto.SerializedContextDto;
+import com.restbatch.batchservice.dto.UpdateResultDto;
 import com.restbatch.batchservice.dto.holder.JobExecutionHolder;
 import com.restbatch.batchservice.dto.holder.JobExecutionParamHolder;
 import java.sql.Timestamp;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.batch.core.BatchStatus;
@@ -34,6 +44,10 @@ public class RemoteJobExecutionDao extends AbstractBatchMetaDataDao
   @Setter
   private JobExecutionDaoClient client;
   private int exitMessageLength = DEFAULT_EXIT_MESSAGE_LENGTH;
+  private ExecutionIdPool idPool;
+  private JobExecutionStatusCache jobExecutionStatusCache;
+  private JobExecutionStatusSubscriber statusSubscriber;
+  private ObjectReader jobExecutionReader;
 
   /**
    * Public setter for the exit message length in database. Do not set this if you haven't modified
@@ -45,6 +59,49 @@ public class RemoteJobExecutionDao extends AbstractBatchMetaDataDao
     this.exitMessageLength = exitMessageLength;
   }
 
+  /**
+   * Public setter for the pool of job execution ids reserved ahead of time. If not set, the id is
+   * assigned by the database service when the job execution is saved. Only use a pool if a single
+   * node launches the jobs, as the latest job execution is determined by the highest id.
+   *
+   * @param idPool the pool of job execution ids
+   */
+  public void setIdPool(ExecutionIdPool idPool) {
+    this.idPool = idPool;
+  }
+
+  /**
+   * Public setter for the cache of job execution statuses reported along with step execution
+   * updates. If set, a job execution is synchronized from it when possible instead of querying the
+   * database service.
+   *
+   * @param jobExecutionStatusCache the cache of job execution statuses
+   */
+  public void setJobExecutionStatusCache(JobExecutionStatusCache jobExecutionStatusCache) {
+    this.jobExecutionStatusCache = jobExecutionStatusCache;
+  }
+
+  /**
+   * Public setter for the subscriber to the status stream of the database service. If set, the
+   * job executions saved by this DAO are followed until they stop running, and synchronized from
+   * the stream instead of querying the database service.
+   *
+   * @param statusSubscriber the job execution status subscriber
+   */
+  public void setStatusSubscriber(JobExecutionStatusSubscriber statusSubscriber) {
+    this.statusSubscriber = statusSubscriber;
+  }
+
+  /**
+   * Public setter for the object mapper to decode streamed job executions with. It must be able to
+   * deserialize them, so it should be the one of the Feign clients. Required for streaming only.
+   *
+   * @param objectMapper the object mapper
+   */
+  public void setObjectMapper(ObjectMapper objectMapper) {
+    this.jobExecutionReader = objectMapper.readerFor(JobExecution.class);
+  }
+
   @Override
   public void afterPropertiesSet() {
     Assert.notNull(client, "JobExecutionDaoClient must not be null.");
@@ -61,6 +118,25 @@ public class RemoteJobExecutionDao extends AbstractBatchMetaDataDao
         .collect(Collectors.toList());
   }
 
+  /**
+   * Stream the job executions of the job instance, most recent first, decoding them one at a time
+   * while the stream is consumed instead of loading the whole list at once. The stream must be
+   * closed after use.
+   *
+   * @param job the job instance
+   * @return the job executions of the job instance
+   */
+  public Stream<JobExecution> streamJobExecutions(final JobInstance job) {
+
+    Assert.notNull(job, "Job cannot be null.");
+    Assert.notNull(job.getId(), "Job Id cannot be null.");
+    Assert.state(jobExecutionReader != null, "ObjectMapper must be set to stream job executions.");
+
+    return NdjsonStreams.<JobExecution>stream(client.streamJobExecutions(job.getInstanceId()),
+            jobExecutionReader)
+        .peek(execution -> execution.setJobInstance(job));
+  }
+
   /**
    * SQL implementation using Sequences via the Spring incrementer abstraction. Once a new id has
    * been obtained, the JobExecution is saved via a SQL INSERT statement.
@@ -76,7 +152,48 @@ public class RemoteJobExecutionDao extends AbstractBatchMetaDataDao
 
     jobExecution.incrementVersion();
 
-    JobExecutionHolder holder = JobExecutionHolder.builder()
+    Long jobExecId = client.saveJobExecution(buildJobExecutionInsert(jobExecution));
+
+    jobExecution.setId(jobExecId);
+    insertJobParameters(jobExecId, jobExecution.getJobParameters());
+    subscribeStatus(jobExecution);
+  }
+
+  /**
+   * Save a new JobExecution together with its parameters and the given execution context in a
+   * single call, which the database service performs in one transaction.
+   *
+   * @param jobExecution     the job execution to save
+   * @param executionContext serialized insert of the job execution context
+   */
+  public void launchJobExecution(JobExecution jobExecution,
+      SerializedContextDto executionContext) {
+
+    validateJobExecution(jobExecution);
+    Assert.notNull(executionContext, "The serialized ExecutionContext must not be null.");
+
+    jobExecution.incrementVersion();
+
+    Long jobExecId = client.launchJobExecution(
+        JobExecutionLaunchDto.builder()
+            .jobExecution(buildJobExecutionInsert(jobExecution))
+            .jobParameters(buildParameters(null, jobExecution.getJobParameters()))
+            .executionContext(executionContext)
+            .build());
+
+    jobExecution.setId(jobExecId);
+    subscribeStatus(jobExecution);
+  }
+
+  private void subscribeStatus(JobExecution jobExecution) {
+    if (statusSubscriber != null) {
+      statusSubscriber.subscribe(jobExecution.getId());
+    }
+  }
+
+  private JobExecutionHolder buildJobExecutionInsert(JobExecution jobExecution) {
+    return JobExecutionHolder.builder()
+        .id(idPool != null ? idPool.next() : null)
         .jobId(jobExecution.getJobId())
         .startTime(jobExecution.getStartTime())
         .endTime(jobExecution.getEndTime())
@@ -88,11 +205,6 @@ public class RemoteJobExecutionDao extends AbstractBatchMetaDataDao
         .lastUpdated(jobExecution.getLastUpdated())
         .jobConfigurationName(jobExecution.getJobConfigurationName())
         .build();
-
-    Long jobExecId = client.saveJobExecution(holder);
-
-    jobExecution.setId(jobExecId);
-    insertJobParameters(jobExecId, jobExecution.getJobParameters());
   }
 
   /**
@@ -108,8 +220,9 @@ public class RemoteJobExecutionDao extends AbstractBatchMetaDataDao
 
   /**
    * Update given JobExecution using a SQL UPDATE statement. The JobExecution is first checked to
-   * ensure all fields are not null, and that it has an ID. The database is then queried to ensure
-   * that the ID exists, which ensures that it is valid.
+   * ensure all fields are not null, and that it has an ID. The database service reports whether the
+   * ID exists and the current version along with the outcome of the update, so that an update is a
+   * single call.
    *
    * @see org.springframework.batch.core.repository.dao.JobExecutionDao#updateJobExecution(JobExecution)
    */
@@ -127,45 +240,58 @@ public class RemoteJobExecutionDao extends AbstractBatchMetaDataDao
     synchronized (jobExecution) {
       int version = jobExecution.getVersion() + 1;
 
-      String exitDescription = jobExecution.getExitStatus().getExitDescription();
-      if (exitDescription != null && exitDescription.length() > exitMessageLength) {
-        exitDescription = exitDescription.substring(0, exitMessageLength);
-        if (log.isDebugEnabled()) {
-          log.debug("Truncating long message before update of JobExecution: " + jobExecution);
+      try {
+        String exitDescription = jobExecution.getExitStatus().getExitDescription();
+        if (exitDescription != null && exitDescription.length() > exitMessageLength) {
+          exitDescription = exitDescription.substring(0, exitMessageLength);
+          if (log.isDebugEnabled()) {
+            log.debug("Truncating long message before update of JobExecution: " + jobExecution);
+          }
         }
-      }
 
-      // Check if given JobExecution's id already exists, if none is found
-      // it is invalid and an exception should be thrown.
-      if (client.countJobExecutions(jobExecution.getId()) != 1) {
-        throw new NoSuchObjectException(
-            "Invalid JobExecution, ID " + jobExecution.getId() + " not found.");
-      }
+        JobExecutionHolder holder = JobExecutionHolder.builder()
+            .startTime(jobExecution.getStartTime())
+            .endTime(jobExecution.getEndTime())
+            .status(jobExecution.getStatus().toString())
+            .exitCode(jobExecution.getExitStatus().getExitCode())
+            .exitDescription(exitDescription)
+            .updateVersion(version)
+            .createTime(jobExecution.getCreateTime())
+            .lastUpdated(jobExecution.getLastUpdated())
+            .id(jobExecution.getId())
+            .version(jobExecution.getVersion())
+            .build();
+
+        UpdateResultDto result = client.updateJobExecution(holder);
+
+        switch (result.getStatus()) {
+          case UPDATED:
+            break;
+          case NOT_FOUND:
+            // If given JobExecution's id does not exist, it is invalid and an
+            // exception should be thrown.
+            throw new NoSuchObjectException(
+                "Invalid JobExecution, ID " + jobExecution.getId() + " not found.");
+          case VERSION_CONFLICT:
+            // Avoid concurrent modifications...
+            throw new OptimisticLockingFailureException("Attempt to update job execution id="
+                + jobExecution.getId() + " with wrong version (" + jobExecution.getVersion()
+                + "), where current version is " + result.getCurrentVersion());
+          default:
+            throw new IllegalStateException("Unknown update status " + result.getStatus());
+        }
 
-      JobExecutionHolder holder = JobExecutionHolder.builder()
-          .startTime(jobExecution.getStartTime())
-          .endTime(jobExecution.getEndTime())
-          .status(jobExecution.getStatus().toString())
-          .exitCode(jobExecution.getExitStatus().getExitCode())
-          .exitDescription(exitDescription)
-          .updateVersion(version)
-          .createTime(jobExecution.getCreateTime())
-          .lastUpdated(jobExecution.getLastUpdated())
-          .id(jobExecution.getId())
-          .version(jobExecution.getVersion())
-          .build();
-
-      int count = client.updateJobExecution(holder);
-
-      // Avoid concurrent modifications...
-      if (count == 0) {
-        int currentVersion = client.getJobExecutionVersion(jobExecution.getId());
-        throw new OptimisticLockingFailureException("Attempt to update job execution id="
-            + jobExecution.getId() + " with wrong version (" + jobExecution.getVersion()
-            + "), where current version is " + currentVersion);
+        jobExecution.incrementVersion();
+        if (jobExecutionStatusCache != null) {
+          jobExecutionStatusCache.evict(jobExecution.getId());
+        }
+      } finally {
+        // Also when the update fails, so that a crashed or abandoned execution does not keep
+        // its stream open
+        if (statusSubscriber != null && !jobExecution.getStatus().isRunning()) {
+          statusSubscriber.unsubscribe(jobExecution.getId());
+        }
       }
-
-      jobExecution.incrementVersion();
     }
   }
 
@@ -198,6 +324,18 @@ public class RemoteJobExecutionDao extends AbstractBatchMetaDataDao
     return client.getJobExecution(executionId);
   }
 
+  /**
+   * Retrieve the job execution together with its job instance, execution context, step executions
+   * and their execution contexts in a single call.
+   *
+   * @param executionId the job execution id
+   * @return the job execution graph, or {@code null} if there is no job execution with the given id
+   */
+  @Nullable
+  public JobExecutionGraphDto getJobExecutionGraph(Long executionId) {
+    return client.getJobExecutionGraph(executionId);
+  }
+
   /*
    * (non-Javadoc)
    *
@@ -211,6 +349,15 @@ public class RemoteJobExecutionDao extends AbstractBatchMetaDataDao
 
   @Override
   public void synchronizeStatus(JobExecution jobExecution) {
+    // The status reported along with the last step execution update makes a call unnecessary
+    if (jobExecutionStatusCache != null
+        && jobExecutionStatusCache.synchronizeStatus(jobExecution)) {
+      return;
+    }
+    if (statusSubscriber != null && statusSubscriber.synchronizeStatus(jobExecution)) {
+      return;
+    }
+
     int currentVersion = client.getJobExecutionVersion(jobExecution.getId());
 
     if (currentVersion != jobExecution.getVersion()) {
@@ -221,23 +368,40 @@ public class RemoteJobExecutionDao extends AbstractBatchMetaDataDao
   }
 
   /**
-   * Convenience method that inserts all parameters from the provided JobParameters.
+   * Convenience method that inserts all parameters from the provided JobParameters in a single
+   * call.
    */
   private void insertJobParameters(Long executionId, JobParameters jobParameters) {
 
+    if (jobParameters.isEmpty()) {
+      return;
+    }
+
+    client.insertJobParameters(buildParameters(executionId, jobParameters));
+  }
+
+  /**
+   * Convenience method that builds the records of the JobParameters table for all parameters from
+   * the provided JobParameters.
+   */
+  private List<JobExecutionParamHolder> buildParameters(Long executionId,
+      JobParameters jobParameters) {
+
+    List<JobExecutionParamHolder> holders = new ArrayList<>(jobParameters.getParameters().size());
     for (Entry<String, JobParameter> entry : jobParameters.getParameters()
         .entrySet()) {
       JobParameter jobParameter = entry.getValue();
-      insertParameter(executionId, jobParameter.getType(), entry.getKey(),
-          jobParameter.getValue(), jobParameter.isIdentifying());
+      holders.add(buildParameter(executionId, jobParameter.getType(), entry.getKey(),
+          jobParameter.getValue(), jobParameter.isIdentifying()));
     }
+    return holders;
   }
 
   /**
-   * Convenience method that inserts an individual records into the JobParameters table.
+   * Convenience method that builds an individual record of the JobParameters table.
    */
-  private void insertParameter(Long executionId, ParameterType type, String key,
-      Object value, boolean identifying) {
+  private JobExecutionParamHolder buildParameter(Long executionId, ParameterType type,
+      String key, Object value, boolean identifying) {
 
     String identifyingFlag = identifying ? "Y" : "N";
 
@@ -258,6 +422,6 @@ public class RemoteJobExecutionDao extends AbstractBatchMetaDataDao
       builder.dateValue((Timestamp) value);
     }
 
-    client.createJobParameters(builder.build());
+    return builder.build();
   }
 }
@@ -1,7 +1,13 @@
 package com.restbatch.batchservice.dao;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.restbatch.batchservice.client.JobInstanceDaoClient;
+import com.restbatch.batchservice.client.NdjsonStreams;
+import com.restbatch.batchservice.dto.JobInstancePageDto;
+import com.restbatch.batchservice.dto.JobInstanceResultDto;
 import java.util.List;
+import java.util.stream.Stream;
 import lombok.Setter;
 import org.springframework.batch.core.DefaultJobKeyGenerator;
 import org.springframework.batch.core.JobExecution;
@@ -25,11 +31,21 @@ public class RemoteJobInstanceDao extends AbstractBatchMetaDataDao
 
   @Setter
   private JobInstanceDaoClient client;
+  private ObjectReader jobInstanceReader;
 
   /**
-   * In this JDBC implementation a job id is obtained by asking the jobIncrementer (which is likely
-   * a sequence) for the next long value, and then passing the id and parameter values into an
-   * INSERT statement.
+   * Public setter for the object mapper to decode streamed job instances with. It must be able to
+   * deserialize them, so it should be the one of the Feign clients. Required for streaming only.
+   *
+   * @param objectMapper the object mapper
+   */
+  public void setObjectMapper(ObjectMapper objectMapper) {
+    this.jobInstanceReader = objectMapper.readerFor(JobInstance.class);
+  }
+
+  /**
+   * The existence check and the creation of the job instance are performed by the database
+   * service in a single call, which also resolves concurrent creations of the same instance.
    *
    * @throws IllegalArgumentException if any {@link JobParameters} fields are null.
    * @see org.springframework.batch.core.repository.dao.JobInstanceDao#createJobInstance(String,
@@ -38,21 +54,29 @@ public class RemoteJobInstanceDao extends AbstractBatchMetaDataDao
   @Override
   public JobInstance createJobInstance(String jobName, JobParameters jobParameters) {
 
-    Assert.notNull(jobName, "Job name must not be null.");
-    Assert.notNull(jobParameters, "JobParameters must not be null.");
+    JobInstanceResultDto result = getOrCreateJobInstance(jobName, jobParameters);
 
-    Assert.state(getJobInstance(jobName, jobParameters) == null,
-        "JobInstance must not already exist");
+    Assert.state(result.isCreated(), "JobInstance must not already exist");
 
-    JobInstance jobInstance = new JobInstance(0L, jobName);
-    jobInstance.incrementVersion();
+    return result.getJobInstance();
+  }
 
-    Object[] parameters = new Object[]{jobName, jobKeyGenerator.generateKey(jobParameters),
-        jobInstance.getVersion()};
-    Long jobId = client.createJobInstance(parameters);
-    jobInstance.setId(jobId);
+  /**
+   * Find the job instance that matches the given name and parameters, creating it if there is
+   * none, in a single call.
+   *
+   * @param jobName       the name of the job
+   * @param jobParameters the runtime parameters identifying the instance
+   * @return the job instance and whether it has been created by this call
+   * @throws IllegalArgumentException if any {@link JobParameters} fields are null.
+   */
+  public JobInstanceResultDto getOrCreateJobInstance(String jobName,
+      JobParameters jobParameters) {
+
+    Assert.notNull(jobName, "Job name must not be null.");
+    Assert.notNull(jobParameters, "JobParameters must not be null.");
 
-    return jobInstance;
+    return client.getOrCreateJobInstance(jobName, jobKeyGenerator.generateKey(jobParameters));
   }
 
   /**
@@ -118,6 +142,22 @@ public class RemoteJobInstanceDao extends AbstractBatchMetaDataDao
     return client.getJobInstances(jobName, start, count);
   }
 
+  /**
+   * Fetch a page of the job instances of the given job, most recent first. Unlike
+   * {@link #getJobInstances(String, int, int)}, the cost of a page does not depend on its depth.
+   *
+   * @param jobName   the name of the job
+   * @param pageToken the token of the page returned by the previous call, {@code null} for the
+   *                  first page
+   * @param count     the maximum count of job instances in the page
+   * @return the job instances and the token of the next page, which is {@code null} on the last
+   * page
+   */
+  public JobInstancePageDto getJobInstancesPage(String jobName, @Nullable String pageToken,
+      int count) {
+    return client.getJobInstancesPage(jobName, pageToken, count);
+  }
+
   /*
    * (non-Javadoc)
    *
@@ -165,4 +205,34 @@ public class RemoteJobInstanceDao extends AbstractBatchMetaDataDao
       final int count) {
     return client.findJobInstancesByName(jobName, start, count);
   }
+
+  /**
+   * Fetch a page of the job instances of the jobs matching the given name, most recent first. The
+   * name may contain {@code *} wildcards.
+   *
+   * @param jobName   the name of the job, possibly with wildcards
+   * @param pageToken the token of the page returned by the previous call, {@code null} for the
+   *                  first page
+   * @param count     the maximum count of job instances in the page
+   * @return the job instances and the token of the next page, which is {@code null} on the last
+   * page
+   * @see #getJobInstancesPage(String, String, int)
+   */
+  public JobInstancePageDto findJobInstancesByNamePage(String jobName, @Nullable String pageToken,
+      int count) {
+    return client.findJobInstancesByNamePage(jobName, pageToken, count);
+  }
+
+  /**
+   * Stream the job instances of the jobs matching the given name, most recent first, decoding them
+   * one at a time while the stream is consumed. The name may contain {@code *} wildcards. The
+   * stream must be closed after use.
+   *
+   * @param jobName the name of the job, possibly with wildcards
+   * @return the job instances of the matching jobs
+   */
+  public Stream<JobInstance> streamJobInstancesByName(String jobName) {
+    Assert.state(jobInstanceReader != null, "ObjectMapper must be set to stream job instances.");
+    return NdjsonStreams.stream(client.streamJobInstancesByName(jobName), jobInstanceReader);
+  }
 }
@@ -1,16 +1,25 @@
 package com.restbatch.batchservice.dao;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.restbatch.batchservice.client.NdjsonStreams;
 import com.restbatch.batchservice.client.StepExecutionDaoClient;
+import com.restbatch.batchservice.dto.StepExecutionCommitDto;
+import com.restbatch.batchservice.dto.UpdateResultDto;
 import com.restbatch.batchservice.dto.holder.StepExecutionHolder;
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Objects;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.BatchStatus;
 import org.springframework.batch.core.JobExecution;
 import org.springframework.batch.core.JobInstance;
 import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.repository.dao.NoSuchObjectException;
 import org.springframework.batch.core.repository.dao.StepExecutionDao;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.dao.OptimisticLockingFailureException;
@@ -28,6 +37,9 @@ public class RemoteStepExecutionDao extends AbstractBatchMetaDataDao
   @Setter
   private StepExecutionDaoClient client;
   private int exitMessageLength = DEFAULT_EXIT_MESSAGE_LENGTH;
+  private ExecutionIdPool idPool;
+  private JobExecutionStatusCache jobExecutionStatusCache;
+  private ObjectReader stepExecutionReader;
 
   /**
    * Public setter for the exit message length in database. Do not set this if you haven't modified
@@ -39,9 +51,42 @@ public class RemoteStepExecutionDao extends AbstractBatchMetaDataDao
     this.exitMessageLength = exitMessageLength;
   }
 
+  /**
+   * Public setter for the pool of step execution ids reserved ahead of time. If not set, ids are
+   * reserved on demand, with a single call per save.
+   *
+   * @param idPool the pool of step execution ids
+   */
+  public void setIdPool(ExecutionIdPool idPool) {
+    this.idPool = idPool;
+  }
+
+  /**
+   * Public setter for the cache to put the job execution status reported along with a step
+   * execution update into. If not set, the reported status is ignored.
+   *
+   * @param jobExecutionStatusCache the cache of job execution statuses
+   */
+  public void setJobExecutionStatusCache(JobExecutionStatusCache jobExecutionStatusCache) {
+    this.jobExecutionStatusCache = jobExecutionStatusCache;
+  }
+
+  /**
+   * Public setter for the object mapper to decode streamed step executions with. It must be able to
+   * deserialize them, so it should be the one of the Feign clients. Required for streaming only.
+   *
+   * @param objectMapper the object mapper
+   */
+  public void setObjectMapper(ObjectMapper objectMapper) {
+    this.stepExecutionReader = objectMapper.readerFor(StepExecutionHolder.class);
+  }
+
   @Override
   public void afterPropertiesSet() {
     Assert.notNull(client, "StepExecutionDaoClient must not be null.");
+    if (idPool == null) {
+      idPool = new ExecutionIdPool(client::nextStepExecutionIds, 0, Runnable::run);
+    }
   }
 
   /**
@@ -52,7 +97,7 @@ public class RemoteStepExecutionDao extends AbstractBatchMetaDataDao
    */
   @Override
   public void saveStepExecution(StepExecution stepExecution) {
-    client.saveStepExecution(buildStepExecutionParameters(stepExecution));
+    client.saveStepExecution(buildStepExecutionParameters(stepExecution, idPool.next()));
   }
 
   /**
@@ -63,20 +108,24 @@ public class RemoteStepExecutionDao extends AbstractBatchMetaDataDao
   @Override
   public void saveStepExecutions(final Collection<StepExecution> stepExecutions) {
     Assert.notNull(stepExecutions, "Attempt to save a null collection of step executions");
+    if (stepExecutions.isEmpty()) {
+      return;
+    }
 
+    Iterator<Long> ids = idPool.next(stepExecutions.size()).iterator();
     client.saveStepExecutions(
         stepExecutions.stream()
-            .map(this::buildStepExecutionParameters)
+            .map(stepExecution -> buildStepExecutionParameters(stepExecution, ids.next()))
             .collect(Collectors.toList()));
   }
 
-  private StepExecutionHolder buildStepExecutionParameters(StepExecution stepExecution) {
+  private StepExecutionHolder buildStepExecutionParameters(StepExecution stepExecution, Long id) {
     Assert.isNull(stepExecution.getId(),
         "to-be-saved (not updated) StepExecution can't already have an id assigned");
     Assert.isNull(stepExecution.getVersion(),
         "to-be-saved (not updated) StepExecution can't already have a version assigned");
     validateStepExecution(stepExecution);
-    stepExecution.setId(client.nextStepExecutionId());
+    stepExecution.setId(id);
     stepExecution.incrementVersion(); //Should be 0
     String exitDescription = truncateExitDescription(
         stepExecution.getExitStatus().getExitDescription());
@@ -114,6 +163,16 @@ public class RemoteStepExecutionDao extends AbstractBatchMetaDataDao
     Assert.notNull(stepExecution.getStatus(), "StepExecution status cannot be null.");
   }
 
+  /**
+   * {@inheritDoc}
+   * <p>
+   * The database service tells a missing step execution from a concurrent modification, so a
+   * missing step execution fails with {@link NoSuchObjectException} instead of the data access
+   * failure of the lookup of its current version.
+   *
+   * @throws NoSuchObjectException            if the step execution does not exist
+   * @throws OptimisticLockingFailureException if the step execution has been updated since
+   */
   @Override
   public void updateStepExecution(StepExecution stepExecution) {
 
@@ -125,43 +184,94 @@ public class RemoteStepExecutionDao extends AbstractBatchMetaDataDao
     // Do not check for existence of step execution considering
     // it is saved at every commit point.
 
-    String exitDescription = truncateExitDescription(
-        stepExecution.getExitStatus().getExitDescription());
-
     // Attempt to prevent concurrent modification errors by blocking here if
     // someone is already trying to do it.
     synchronized (stepExecution) {
-      int version = stepExecution.getVersion() + 1;
-      StepExecutionHolder holder = StepExecutionHolder.builder()
-          .startTime(stepExecution.getStartTime())
-          .endTime(stepExecution.getEndTime())
-          .status(stepExecution.getStatus())
-          .commitCount(stepExecution.getCommitCount())
-          .readCount(stepExecution.getReadCount())
-          .filterCount(stepExecution.getFilterCount())
-          .writeCount(stepExecution.getWriteCount())
-          .exitCode(stepExecution.getExitStatus().getExitCode())
-          .exitDescription(exitDescription)
-          .updateVersion(version)
-          .readSkipCount(stepExecution.getReadSkipCount())
-          .processSkipCount(stepExecution.getProcessSkipCount())
-          .writeSkipCount(stepExecution.getWriteSkipCount())
-          .rollbackCount(stepExecution.getRollbackCount())
-          .lastUpdated(stepExecution.getLastUpdated())
-          .id(stepExecution.getId())
-          .version(stepExecution.getVersion())
-          .build();
-      int count = client.updateStepExecution(holder);
-
-      // Avoid concurrent modifications...
-      if (count == 0) {
-        int currentVersion = client.getStepExecutionVersion(stepExecution.getId());
-        throw new OptimisticLockingFailureException("Attempt to update step execution id="
-            + stepExecution.getId() + " with wrong version (" + stepExecution.getVersion()
-            + "), where current version is " + currentVersion);
-      }
+      UpdateResultDto result = client.updateStepExecution(buildStepExecutionUpdate(stepExecution));
+      checkStepExecutionUpdated(stepExecution, result);
+      stepExecution.incrementVersion();
+    }
+  }
 
+  /**
+   * Update the StepExecution and persist its execution context in a single call, so that a chunk
+   * commit costs one round trip and one transaction on the database service. The context is not
+   * persisted if the step execution update fails.
+   *
+   * @param stepExecution    the step execution to update
+   * @param executionContext update of the step execution context, {@code null} if it has not
+   *                         changed
+   * @return the version of the context as stored once the delta of the update has been merged,
+   * {@code null} if the update is not a delta or the delta could not be merged
+   * @throws NoSuchObjectException            if the step execution does not exist
+   * @throws OptimisticLockingFailureException if the step execution has been updated since
+   */
+  @Nullable
+  public String commitStepExecution(StepExecution stepExecution,
+      @Nullable ExecutionContextUpdate executionContext) {
+
+    validateStepExecution(stepExecution);
+    Assert.notNull(stepExecution.getId(),
+        "StepExecution Id cannot be null. StepExecution must saved"
+            + " before it can be updated.");
+    synchronized (stepExecution) {
+      UpdateResultDto result = client.commitStepExecution(
+          StepExecutionCommitDto.builder()
+              .stepExecution(buildStepExecutionUpdate(stepExecution))
+              .executionContext(executionContext != null ? executionContext.getContext() : null)
+              .executionContextDelta(
+                  executionContext != null ? executionContext.getDelta() : null)
+              .build());
+      checkStepExecutionUpdated(stepExecution, result);
       stepExecution.incrementVersion();
+      return result.getContextVersion();
+    }
+  }
+
+  private StepExecutionHolder buildStepExecutionUpdate(StepExecution stepExecution) {
+    String exitDescription = truncateExitDescription(
+        stepExecution.getExitStatus().getExitDescription());
+
+    int version = stepExecution.getVersion() + 1;
+    return StepExecutionHolder.builder()
+        .startTime(stepExecution.getStartTime())
+        .endTime(stepExecution.getEndTime())
+        .status(stepExecution.getStatus())
+        .commitCount(stepExecution.getCommitCount())
+        .readCount(stepExecution.getReadCount())
+        .filterCount(stepExecution.getFilterCount())
+        .writeCount(stepExecution.getWriteCount())
+        .exitCode(stepExecution.getExitStatus().getExitCode())
+        .exitDescription(exitDescription)
+        .updateVersion(version)
+        .readSkipCount(stepExecution.getReadSkipCount())
+        .processSkipCount(stepExecution.getProcessSkipCount())
+        .writeSkipCount(stepExecution.getWriteSkipCount())
+        .rollbackCount(stepExecution.getRollbackCount())
+        .lastUpdated(stepExecution.getLastUpdated())
+        .id(stepExecution.getId())
+        .version(stepExecution.getVersion())
+        .build();
+  }
+
+  private void checkStepExecutionUpdated(StepExecution stepExecution, UpdateResultDto result) {
+    switch (result.getStatus()) {
+      case UPDATED:
+        if (jobExecutionStatusCache != null && result.getJobExecutionVersion() != null) {
+          jobExecutionStatusCache.put(stepExecution.getJobExecutionId(),
+              result.getJobExecutionVersion(), BatchStatus.valueOf(result.getJobExecutionStatus()));
+        }
+        break;
+      case NOT_FOUND:
+        throw new NoSuchObjectException(
+            "Invalid StepExecution, ID " + stepExecution.getId() + " not found.");
+      case VERSION_CONFLICT:
+        // Avoid concurrent modifications...
+        throw new OptimisticLockingFailureException("Attempt to update step execution id="
+            + stepExecution.getId() + " with wrong version (" + stepExecution.getVersion()
+            + "), where current version is " + result.getCurrentVersion());
+      default:
+        throw new IllegalStateException("Unknown update status " + result.getStatus());
     }
   }
 
@@ -215,6 +325,25 @@ public class RemoteStepExecutionDao extends AbstractBatchMetaDataDao
             .collect(Collectors.toList()));
   }
 
+  /**
+   * Stream the step executions of the job execution in the order they have been saved, decoding
+   * them one at a time while the stream is consumed. Unlike
+   * {@link #addStepExecutions(JobExecution)}, the step executions are not added to the job
+   * execution. The stream must be closed after use.
+   *
+   * @param jobExecution the job execution
+   * @return the step executions of the job execution
+   */
+  public Stream<StepExecution> streamStepExecutions(JobExecution jobExecution) {
+    Assert.state(stepExecutionReader != null,
+        "ObjectMapper must be set to stream step executions.");
+
+    return NdjsonStreams.<StepExecutionHolder>stream(
+            client.streamStepExecutions(jobExecution.getId()), stepExecutionReader)
+        .peek(holder -> holder.setJobExecution(jobExecution))
+        .map(StepExecutionHolder::getTarget);
+  }
+
   @Override
   public int countStepExecutions(JobInstance jobInstance, String stepName) {
     return client.countStepExecutions(jobInstance.getInstanceId(), stepName);
@@ -1,29 +1,31 @@
 package com.restbatch.batchservice.deserializer;
 
 import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.DeserializationContext;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.JsonMappingException;
 import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
-import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
 import java.io.IOException;
-import java.sql.Timestamp;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-import java.time.format.DateTimeParseException;
 import java.util.Date;
-import java.util.Objects;
-import lombok.extern.slf4j.Slf4j;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import org.springframework.batch.core.BatchStatus;
 import org.springframework.batch.core.ExitStatus;
 import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParameter;
+import org.springframework.batch.core.JobParameter.ParameterType;
 import org.springframework.batch.core.JobParameters;
-import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
 
 /**
+ * Reads the job execution token by token, without building a tree of the whole object, so that
+ * decoding long lists of job executions costs little more than the job executions themselves.
+ * The job instance, the step executions and the execution context are not part of the payload and
+ * are skipped.
+ *
  * @author Anton Belousov
  * @since 0.0.1-SNAPSHOT
  */
-@Slf4j
 public class JobExecutionDeserializer extends StdDeserializer<JobExecution> {
 
   public JobExecutionDeserializer() {
@@ -35,54 +37,191 @@ public class JobExecutionDeserializer extends StdDeserializer<JobExecution> {
   }
 
   @Override
-  @SuppressWarnings("all")
   public JobExecution deserialize(JsonParser p, DeserializationContext ctx)
       throws IOException {
-    ObjectMapper mapper = new MappingJackson2HttpMessageConverter().getObjectMapper();
-    ObjectNode jobExecObj = p.getCodec().readTree(p);
-
-    Long id = jobExecObj.get("id").asLong();
-    String jobConfigurationName = jobExecObj.get("jobConfigurationName").asText();
-    JobParameters jobParameters = mapper.treeToValue(jobExecObj.get("jobParameters"),
-        JobParameters.class);
-    Date startTime = parseTimestamp(jobExecObj.get("startTime").asText(null));
-    Date endTime = parseTimestamp(jobExecObj.get("endTime").asText(null));
-    BatchStatus status = BatchStatus.valueOf(jobExecObj.get("status").asText());
-    String exitCode = jobExecObj.get("exitStatus").get("exitCode").asText();
-    String exitDescription = jobExecObj.get("exitStatus").get("exitDescription").asText();
-    Date createTime = parseTimestamp(jobExecObj.get("createTime").asText(null));
-    Date lastUpdated = parseTimestamp(jobExecObj.get("endTime").asText(null));
-    Integer version = jobExecObj.get("version").asInt();
+    Long id = null;
+    String jobConfigurationName = null;
+    JobParameters jobParameters = new JobParameters();
+    Date startTime = null;
+    Date endTime = null;
+    BatchStatus status = null;
+    ExitStatus exitStatus = null;
+    Date createTime = null;
+    Date lastUpdated = null;
+    Integer version = null;
+
+    for (JsonToken token = firstField(p); token == JsonToken.FIELD_NAME; token = p.nextToken()) {
+      String field = p.getCurrentName();
+      p.nextToken();
+      switch (field) {
+        case "id":
+          id = p.getValueAsLong();
+          break;
+        case "jobConfigurationName":
+          jobConfigurationName = p.getValueAsString();
+          break;
+        case "jobParameters":
+          jobParameters = readJobParameters(p, ctx);
+          break;
+        case "startTime":
+          startTime = TimestampDecoder.read(p, ctx);
+          break;
+        case "endTime":
+          endTime = TimestampDecoder.read(p, ctx);
+          break;
+        case "status":
+          status = BatchStatus.valueOf(p.getText());
+          break;
+        case "exitStatus":
+          exitStatus = readExitStatus(p);
+          break;
+        case "createTime":
+          createTime = TimestampDecoder.read(p, ctx);
+          break;
+        case "lastUpdated":
+          lastUpdated = TimestampDecoder.read(p, ctx);
+          break;
+        case "version":
+          version = p.getValueAsInt();
+          break;
+        default:
+          p.skipChildren();
+      }
+    }
 
     JobExecution jobExecution = new JobExecution(id, jobParameters, jobConfigurationName);
 
     jobExecution.setStartTime(startTime);
     jobExecution.setEndTime(endTime);
     jobExecution.setStatus(status);
-    jobExecution.setExitStatus(new ExitStatus(exitCode, exitDescription));
+    if (exitStatus != null) {
+      jobExecution.setExitStatus(exitStatus);
+    }
     jobExecution.setCreateTime(createTime);
     jobExecution.setLastUpdated(lastUpdated);
     jobExecution.setVersion(version);
     return jobExecution;
   }
 
-  private Timestamp parseTimestamp(String timestamp) {
-    if (Objects.isNull(timestamp)) {
+  /**
+   * Move to the first field of the current object, which the parser may already be at.
+   */
+  private static JsonToken firstField(JsonParser p) throws IOException {
+    JsonToken token = p.currentToken();
+    return token == JsonToken.START_OBJECT ? p.nextToken() : token;
+  }
+
+  private static ExitStatus readExitStatus(JsonParser p) throws IOException {
+    if (p.currentToken() != JsonToken.START_OBJECT) {
       return null;
     }
+    String exitCode = null;
+    String exitDescription = null;
+    for (JsonToken token = p.nextToken(); token == JsonToken.FIELD_NAME; token = p.nextToken()) {
+      String field = p.getCurrentName();
+      p.nextToken();
+      if ("exitCode".equals(field)) {
+        exitCode = p.getValueAsString();
+      } else if ("exitDescription".equals(field)) {
+        exitDescription = p.getValueAsString();
+      } else {
+        p.skipChildren();
+      }
+    }
+    return new ExitStatus(exitCode, exitDescription);
+  }
 
-    String oldMilliseconds = timestamp.substring(timestamp.lastIndexOf('.') + 1,
-        timestamp.length() - 6);
-    String newMilliseconds = oldMilliseconds + "0".repeat(6 - oldMilliseconds.length());
-    timestamp = timestamp.replace(oldMilliseconds, newMilliseconds);
-    timestamp = timestamp.substring(0, 29) + timestamp.substring(30);
+  private static JobParameters readJobParameters(JsonParser p, DeserializationContext ctx)
+      throws IOException {
+    if (p.currentToken() != JsonToken.START_OBJECT) {
+      return new JobParameters();
+    }
+    Map<String, JobParameter> parameters = new LinkedHashMap<>();
+    for (JsonToken token = p.nextToken(); token == JsonToken.FIELD_NAME; token = p.nextToken()) {
+      String field = p.getCurrentName();
+      JsonToken value = p.nextToken();
+      if ("parameters".equals(field) && value == JsonToken.START_OBJECT) {
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+          String key = p.getCurrentName();
+          p.nextToken();
+          parameters.put(key, readJobParameter(p, ctx));
+        }
+      } else {
+        p.skipChildren();
+      }
+    }
+    return new JobParameters(parameters);
+  }
 
+  /**
+   * Read a job parameter, whose value can only be converted once its type is known, as the fields
+   * may come in any order.
+   */
+  private static JobParameter readJobParameter(JsonParser p, DeserializationContext ctx)
+      throws IOException {
+    ParameterType type = ParameterType.STRING;
+    boolean identifying = true;
+    String text = null;
+    Number number = null;
+
+    for (JsonToken token = p.nextToken(); token == JsonToken.FIELD_NAME; token = p.nextToken()) {
+      String field = p.getCurrentName();
+      JsonToken value = p.nextToken();
+      switch (field) {
+        case "type":
+          type = ParameterType.valueOf(p.getText());
+          break;
+        case "identifying":
+          identifying = p.getValueAsBoolean();
+          break;
+        case "value":
+          if (value.isNumeric()) {
+            number = p.getNumberValue();
+          } else if (value == JsonToken.VALUE_STRING) {
+            text = p.getText();
+          } else {
+            p.skipChildren();
+          }
+          break;
+        default:
+          p.skipChildren();
+      }
+    }
+
+    switch (type) {
+      case LONG:
+        return new JobParameter(number != null ? number.longValue() : null, identifying);
+      case DOUBLE:
+        return new JobParameter(number != null ? number.doubleValue() : null, identifying);
+      case DATE:
+        Date date = number != null ? readEpochDate(p, ctx, number.longValue())
+            : text != null ? parseDate(p, text) : null;
+        // A plain date, as a timestamp is never equal to the date it was launched with
+        return new JobParameter(date != null ? new Date(date.getTime()) : null, identifying);
+      default:
+        return new JobParameter(text, identifying);
+    }
+  }
+
+  /**
+   * Read a date written as a number, whose unit depends on the wire format, so it is decoded by
+   * the timestamp deserializer of the context. The type of a job parameter comes after its value,
+   * so the number is only decoded once it is known to be a date.
+   */
+  private static Date readEpochDate(JsonParser p, DeserializationContext ctx, long epoch)
+      throws IOException {
+    TokenBuffer buffer = ctx.bufferForInputBuffering(p);
+    buffer.writeNumber(epoch);
+    try (JsonParser epochParser = buffer.asParserOnFirstToken()) {
+      return TimestampDecoder.read(epochParser, ctx);
+    }
+  }
+
+  private static Date parseDate(JsonParser p, String text) throws JsonMappingException {
     try {
-      DateTimeFormatter dtf = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSSSSSZ");
-      return Timestamp.valueOf(LocalDateTime.parse(timestamp, dtf));
-    } catch (DateTimeParseException e) {
-      log.error("Cannot parse timestamp: {}. Reason: {}", timestamp, e.getMessage());
-      return null;
+      return TimestampDecoder.parse(text.toCharArray(), 0, text.length());
+    } catch (RuntimeException e) {
+      throw JsonMappingException.from(p, "Cannot parse date job parameter: " + text, e);
     }
   }
 }
@@ -1,13 +1,15 @@
 package com.restbatch.batchservice.deserializer;
 
 import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
-import com.fasterxml.jackson.databind.node.ObjectNode;
 import java.io.IOException;
 import org.springframework.batch.core.JobInstance;
 
 /**
+ * Reads the job instance token by token, without building a tree of the whole object.
+ *
  * @author Anton Belousov
  * @since 0.0.1-SNAPSHOT
  */
@@ -23,11 +25,31 @@ public class JobInstanceDeserializer extends StdDeserializer<JobInstance> {
 
   @Override
   public JobInstance deserialize(JsonParser p, DeserializationContext ctx) throws IOException {
-    ObjectNode jobInstObj = p.getCodec().readTree(p);
+    Long id = null;
+    String name = null;
+    Integer version = null;
 
-    Long id = jobInstObj.get("id").asLong();
-    String name = jobInstObj.get("jobName").asText();
-    Integer version = jobInstObj.get("version").asInt();
+    JsonToken token = p.currentToken();
+    if (token == JsonToken.START_OBJECT) {
+      token = p.nextToken();
+    }
+    for (; token == JsonToken.FIELD_NAME; token = p.nextToken()) {
+      String field = p.getCurrentName();
+      p.nextToken();
+      switch (field) {
+        case "id":
+          id = p.getValueAsLong();
+          break;
+        case "jobName":
+          name = p.getValueAsString();
+          break;
+        case "version":
+          version = p.getValueAsInt();
+          break;
+        default:
+          p.skipChildren();
+      }
+    }
 
     JobInstance jobInstance = new JobInstance(id, name);
     jobInstance.setVersion(version);
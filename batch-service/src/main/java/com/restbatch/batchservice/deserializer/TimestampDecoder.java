@@ -0,0 +1,151 @@
+package com.restbatch.batchservice.deserializer;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import java.io.IOException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Decodes the ISO-8601 timestamps written by the database service, e.g.
+ * {@code 2022-07-01T10:15:30.123+00:00}, straight from the characters of the parser, without
+ * building intermediate strings or formatters. The fraction may have up to nine digits and the
+ * offset may be {@code Z}, {@code +HH:mm} or {@code +HHmm}; a timestamp without offset is in UTC.
+ *
+ * @author Anton Belousov
+ * @since 0.0.1-SNAPSHOT
+ */
+@Slf4j
+final class TimestampDecoder {
+
+  private static final int SECONDS_PER_DAY = 86_400;
+  private static final int NANOS_DIGITS = 9;
+
+  private TimestampDecoder() {
+  }
+
+  /**
+   * Decode the current value of the parser, which is either a string or a number. The unit of
+   * numbers depends on the wire format, so they are decoded by the timestamp deserializer of the
+   * context.
+   *
+   * @param p   the parser positioned on the value
+   * @param ctx the context of the enclosing deserializer
+   * @return the timestamp, or {@code null} if the value is null or cannot be parsed
+   */
+  static Timestamp read(JsonParser p, DeserializationContext ctx) throws IOException {
+    JsonToken token = p.currentToken();
+    if (token == JsonToken.VALUE_NUMBER_INT) {
+      return ctx.readValue(p, Timestamp.class);
+    }
+    if (token != JsonToken.VALUE_STRING) {
+      return null;
+    }
+    try {
+      return parse(p.getTextCharacters(), p.getTextOffset(), p.getTextLength());
+    } catch (RuntimeException e) {
+      log.error("Cannot parse timestamp: {}. Reason: {}", p.getText(), e.getMessage());
+      return null;
+    }
+  }
+
+  static Timestamp parse(char[] chars, int offset, int length) {
+    Cursor cursor = new Cursor(chars, offset, offset + length);
+    int year = cursor.digits(4);
+    cursor.expect('-');
+    int month = cursor.digits(2);
+    cursor.expect('-');
+    int day = cursor.digits(2);
+    cursor.expect('T');
+    int hour = cursor.digits(2);
+    cursor.expect(':');
+    int minute = cursor.digits(2);
+    cursor.expect(':');
+    int second = cursor.digits(2);
+
+    int nanos = 0;
+    if (cursor.skip('.')) {
+      int scale = NANOS_DIGITS;
+      while (cursor.hasDigit()) {
+        int digit = cursor.digits(1);
+        // Digits beyond nanoseconds are dropped
+        if (scale > 0) {
+          nanos = nanos * 10 + digit;
+          scale--;
+        }
+      }
+      for (; scale > 0; scale--) {
+        nanos *= 10;
+      }
+    }
+
+    int offsetSeconds = 0;
+    if (!cursor.skip('Z') && cursor.hasNext()) {
+      int sign = cursor.skip('-') ? -1 : 1;
+      if (sign > 0) {
+        cursor.expect('+');
+      }
+      int offsetHours = cursor.digits(2);
+      cursor.skip(':');
+      int offsetMinutes = cursor.hasNext() ? cursor.digits(2) : 0;
+      offsetSeconds = sign * (offsetHours * 3600 + offsetMinutes * 60);
+    }
+    if (cursor.hasNext()) {
+      throw new IllegalArgumentException("Unexpected trailing characters");
+    }
+
+    long epochSecond = LocalDate.of(year, month, day).toEpochDay() * SECONDS_PER_DAY
+        + hour * 3600 + minute * 60 + second - offsetSeconds;
+    Timestamp timestamp = new Timestamp(epochSecond * 1000);
+    timestamp.setNanos(nanos);
+    return timestamp;
+  }
+
+  private static class Cursor {
+
+    private final char[] chars;
+    private final int end;
+    private int position;
+
+    private Cursor(char[] chars, int position, int end) {
+      this.chars = chars;
+      this.position = position;
+      this.end = end;
+    }
+
+    private boolean hasNext() {
+      return position < end;
+    }
+
+    private boolean hasDigit() {
+      return hasNext() && Character.isDigit(chars[position]);
+    }
+
+    private boolean skip(char c) {
+      if (hasNext() && chars[position] == c) {
+        position++;
+        return true;
+      }
+      return false;
+    }
+
+    private void expect(char c) {
+      if (!skip(c)) {
+        throw new IllegalArgumentException("Expected '" + c + "' at index " + position);
+      }
+    }
+
+    private int digits(int count) {
+      int value = 0;
+      for (int i = 0; i < count; i++) {
+        if (!hasDigit()) {
+          throw new IllegalArgumentException("Expected a digit at index " + position);
+        }
+        value = value * 10 + (chars[position++] - '0');
+      }
+      return value;
+    }
+  }
+}
@@ -0,0 +1,28 @@
+package com.restbatch.batchservice.dto;
+
+import com.restbatch.batchservice.dto.holder.StepExecutionHolder;
+import java.util.List;
+import java.util.Map;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobInstance;
+
+/**
+ * @author Anton Belousov
+ * @since 0.0.1-SNAPSHOT
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class JobExecutionGraphDto {
+
+  private JobExecution jobExecution;
+  private JobInstance jobInstance;
+  private String executionContext;
+  private List<StepExecutionHolder> stepExecutions;
+  private Map<Long, String> stepExecutionContexts;
+}
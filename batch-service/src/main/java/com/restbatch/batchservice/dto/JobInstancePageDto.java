@@ -0,0 +1,22 @@
+package com.restbatch.batchservice.dto;
+
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.batch.core.JobInstance;
+
+/**
+ * @author Anton Belousov
+ * @since 0.0.1-SNAPSHOT
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class JobInstancePageDto {
+
+  private List<JobInstance> jobInstances;
+  private String nextPageToken;
+}
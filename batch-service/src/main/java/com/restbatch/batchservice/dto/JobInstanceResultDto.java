@@ -0,0 +1,21 @@
+package com.restbatch.batchservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.batch.core.JobInstance;
+
+/**
+ * @author Anton Belousov
+ * @since 0.0.1-SNAPSHOT
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class JobInstanceResultDto {
+
+  private JobInstance jobInstance;
+  private boolean created;
+}
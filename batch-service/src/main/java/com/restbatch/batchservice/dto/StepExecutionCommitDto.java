@@ -0,0 +1,22 @@
+package com.restbatch.batchservice.dto;
+
+import com.restbatch.batchservice.dto.holder.StepExecutionHolder;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * @author Anton Belousov
+ * @since 0.0.1-SNAPSHOT
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StepExecutionCommitDto {
+
+  private StepExecutionHolder stepExecution;
+  private SerializedContextDto executionContext;
+  private ExecutionContextDeltaDto executionContextDelta;
+}
@@ -0,0 +1,176 @@
+package com.restbatch.batchservice.explore;
+
+import com.restbatch.batchservice.dao.RemoteExecutionContextDao;
+import com.restbatch.batchservice.dao.RemoteJobExecutionDao;
+import com.restbatch.batchservice.dao.RemoteJobInstanceDao;
+import com.restbatch.batchservice.dao.RemoteStepExecutionDao;
+import com.restbatch.batchservice.dto.JobExecutionGraphDto;
+import com.restbatch.batchservice.dto.holder.StepExecutionHolder;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobInstance;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.explore.support.SimpleJobExplorer;
+import org.springframework.lang.Nullable;
+
+/**
+ * {@link SimpleJobExplorer} working over the remote DAOs, which retrieves a job execution
+ * together with its job instance, step executions and all their execution contexts in a single
+ * call to the database service, instead of one call per part and per step execution. It also
+ * exposes the streamed listings of the DAOs, which decode the rows while they are consumed.
+ *
+ * @author Anton Belousov
+ * @since 0.0.1-SNAPSHOT
+ */
+public class RemoteJobExplorer extends SimpleJobExplorer {
+
+  private final RemoteJobInstanceDao jobInstanceDao;
+  private final RemoteJobExecutionDao jobExecutionDao;
+  private final RemoteStepExecutionDao stepExecutionDao;
+  private final RemoteExecutionContextDao ecDao;
+
+  public RemoteJobExplorer(RemoteJobInstanceDao jobInstanceDao,
+      RemoteJobExecutionDao jobExecutionDao, RemoteStepExecutionDao stepExecutionDao,
+      RemoteExecutionContextDao ecDao) {
+    super(jobInstanceDao, jobExecutionDao, stepExecutionDao, ecDao);
+    this.jobInstanceDao = jobInstanceDao;
+    this.jobExecutionDao = jobExecutionDao;
+    this.stepExecutionDao = stepExecutionDao;
+    this.ecDao = ecDao;
+  }
+
+  @Override
+  @Nullable
+  public JobExecution getJobExecution(@Nullable Long executionId) {
+    if (executionId == null) {
+      return null;
+    }
+    JobExecutionGraphDto graph = jobExecutionDao.getJobExecutionGraph(executionId);
+    if (graph == null) {
+      return null;
+    }
+
+    JobExecution jobExecution = graph.getJobExecution();
+    jobExecution.setJobInstance(graph.getJobInstance());
+    jobExecution.setExecutionContext(ecDao.deserializeContext(graph.getExecutionContext()));
+
+    List<StepExecution> stepExecutions = new ArrayList<>(graph.getStepExecutions().size());
+    for (StepExecutionHolder holder : graph.getStepExecutions()) {
+      holder.setJobExecution(jobExecution);
+      StepExecution stepExecution = holder.getTarget();
+      stepExecution.setExecutionContext(ecDao.deserializeContext(
+          graph.getStepExecutionContexts().get(stepExecution.getId())));
+      stepExecutions.add(stepExecution);
+    }
+    jobExecution.addStepExecutions(stepExecutions);
+    return jobExecution;
+  }
+
+  /**
+   * Retrieve the step execution and its execution context only, as it is typically polled while
+   * the other steps of the job execution run. Its job execution comes with its job instance, but
+   * neither with its execution context nor with its other step executions.
+   */
+  @Override
+  @Nullable
+  public StepExecution getStepExecution(@Nullable Long jobExecutionId,
+      @Nullable Long executionId) {
+    if (jobExecutionId == null || executionId == null) {
+      return null;
+    }
+    JobExecution jobExecution = jobExecutionDao.getJobExecution(jobExecutionId);
+    if (jobExecution == null) {
+      return null;
+    }
+    jobExecution.setJobInstance(jobInstanceDao.getJobInstance(jobExecution));
+
+    StepExecution stepExecution = stepExecutionDao.getStepExecution(jobExecution, executionId);
+    if (stepExecution == null) {
+      return null;
+    }
+    stepExecution.setExecutionContext(ecDao.getExecutionContext(stepExecution));
+    return stepExecution;
+  }
+
+  /**
+   * Only the ids of the job executions are kept from the listing, which is streamed and closed
+   * before the job executions are retrieved one by one.
+   */
+  @Override
+  public List<JobExecution> getJobExecutions(JobInstance jobInstance) {
+    List<Long> executionIds;
+    try (Stream<JobExecution> listed = jobExecutionDao.streamJobExecutions(jobInstance)) {
+      executionIds = listed.map(JobExecution::getId).collect(Collectors.toList());
+    }
+    List<JobExecution> executions = new ArrayList<>(executionIds.size());
+    for (Long executionId : executionIds) {
+      addJobExecution(executions, executionId);
+    }
+    return executions;
+  }
+
+  @Override
+  @Nullable
+  public JobExecution getLastJobExecution(JobInstance jobInstance) {
+    JobExecution lastJobExecution = jobExecutionDao.getLastJobExecution(jobInstance);
+    return lastJobExecution != null ? getJobExecution(lastJobExecution.getId()) : null;
+  }
+
+  @Override
+  public Set<JobExecution> findRunningJobExecutions(@Nullable String jobName) {
+    Set<JobExecution> executions = new HashSet<>();
+    for (JobExecution jobExecution : jobExecutionDao.findRunningJobExecutions(jobName)) {
+      addJobExecution(executions, jobExecution.getId());
+    }
+    return executions;
+  }
+
+  /**
+   * Stream the job instances of the jobs matching the given name, most recent first, e.g. to
+   * export them without loading them all at once. The stream must be closed after use.
+   *
+   * @param jobName the name of the job, possibly with {@code *} wildcards
+   * @return the job instances of the matching jobs
+   */
+  public Stream<JobInstance> streamJobInstancesByName(String jobName) {
+    return jobInstanceDao.streamJobInstancesByName(jobName);
+  }
+
+  /**
+   * Stream the job executions of the job instance, most recent first, without their step
+   * executions and execution contexts. The stream must be closed after use.
+   *
+   * @param jobInstance the job instance
+   * @return the job executions of the job instance
+   */
+  public Stream<JobExecution> streamJobExecutions(JobInstance jobInstance) {
+    return jobExecutionDao.streamJobExecutions(jobInstance);
+  }
+
+  /**
+   * Stream the step executions of the job execution in the order they have been saved, without
+   * their execution contexts. The stream must be closed after use.
+   *
+   * @param jobExecution the job execution
+   * @return the step executions of the job execution
+   */
+  public Stream<StepExecution> streamStepExecutions(JobExecution jobExecution) {
+    return stepExecutionDao.streamStepExecutions(jobExecution);
+  }
+
+  /**
+   * Add the job execution with the given id, unless it has been deleted since it was listed.
+   */
+  private void addJobExecution(Collection<JobExecution> executions, Long executionId) {
+    JobExecution jobExecution = getJobExecution(executionId);
+    if (jobExecution != null) {
+      executions.add(jobExecution);
+    }
+  }
+}
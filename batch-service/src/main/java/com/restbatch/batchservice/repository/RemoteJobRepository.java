@@ -0,0 +1,305 @@
+package com.restbatch.batchservice.repository;
+
+import com.restbatch.batchservice.dao.ExecutionContextUpdate;
+import com.restbatch.batchservice.dao.RemoteExecutionContextDao;
+import com.restbatch.batchservice.dao.RemoteJobExecutionDao;
+import com.restbatch.batchservice.dao.RemoteJobInstanceDao;
+import com.restbatch.batchservice.dao.RemoteStepExecutionDao;
+import com.restbatch.batchservice.dto.JobInstanceResultDto;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobInstance;
+import org.springframework.batch.core.JobParameter;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.repository.JobExecutionAlreadyRunningException;
+import org.springframework.batch.core.repository.JobInstanceAlreadyCompleteException;
+import org.springframework.batch.core.repository.JobRestartException;
+import org.springframework.batch.core.repository.support.SimpleJobRepository;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.lang.Nullable;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.Assert;
+
+/**
+ * {@link SimpleJobRepository} working over the remote DAOs, which coalesces a job launch and a
+ * chunk commit into a single call to the database service each.
+ * <p>
+ * A new job execution is saved together with its parameters and its execution context.
+ * <p>
+ * A chunk commit updates the step execution context and then the step execution itself within
+ * the chunk transaction. The context update is therefore held back until the next call to this
+ * repository on the same thread within that transaction: if it is the update of the same step
+ * execution, both are sent together, otherwise the held back context is persisted on its own
+ * first. A context update still held back when the transaction commits is persisted before the
+ * commit, and is dropped if the transaction rolls back. Outside a transaction, context updates
+ * are persisted right away.
+ *
+ * @author Anton Belousov
+ * @since 0.0.1-SNAPSHOT
+ */
+@Slf4j
+public class RemoteJobRepository extends SimpleJobRepository {
+
+  private final RemoteJobInstanceDao jobInstanceDao;
+  private final RemoteJobExecutionDao jobExecutionDao;
+  private final RemoteStepExecutionDao stepExecutionDao;
+  private final RemoteExecutionContextDao ecDao;
+
+  private final ThreadLocal<StepExecution> pendingContextUpdate = new ThreadLocal<>();
+
+  public RemoteJobRepository(RemoteJobInstanceDao jobInstanceDao,
+      RemoteJobExecutionDao jobExecutionDao, RemoteStepExecutionDao stepExecutionDao,
+      RemoteExecutionContextDao ecDao) {
+    super(jobInstanceDao, jobExecutionDao, stepExecutionDao, ecDao);
+    this.jobInstanceDao = jobInstanceDao;
+    this.jobExecutionDao = jobExecutionDao;
+    this.stepExecutionDao = stepExecutionDao;
+    this.ecDao = ecDao;
+  }
+
+  @Override
+  public void updateExecutionContext(StepExecution stepExecution) {
+    validateStepExecution(stepExecution);
+    Assert.notNull(stepExecution.getId(),
+        "StepExecution must already be saved (have an id assigned)");
+
+    StepExecution pending = pendingContextUpdate.get();
+    if (pending == stepExecution) {
+      return;
+    }
+    flushPendingContextUpdate();
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      ecDao.updateExecutionContext(stepExecution);
+      return;
+    }
+
+    pendingContextUpdate.set(stepExecution);
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+      @Override
+      public void beforeCommit(boolean readOnly) {
+        if (pendingContextUpdate.get() == stepExecution) {
+          flushPendingContextUpdate();
+        }
+      }
+
+      @Override
+      public void afterCompletion(int status) {
+        if (pendingContextUpdate.get() == stepExecution) {
+          pendingContextUpdate.remove();
+        }
+      }
+    });
+  }
+
+  @Override
+  public void update(StepExecution stepExecution) {
+    StepExecution pending = pendingContextUpdate.get();
+    if (pending != stepExecution) {
+      flushPendingContextUpdate();
+      super.update(stepExecution);
+      return;
+    }
+    pendingContextUpdate.remove();
+
+    validateStepExecution(stepExecution);
+    Assert.notNull(stepExecution.getId(),
+        "StepExecution must already be saved (have an id assigned)");
+
+    stepExecution.setLastUpdated(new Date(System.currentTimeMillis()));
+    ExecutionContextUpdate contextUpdate = ecDao.createExecutionContextUpdate(stepExecution);
+    try {
+      String contextVersion = stepExecutionDao.commitStepExecution(stepExecution, contextUpdate);
+      if (contextUpdate != null) {
+        ecDao.commitExecutionContextUpdate(stepExecution, contextUpdate, contextVersion);
+      }
+    } catch (RuntimeException e) {
+      ecDao.evictExecutionContext(stepExecution);
+      throw e;
+    }
+    checkForInterruption(stepExecution);
+  }
+
+  @Override
+  public boolean isJobInstanceExists(String jobName, JobParameters jobParameters) {
+    flushPendingContextUpdate();
+    return super.isJobInstanceExists(jobName, jobParameters);
+  }
+
+  @Override
+  public JobExecution createJobExecution(String jobName, JobParameters jobParameters)
+      throws JobExecutionAlreadyRunningException, JobRestartException,
+      JobInstanceAlreadyCompleteException {
+    flushPendingContextUpdate();
+
+    Assert.notNull(jobName, "Job name must not be null.");
+    Assert.notNull(jobParameters, "JobParameters must not be null.");
+
+    /*
+     * Find the job matching the runtime information, or create it if there is
+     * none. Concurrent launches of the same job instance are resolved by the
+     * database service, so only one of them creates it.
+     */
+    JobInstanceResultDto jobInstanceResult = jobInstanceDao.getOrCreateJobInstance(jobName,
+        jobParameters);
+    JobInstance jobInstance = jobInstanceResult.getJobInstance();
+    ExecutionContext executionContext;
+
+    // existing job instance found
+    if (!jobInstanceResult.isCreated()) {
+
+      List<JobExecution> executions = jobExecutionDao.findJobExecutions(jobInstance);
+
+      // A concurrent launch which has created the job instance has not saved its job execution yet
+      if (executions.isEmpty()) {
+        throw new JobExecutionAlreadyRunningException(
+            "A job execution for this job is already being launched: " + jobInstance);
+      }
+
+      // check for running executions and find the last started
+      for (JobExecution execution : executions) {
+        if (execution.isRunning() || execution.isStopping()) {
+          throw new JobExecutionAlreadyRunningException(
+              "A job execution for this job is already running: " + jobInstance);
+        }
+        BatchStatus status = execution.getStatus();
+        if (status == BatchStatus.UNKNOWN) {
+          throw new JobRestartException("Cannot restart job from UNKNOWN status. "
+              + "The last execution ended with a failure that could not be rolled back, "
+              + "so it may be dangerous to proceed. Manual intervention is probably necessary.");
+        }
+        long identifyingJobParametersCount = execution.getJobParameters().getParameters()
+            .values().stream()
+            .filter(JobParameter::isIdentifying)
+            .count();
+        if (identifyingJobParametersCount > 0
+            && (status == BatchStatus.COMPLETED || status == BatchStatus.ABANDONED)) {
+          throw new JobInstanceAlreadyCompleteException(
+              "A job instance already exists and is complete for parameters=" + jobParameters
+                  + ".  If you want to run this job again, change the parameters.");
+        }
+      }
+      executionContext = ecDao.getExecutionContext(
+          jobExecutionDao.getLastJobExecution(jobInstance));
+    } else {
+      // no job found, one has been created
+      executionContext = new ExecutionContext();
+    }
+
+    return launchJobExecution(jobInstance, jobParameters, executionContext, null);
+  }
+
+  @Override
+  public JobExecution createJobExecution(JobInstance jobInstance, JobParameters jobParameters,
+      String jobConfigurationLocation) {
+    flushPendingContextUpdate();
+
+    Assert.notNull(jobInstance, "A JobInstance is required to associate the JobExecution with");
+    Assert.notNull(jobParameters, "A JobParameters object is required to create a JobExecution");
+
+    return launchJobExecution(jobInstance, jobParameters, new ExecutionContext(),
+        jobConfigurationLocation);
+  }
+
+  @Override
+  public JobInstance createJobInstance(String jobName, JobParameters jobParameters) {
+    flushPendingContextUpdate();
+    return super.createJobInstance(jobName, jobParameters);
+  }
+
+  @Override
+  public void update(JobExecution jobExecution) {
+    flushPendingContextUpdate();
+    super.update(jobExecution);
+  }
+
+  @Override
+  public void updateExecutionContext(JobExecution jobExecution) {
+    flushPendingContextUpdate();
+    super.updateExecutionContext(jobExecution);
+  }
+
+  @Override
+  public void add(StepExecution stepExecution) {
+    flushPendingContextUpdate();
+    super.add(stepExecution);
+  }
+
+  @Override
+  public void addAll(Collection<StepExecution> stepExecutions) {
+    flushPendingContextUpdate();
+    super.addAll(stepExecutions);
+  }
+
+  @Override
+  @Nullable
+  public StepExecution getLastStepExecution(JobInstance jobInstance, String stepName) {
+    flushPendingContextUpdate();
+    return super.getLastStepExecution(jobInstance, stepName);
+  }
+
+  @Override
+  public int getStepExecutionCount(JobInstance jobInstance, String stepName) {
+    flushPendingContextUpdate();
+    return super.getStepExecutionCount(jobInstance, stepName);
+  }
+
+  @Override
+  @Nullable
+  public JobExecution getLastJobExecution(String jobName, JobParameters jobParameters) {
+    flushPendingContextUpdate();
+    return super.getLastJobExecution(jobName, jobParameters);
+  }
+
+  /**
+   * Save a new job execution together with its parameters and execution context in one call.
+   */
+  private JobExecution launchJobExecution(JobInstance jobInstance, JobParameters jobParameters,
+      ExecutionContext executionContext, String jobConfigurationLocation) {
+    JobExecution jobExecution = new JobExecution(jobInstance, jobParameters,
+        jobConfigurationLocation);
+    jobExecution.setExecutionContext(executionContext);
+    jobExecution.setLastUpdated(new Date(System.currentTimeMillis()));
+
+    jobExecutionDao.launchJobExecution(jobExecution,
+        ecDao.createExecutionContextInsert(jobExecution));
+    return jobExecution;
+  }
+
+  /**
+   * Persist the step execution context held back on the current thread, if any.
+   */
+  private void flushPendingContextUpdate() {
+    StepExecution pending = pendingContextUpdate.get();
+    if (pending != null) {
+      pendingContextUpdate.remove();
+      ecDao.updateExecutionContext(pending);
+    }
+  }
+
+  private void validateStepExecution(StepExecution stepExecution) {
+    Assert.notNull(stepExecution, "StepExecution cannot be null.");
+    Assert.notNull(stepExecution.getStepName(), "StepExecution's step name cannot be null.");
+    Assert.notNull(stepExecution.getJobExecutionId(),
+        "StepExecution must belong to persisted JobExecution");
+  }
+
+  /**
+   * Check to determine whether or not the JobExecution that is the parent of the provided
+   * StepExecution has been interrupted. If, after synchronizing the status with the database, the
+   * status has been updated to STOPPING, then the job has been interrupted.
+   */
+  private void checkForInterruption(StepExecution stepExecution) {
+    JobExecution jobExecution = stepExecution.getJobExecution();
+    jobExecutionDao.synchronizeStatus(jobExecution);
+    if (jobExecution.isStopping()) {
+      log.info("Parent JobExecution is stopped, so passing message on to StepExecution");
+      stepExecution.setTerminateOnly();
+    }
+  }
+}
@@ -0,0 +1,154 @@
+package com.restbatch.batchservice.dao;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.repository.dao.Jackson2ExecutionContextStringSerializer;
+
+class CompactExecutionContextSerializerTest {
+
+  private final CompactExecutionContextSerializer serializer =
+      new CompactExecutionContextSerializer();
+
+  @Test
+  void roundTripsEveryTag() throws IOException {
+    Map<String, Object> context = new HashMap<>();
+    context.put("null", null);
+    context.put("string", "résumé € \u0000 😀");
+    context.put("emptyString", "");
+    context.put("integer", Integer.MIN_VALUE);
+    context.put("long", Long.MAX_VALUE);
+    context.put("negativeLong", -1L);
+    context.put("double", Math.PI);
+    context.put("nan", Double.NaN);
+    context.put("float", -0.5f);
+    context.put("true", true);
+    context.put("false", false);
+    context.put("short", Short.MIN_VALUE);
+    context.put("byte", (byte) 0x9F);
+    context.put("character", '\u0080');
+    context.put("date", new Date(1_660_000_000_123L));
+    context.put("hashMap", new HashMap<>(Map.of("a", 1, "b", "two")));
+    context.put("linkedHashMap", new LinkedHashMap<>(Map.of("c", 3L)));
+
+    assertThat(roundTrip(context)).isEqualTo(context);
+  }
+
+  @Test
+  void roundTripsNestedMapsKeepingTheirTypeAndOrder() throws IOException {
+    LinkedHashMap<String, Object> ordered = new LinkedHashMap<>();
+    ordered.put("z", 1);
+    ordered.put("a", new HashMap<>(Map.of("inner", new Date(0L))));
+    ordered.put("m", null);
+    HashMap<String, Object> outer = new HashMap<>();
+    outer.put("ordered", ordered);
+    outer.put("empty", new LinkedHashMap<>());
+    Map<String, Object> context = Map.of("outer", outer);
+
+    Map<String, Object> deserialized = roundTrip(context);
+
+    assertThat(deserialized).isEqualTo(context);
+    Map<?, ?> outerCopy = (Map<?, ?>) deserialized.get("outer");
+    assertThat(outerCopy).isExactlyInstanceOf(HashMap.class);
+    assertThat(outerCopy.get("empty")).isExactlyInstanceOf(LinkedHashMap.class);
+    assertThat(outerCopy.get("ordered")).isExactlyInstanceOf(LinkedHashMap.class);
+    assertThat(new ArrayList<Object>(((Map<?, ?>) outerCopy.get("ordered")).keySet()))
+        .containsExactly("z", "a", "m");
+  }
+
+  @Test
+  void roundTripsOtherTypesThroughTheFallbackSerializer() throws IOException {
+    List<String> list = new ArrayList<>(List.of("x", "y"));
+    Map<String, Object> context = new HashMap<>();
+    context.put("list", list);
+    context.put("decimal", new BigDecimal("12345.678900"));
+    context.put("mapWithNumberKeys", new HashMap<>(Map.of(1, "one")));
+    context.put("string", "kept compact");
+
+    Map<String, Object> deserialized = roundTrip(context);
+
+    assertThat(deserialized.get("list")).isEqualTo(list);
+    assertThat(deserialized.get("decimal")).isEqualTo(new BigDecimal("12345.678900"));
+    assertThat(deserialized.get("mapWithNumberKeys")).isInstanceOf(Map.class);
+    assertThat(deserialized.get("string")).isEqualTo("kept compact");
+  }
+
+  @Test
+  void deserializesLegacyJsonWithoutTheHeader() throws IOException {
+    Map<String, Object> context = new HashMap<>();
+    context.put("count", 42);
+    context.put("name", "legacy");
+    ByteArrayOutputStream json = new ByteArrayOutputStream();
+    new Jackson2ExecutionContextStringSerializer().serialize(context, json);
+
+    Map<String, Object> deserialized =
+        serializer.deserialize(new ByteArrayInputStream(json.toByteArray()));
+
+    assertThat(deserialized).isEqualTo(context);
+  }
+
+  @Test
+  void writesPrintableAsciiOnly() throws IOException {
+    Map<String, Object> context = new HashMap<>();
+    context.put("string", "\u0000\u0080\u009fÿ");
+    context.put("byte", (byte) 0x80);
+    context.put("long", -1L);
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    serializer.serialize(context, out);
+    byte[] serialized = out.toByteArray();
+
+    assertThat(new String(serialized, StandardCharsets.US_ASCII))
+        .startsWith(CompactExecutionContextSerializer.COMPACT_HEADER);
+    for (byte b : serialized) {
+      assertThat(b).isBetween((byte) 0x20, (byte) 0x7E);
+    }
+  }
+
+  @Test
+  void rejectsUnknownFormatVersion() {
+    byte[] serialized = (CompactExecutionContextSerializer.COMPACT_HEADER
+        + Base64.getEncoder().encodeToString(new byte[]{2, 0}))
+        .getBytes(StandardCharsets.US_ASCII);
+
+    assertThatThrownBy(() -> serializer.deserialize(new ByteArrayInputStream(serialized)))
+        .isInstanceOf(IOException.class)
+        .hasMessageContaining("version 2");
+  }
+
+  @Test
+  void rejectsTruncatedContext() throws IOException {
+    String serialized = new String(
+        serializer.serialize(Map.of("key", "a value long enough to be cut")),
+        StandardCharsets.US_ASCII);
+    String truncated = serialized.substring(0, serialized.length() - 8);
+
+    assertThatThrownBy(() -> serializer.deserialize(
+        new ByteArrayInputStream(truncated.getBytes(StandardCharsets.US_ASCII))))
+        .isInstanceOf(IOException.class);
+  }
+
+  /**
+   * Goes through the ISO-8859-1 string the context is stored as.
+   */
+  private Map<String, Object> roundTrip(Map<String, Object> context) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    serializer.serialize(context, out);
+    String stored = out.toString(StandardCharsets.ISO_8859_1);
+    return serializer.deserialize(
+        new ByteArrayInputStream(stored.getBytes(StandardCharsets.ISO_8859_1)));
+  }
+}
@@ -0,0 +1,78 @@
+package com.restbatch.batchservice.dao;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.restbatch.batchservice.dto.ExecutionContextDeltaDto;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Test;
+
+class ExecutionContextDeltasTest {
+
+  private static final String PADDING = "\"padding\":\"" + "x".repeat(200) + "\"";
+
+  private final ExecutionContextDeltas deltas = new ExecutionContextDeltas(1024);
+
+  @Test
+  void findsEntriesPutAndRemoved() {
+    String content = "{\"a\":2,\"b\":\"same\",\"d\":null," + PADDING + "}";
+
+    ExecutionContextDeltaDto delta = diff(
+        "{\"a\":1,\"b\":\"same\",\"c\":true," + PADDING + "}", content);
+
+    assertThat(delta).isNotNull();
+    assertThat(delta.getPutEntries()).isEqualTo("{\"a\":2,\"d\":null}");
+    assertThat(delta.getRemovedKeys()).containsExactly("c");
+    assertThat(ExecutionContextDeltas.isEmpty(delta)).isFalse();
+  }
+
+  @Test
+  void ignoresTheOrderOfTheEntries() {
+    ExecutionContextDeltaDto delta = diff(
+        "{\"a\":1,\"nested\":{\"x\":1,\"y\":2}," + PADDING + "}",
+        "{" + PADDING + ",\"nested\":{\"y\":2,\"x\":1},\"a\":1}");
+
+    assertThat(delta).isNotNull();
+    assertThat(ExecutionContextDeltas.isEmpty(delta)).isTrue();
+  }
+
+  @Test
+  void comparesNumbersAsWritten() {
+    String base = "{\"decimal\":1.50,\"integer\":1," + PADDING + "}";
+
+    assertThat(ExecutionContextDeltas.isEmpty(diff(base, base))).isTrue();
+
+    ExecutionContextDeltaDto delta = diff(base,
+        "{\"decimal\":1.5,\"integer\":1.0," + PADDING + "}");
+    assertThat(delta).isNotNull();
+    assertThat(delta.getPutEntries()).isEqualTo("{\"decimal\":1.5,\"integer\":1.0}");
+  }
+
+  @Test
+  void sendsNoDeltaNotMuchShorterThanTheContext() {
+    assertThat(diff("{\"a\":1,\"b\":2}", "{\"a\":3,\"b\":4}")).isNull();
+    assertThat(diff("{\"a\":1," + PADDING + "}", "{\"a\":\"" + "y".repeat(300) + "\","
+        + PADDING + "}")).isNull();
+  }
+
+  @Test
+  void parsesJsonObjectsUpToTheMaximumSizeOnly() {
+    assertThat(deltas.parse(bytes("{\"a\":1}"))).isNotNull();
+    assertThat(deltas.parse(bytes("{\"a\":\"" + "x".repeat(1024) + "\"}"))).isNull();
+    assertThat(deltas.parse(bytes("[1,2]"))).isNull();
+    assertThat(deltas.parse(bytes("not json"))).isNull();
+    assertThat(deltas.parse(bytes("compact:AQA="))).isNull();
+  }
+
+  private ExecutionContextDeltaDto diff(String base, String content) {
+    ObjectNode baseTree = deltas.parse(bytes(base));
+    ObjectNode contentTree = deltas.parse(bytes(content));
+    assertThat(baseTree).isNotNull();
+    assertThat(contentTree).isNotNull();
+    return deltas.diff(baseTree, contentTree, bytes(content).length);
+  }
+
+  private static byte[] bytes(String json) {
+    return json.getBytes(StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,88 @@
+package com.restbatch.batchservice.dao;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.restbatch.batchservice.dao.ExecutionContextFingerprints.Fingerprint;
+import com.restbatch.batchservice.dao.ExecutionContextFingerprints.PersistedContext;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.support.transaction.ResourcelessTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+class ExecutionContextFingerprintsTest {
+
+  private final ExecutionContextFingerprints fingerprints = new ExecutionContextFingerprints(2);
+  private final TransactionTemplate transactionTemplate =
+      new TransactionTemplate(new ResourcelessTransactionManager());
+
+  @Test
+  void keepsContextPutOutsideTransaction() {
+    fingerprints.put(1L, persisted("{\"a\":1}"));
+
+    assertThat(fingerprints.isUnchanged(1L, fingerprint("{\"a\":1}"))).isTrue();
+    assertThat(fingerprints.isUnchanged(1L, fingerprint("{\"a\":2}"))).isFalse();
+    assertThat(fingerprints.isUnchanged(2L, fingerprint("{\"a\":1}"))).isFalse();
+  }
+
+  @Test
+  void keepsContextPutInCommittedTransaction() {
+    transactionTemplate.executeWithoutResult(
+        status -> fingerprints.put(1L, persisted("{\"a\":1}")));
+
+    assertThat(fingerprints.isUnchanged(1L, fingerprint("{\"a\":1}"))).isTrue();
+  }
+
+  @Test
+  void forgetsContextPutInRolledBackTransaction() {
+    transactionTemplate.executeWithoutResult(status -> {
+      fingerprints.put(1L, persisted("{\"a\":1}"));
+      // Unchanged within the transaction, which may still commit
+      assertThat(fingerprints.isUnchanged(1L, fingerprint("{\"a\":1}"))).isTrue();
+      status.setRollbackOnly();
+    });
+
+    assertThat(fingerprints.isUnchanged(1L, fingerprint("{\"a\":1}"))).isFalse();
+    assertThat(fingerprints.get(1L)).isNull();
+  }
+
+  @Test
+  void keepsContextPutAfterRolledBackOne() {
+    transactionTemplate.executeWithoutResult(status -> {
+      fingerprints.put(1L, persisted("{\"a\":1}"));
+      fingerprints.put(1L, persisted("{\"a\":2}"));
+      status.setRollbackOnly();
+    });
+    fingerprints.put(1L, persisted("{\"a\":3}"));
+
+    transactionTemplate.executeWithoutResult(status -> {
+      fingerprints.put(2L, persisted("{\"b\":1}"));
+      status.setRollbackOnly();
+    });
+
+    assertThat(fingerprints.isUnchanged(1L, fingerprint("{\"a\":3}"))).isTrue();
+  }
+
+  @Test
+  void keepsMostRecentlyUsedContextsOnly() {
+    fingerprints.put(1L, persisted("{\"a\":1}"));
+    fingerprints.put(2L, persisted("{\"b\":1}"));
+    fingerprints.get(1L);
+    fingerprints.put(3L, persisted("{\"c\":1}"));
+
+    assertThat(fingerprints.get(1L)).isNotNull();
+    assertThat(fingerprints.get(2L)).isNull();
+    assertThat(fingerprints.get(3L)).isNotNull();
+
+    fingerprints.evict(3L);
+    assertThat(fingerprints.get(3L)).isNull();
+  }
+
+  private static PersistedContext persisted(String context) {
+    Fingerprint fingerprint = fingerprint(context);
+    return new PersistedContext(fingerprint, fingerprint.toVersion(), null);
+  }
+
+  private static Fingerprint fingerprint(String context) {
+    return ExecutionContextFingerprints.of(context.getBytes(StandardCharsets.UTF_8));
+  }
+}
@@ -0,0 +1,123 @@
+package com.restbatch.batchservice.dao;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
+import org.junit.jupiter.api.Test;
+
+class ExecutionIdPoolTest {
+
+  private final AtomicLong sequence = new AtomicLong();
+  private final List<Integer> allocations = new CopyOnWriteArrayList<>();
+
+  private final IntFunction<List<Long>> allocator = count -> {
+    allocations.add(count);
+    List<Long> ids = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      ids.add(sequence.incrementAndGet());
+    }
+    return ids;
+  };
+
+  @Test
+  void handsOutIdsInReservedOrder() {
+    Queue<Runnable> refills = new ArrayDeque<>();
+    ExecutionIdPool pool = new ExecutionIdPool(allocator, 8, refills::add);
+
+    assertThat(pool.next()).isEqualTo(1L);
+    assertThat(pool.next(3)).containsExactly(2L, 3L, 4L);
+    assertThat(pool.next()).isEqualTo(5L);
+    // The first request reserves the missing id along with a whole batch
+    assertThat(allocations).containsExactly(9);
+  }
+
+  @Test
+  void refillsOnceAtAQuarterOfTheBatchSize() {
+    Queue<Runnable> refills = new ArrayDeque<>();
+    ExecutionIdPool pool = new ExecutionIdPool(allocator, 8, refills::add);
+
+    pool.next();
+    // 8 ids left, then down to the threshold of 2
+    pool.next(5);
+    assertThat(refills).isEmpty();
+    pool.next();
+    assertThat(refills).hasSize(1);
+    pool.next();
+    assertThat(refills).hasSize(1);
+
+    refills.poll().run();
+    assertThat(allocations).containsExactly(9, 8);
+    assertThat(pool.next(9)).containsExactly(9L, 10L, 11L, 12L, 13L, 14L, 15L, 16L, 17L);
+    assertThat(allocations).containsExactly(9, 8);
+    assertThat(refills).hasSize(1);
+  }
+
+  @Test
+  void reservesSynchronouslyWhenDry() {
+    Queue<Runnable> refills = new ArrayDeque<>();
+    ExecutionIdPool pool = new ExecutionIdPool(allocator, 4, refills::add);
+
+    assertThat(pool.next(2)).containsExactly(1L, 2L);
+    assertThat(pool.next(6)).containsExactly(3L, 4L, 5L, 6L, 7L, 8L);
+    assertThat(allocations).containsExactly(6, 6);
+  }
+
+  @Test
+  void reservesOnRequestWithoutBatch() {
+    ExecutionIdPool pool = new ExecutionIdPool(allocator, 0, Runnable::run);
+
+    assertThat(pool.next()).isEqualTo(1L);
+    assertThat(pool.next(2)).containsExactly(2L, 3L);
+    assertThat(allocations).containsExactly(1, 2);
+  }
+
+  @Test
+  void concurrentTakersGetDistinctIds() throws Exception {
+    int takers = 8;
+    int takes = 2000;
+    ExecutorService refillExecutor = Executors.newSingleThreadExecutor();
+    ExecutorService takerExecutor = Executors.newFixedThreadPool(takers);
+    try {
+      ExecutionIdPool pool = new ExecutionIdPool(allocator, 50, refillExecutor);
+      CountDownLatch start = new CountDownLatch(1);
+      List<Future<List<Long>>> results = new ArrayList<>();
+      for (int i = 0; i < takers; i++) {
+        int taker = i;
+        results.add(takerExecutor.submit(() -> {
+          start.await();
+          List<Long> ids = new ArrayList<>();
+          for (int j = 0; j < takes; j++) {
+            ids.addAll(taker % 2 == 0 ? List.of(pool.next()) : pool.next(3));
+          }
+          return ids;
+        }));
+      }
+      start.countDown();
+
+      List<Long> taken = new ArrayList<>();
+      for (Future<List<Long>> result : results) {
+        taken.addAll(result.get(30, TimeUnit.SECONDS));
+      }
+      Set<Long> distinct = new HashSet<>(taken);
+      assertThat(distinct).hasSameSizeAs(taken);
+      assertThat(Collections.max(taken)).isLessThanOrEqualTo(sequence.get());
+    } finally {
+      takerExecutor.shutdownNow();
+      refillExecutor.shutdownNow();
+    }
+  }
+}
@@ -0,0 +1,101 @@
+package com.restbatch.batchservice.dao;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.restbatch.batchservice.client.ExecutionContextDaoClient;
+import com.restbatch.batchservice.dto.ExecutionContextDeltaDto;
+import com.restbatch.batchservice.dto.UpdateResultDto;
+import com.restbatch.batchservice.dto.UpdateResultDto.Status;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.repository.dao.Jackson2ExecutionContextStringSerializer;
+
+class RemoteExecutionContextDaoTest {
+
+  private static final String UPDATE_JOB = "updateJobExecutionContext";
+
+  private final ExecutionContextDaoClient client = mock(ExecutionContextDaoClient.class);
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final RemoteExecutionContextDao dao = new RemoteExecutionContextDao();
+  private final JobExecution jobExecution = new JobExecution(1L);
+
+  @BeforeEach
+  void setUp() {
+    dao.setClient(client);
+    dao.setSerializer(new Jackson2ExecutionContextStringSerializer());
+    dao.setMeterRegistry(meterRegistry);
+    dao.afterPropertiesSet();
+
+    jobExecution.getExecutionContext().putString("padding", "x".repeat(500));
+    jobExecution.getExecutionContext().putInt("count", 1);
+    dao.saveExecutionContext(jobExecution);
+  }
+
+  @Test
+  void sendsChangedEntriesAsDelta() {
+    when(client.applyContextDelta(any())).thenReturn(
+        UpdateResultDto.builder().status(Status.UPDATED).contextVersion("merged").build());
+
+    jobExecution.getExecutionContext().putInt("count", 2);
+    dao.updateExecutionContext(jobExecution);
+    jobExecution.getExecutionContext().putInt("count", 3);
+    dao.updateExecutionContext(jobExecution);
+
+    ArgumentCaptor<ExecutionContextDeltaDto> deltas =
+        ArgumentCaptor.forClass(ExecutionContextDeltaDto.class);
+    verify(client, times(2)).applyContextDelta(deltas.capture());
+    assertThat(deltas.getAllValues().get(0).getPutEntries()).contains("\"count\"");
+    assertThat(deltas.getAllValues().get(0).getBaseVersion()).hasSize(64);
+    // The version returned for the merged context is the base of the next delta
+    assertThat(deltas.getAllValues().get(1).getBaseVersion()).isEqualTo("merged");
+    verify(client, never()).persistContextBytes(any(), eq(UPDATE_JOB), anyInt(), anyInt(), any());
+  }
+
+  @Test
+  void persistsFullContextOnVersionConflict() {
+    when(client.applyContextDelta(any())).thenReturn(
+        UpdateResultDto.builder().status(Status.VERSION_CONFLICT).build());
+
+    jobExecution.getExecutionContext().putInt("count", 2);
+    dao.updateExecutionContext(jobExecution);
+
+    ArgumentCaptor<byte[]> persisted = ArgumentCaptor.forClass(byte[].class);
+    verify(client).persistContextBytes(eq(1L), eq(UPDATE_JOB), anyInt(), anyInt(),
+        persisted.capture());
+    assertThat(new String(persisted.getValue())).contains("padding").contains("\"count\"");
+    assertThat(meterRegistry.counter("execution.context.delta.conflicts").count())
+        .isEqualTo(1.0);
+
+    // The full context persisted is the base of the next delta
+    when(client.applyContextDelta(any())).thenReturn(
+        UpdateResultDto.builder().status(Status.UPDATED).contextVersion("merged").build());
+    jobExecution.getExecutionContext().putInt("count", 3);
+    dao.updateExecutionContext(jobExecution);
+    ArgumentCaptor<ExecutionContextDeltaDto> deltas =
+        ArgumentCaptor.forClass(ExecutionContextDeltaDto.class);
+    verify(client, times(2)).applyContextDelta(deltas.capture());
+    assertThat(deltas.getAllValues().get(1).getBaseVersion())
+        .isEqualTo(ExecutionContextFingerprints.of(persisted.getValue()).toVersion());
+  }
+
+  @Test
+  void skipsUnchangedContext() {
+    dao.updateExecutionContext(jobExecution);
+
+    verify(client, never()).applyContextDelta(any());
+    verify(client, never()).persistContextBytes(any(), eq(UPDATE_JOB), anyInt(), anyInt(), any());
+    assertThat(meterRegistry.counter("execution.context.writes.skipped", "context", "job")
+        .count()).isEqualTo(1.0);
+  }
+}
@@ -0,0 +1,129 @@
+package com.restbatch.batchservice.deserializer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.restbatch.wireformat.EpochTimestamps;
+import java.io.IOException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Date;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParameter;
+import org.springframework.batch.core.JobParameter.ParameterType;
+
+class JobExecutionDeserializerTest {
+
+  private static final String EXECUTION = "{\"id\":7,\"version\":2,\"status\":\"COMPLETED\","
+      + "\"exitStatus\":{\"exitCode\":\"COMPLETED\",\"exitDescription\":\"done\"},"
+      + "\"startTime\":%s,\"endTime\":%s,\"createTime\":%s,\"lastUpdated\":%s,"
+      + "\"jobInstance\":{\"id\":3,\"jobName\":\"job\"},\"stepExecutions\":[{\"id\":1}],"
+      + "\"jobParameters\":{\"parameters\":{%s}}}";
+
+  private final ObjectMapper isoMapper = new ObjectMapper().registerModule(deserializers());
+  private final ObjectMapper epochMapper = new ObjectMapper()
+      .registerModule(EpochTimestamps.module())
+      .registerModule(deserializers());
+
+  @Test
+  void readsIsoTimestamps() throws IOException {
+    JobExecution jobExecution = isoMapper.readValue(String.format(EXECUTION,
+        "\"2022-07-01T10:15:30.123456+02:00\"", "\"2022-07-01T08:16:00Z\"",
+        "\"2022-07-01T08:15:00.5\"", "\"2022-07-01T09:17:00.000000001-0100\"",
+        "\"run.id\":{\"value\":1,\"type\":\"LONG\",\"identifying\":true}"), JobExecution.class);
+
+    assertThat(jobExecution.getId()).isEqualTo(7L);
+    assertThat(jobExecution.getVersion()).isEqualTo(2);
+    assertThat(jobExecution.getStatus()).isEqualTo(BatchStatus.COMPLETED);
+    assertThat(jobExecution.getExitStatus().getExitDescription()).isEqualTo("done");
+    assertThat(jobExecution.getStartTime())
+        .isEqualTo(timestamp("2022-07-01T08:15:30.123456Z"));
+    assertThat(jobExecution.getEndTime()).isEqualTo(timestamp("2022-07-01T08:16:00Z"));
+    assertThat(jobExecution.getCreateTime()).isEqualTo(timestamp("2022-07-01T08:15:00.5Z"));
+    assertThat(jobExecution.getLastUpdated())
+        .isEqualTo(timestamp("2022-07-01T10:17:00.000000001Z"));
+    assertThat(jobExecution.getJobParameters().getLong("run.id")).isEqualTo(1L);
+  }
+
+  @Test
+  void readsEpochMicrosTimestamps() throws IOException {
+    JobExecution jobExecution = epochMapper.readValue(String.format(EXECUTION,
+        "1656663330123456", "1656663360000000", "-1", "1656663420000001",
+        "\"date\":{\"value\":1656663330123456,\"type\":\"DATE\",\"identifying\":false}"),
+        JobExecution.class);
+
+    assertThat(jobExecution.getStartTime())
+        .isEqualTo(timestamp("2022-07-01T08:15:30.123456Z"));
+    assertThat(jobExecution.getEndTime()).isEqualTo(timestamp("2022-07-01T08:16:00Z"));
+    assertThat(jobExecution.getCreateTime())
+        .isEqualTo(timestamp("1969-12-31T23:59:59.999999Z"));
+    assertThat(jobExecution.getLastUpdated())
+        .isEqualTo(timestamp("2022-07-01T08:17:00.000001Z"));
+
+    JobParameter date = jobExecution.getJobParameters().getParameters().get("date");
+    assertThat(date.getType()).isEqualTo(ParameterType.DATE);
+    assertThat(date.isIdentifying()).isFalse();
+    assertThat(date.getValue()).isExactlyInstanceOf(Date.class)
+        .isEqualTo(Date.from(Instant.parse("2022-07-01T08:15:30.123Z")));
+  }
+
+  @Test
+  void readsLastUpdatedFromItsOwnField() throws IOException {
+    JobExecution jobExecution = isoMapper.readValue(String.format(EXECUTION,
+        "null", "\"2022-07-01T08:16:00Z\"", "null", "\"2022-07-01T08:17:00Z\"", ""),
+        JobExecution.class);
+
+    assertThat(jobExecution.getStartTime()).isNull();
+    assertThat(jobExecution.getEndTime()).isEqualTo(timestamp("2022-07-01T08:16:00Z"));
+    assertThat(jobExecution.getLastUpdated()).isEqualTo(timestamp("2022-07-01T08:17:00Z"));
+  }
+
+  @Test
+  void readsDateParameterWithoutValueAsNull() throws IOException {
+    JobExecution jobExecution = isoMapper.readValue(String.format(EXECUTION,
+        "null", "null", "null", "null",
+        "\"none\":{\"type\":\"DATE\",\"identifying\":true},"
+            + "\"nullValue\":{\"value\":null,\"type\":\"DATE\",\"identifying\":true},"
+            + "\"iso\":{\"value\":\"2022-07-01T08:15:30.123Z\",\"type\":\"DATE\"}"),
+        JobExecution.class);
+
+    assertThat(jobExecution.getJobParameters().getParameters().get("none").getType())
+        .isEqualTo(ParameterType.DATE);
+    assertThat(jobExecution.getJobParameters().getDate("none")).isNull();
+    assertThat(jobExecution.getJobParameters().getDate("nullValue")).isNull();
+    assertThat(jobExecution.getJobParameters().getDate("iso"))
+        .isExactlyInstanceOf(Date.class)
+        .isEqualTo(Date.from(Instant.parse("2022-07-01T08:15:30.123Z")));
+  }
+
+  @Test
+  void readsUnparsableTimestampAsNull() throws IOException {
+    JobExecution jobExecution = isoMapper.readValue(String.format(EXECUTION,
+        "\"yesterday\"", "\"2022-07-01T08:16:00Zulu\"", "null", "null", ""),
+        JobExecution.class);
+
+    assertThat(jobExecution.getStartTime()).isNull();
+    assertThat(jobExecution.getEndTime()).isNull();
+  }
+
+  @Test
+  void dropsDigitsBeyondNanoseconds() {
+    String text = "2022-07-01T08:15:30.1234567899+00:00";
+
+    assertThat(TimestampDecoder.parse(text.toCharArray(), 0, text.length()))
+        .isEqualTo(timestamp("2022-07-01T08:15:30.123456789Z"));
+  }
+
+  private static Timestamp timestamp(String instant) {
+    return Timestamp.from(Instant.parse(instant));
+  }
+
+  private static SimpleModule deserializers() {
+    SimpleModule module = new SimpleModule();
+    module.addDeserializer(JobExecution.class, new JobExecutionDeserializer());
+    return module;
+  }
+}
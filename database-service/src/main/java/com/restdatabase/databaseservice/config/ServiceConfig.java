@@ -2,34 +2,72 @@ package com.restdatabase.databaseservice.config;
 
 import java.sql.SQLException;
 import javax.sql.DataSource;
+import com.restdatabase.databaseservice.service.SequenceRangeIncrementer;
 import lombok.RequiredArgsConstructor;
 import org.springframework.batch.item.database.support.DataFieldMaxValueIncrementerFactory;
 import org.springframework.batch.item.database.support.DefaultDataFieldMaxValueIncrementerFactory;
 import org.springframework.batch.support.DatabaseType;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.jdbc.init.DataSourceScriptDatabaseInitializer;
+import org.springframework.boot.jdbc.init.PlatformPlaceholderDatabaseDriverResolver;
+import org.springframework.boot.sql.init.DatabaseInitializationMode;
+import org.springframework.boot.sql.init.DatabaseInitializationSettings;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.PropertySource;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.support.incrementer.DataFieldMaxValueIncrementer;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
+ * The defaults of the service properties are in {@code database-service.properties}, so that
+ * they also apply when the services run inside the batch service; the application properties
+ * override them.
+ * <p>
+ * The table of the offloaded contexts is created from the
+ * {@code schema-context-blob-<platform>.sql} script of the database while the offload is
+ * enabled, the same way as the Spring Batch tables are; like those scripts, it assumes the
+ * default table prefix.
+ *
  * @author Anton Belousov
  * @since 0.0.1-SNAPSHOT
  */
 @Configuration
+@PropertySource("classpath:database-service.properties")
+@EnableScheduling
 @RequiredArgsConstructor
 public class ServiceConfig {
 
+  private static final String CONTEXT_BLOB_SCHEMA =
+      "optional:classpath:com/restdatabase/databaseservice/schema-context-blob-@@platform@@.sql";
+
   private final DataSource dataSource;
 
   @Value("${table.prefix}")
   private String tablePrefix;
 
+  @Value("${context-offload.enabled}")
+  private boolean offloadEnabled;
+
+  @Value("${context-offload.initialize-schema}")
+  private DatabaseInitializationMode offloadInitializeSchema;
+
   @Bean
   public JdbcTemplate jdbcTemplate() {
     return new JdbcTemplate(dataSource);
   }
 
+  @Bean
+  public DataSourceScriptDatabaseInitializer contextBlobSchemaInitializer() {
+    DatabaseInitializationSettings settings = new DatabaseInitializationSettings();
+    settings.setSchemaLocations(new PlatformPlaceholderDatabaseDriverResolver()
+        .resolveAll(dataSource, CONTEXT_BLOB_SCHEMA));
+    settings.setMode(offloadEnabled ? offloadInitializeSchema : DatabaseInitializationMode.NEVER);
+    // The table is there once created, the same way as with the Spring Batch schema
+    settings.setContinueOnError(true);
+    return new DataSourceScriptDatabaseInitializer(dataSource, settings);
+  }
+
   @Bean
   public DataFieldMaxValueIncrementerFactory incrementerFactory() {
     return new DefaultDataFieldMaxValueIncrementerFactory(dataSource);
@@ -48,12 +86,19 @@ public class ServiceConfig {
   }
 
   @Bean
-  public DataFieldMaxValueIncrementer jobExecutionIncrementer() throws SQLException {
-    return incrementerFactory().getIncrementer(databaseType(), tablePrefix + "JOB_EXECUTION_SEQ");
+  public SequenceRangeIncrementer jobExecutionIncrementer() throws SQLException {
+    return createRangeIncrementer(tablePrefix + "JOB_EXECUTION_SEQ");
   }
 
   @Bean
-  public DataFieldMaxValueIncrementer stepExecutionIncrementer() throws SQLException {
-    return incrementerFactory().getIncrementer(databaseType(), tablePrefix + "STEP_EXECUTION_SEQ");
+  public SequenceRangeIncrementer stepExecutionIncrementer() throws SQLException {
+    return createRangeIncrementer(tablePrefix + "STEP_EXECUTION_SEQ");
+  }
+
+  private SequenceRangeIncrementer createRangeIncrementer(String sequenceName)
+      throws SQLException {
+    return new SequenceRangeIncrementer(
+        incrementerFactory().getIncrementer(databaseType(), sequenceName), jdbcTemplate(),
+        DatabaseType.valueOf(databaseType()), sequenceName);
   }
 }
@@ -0,0 +1,40 @@
+package com.restdatabase.databaseservice.config;
+
+import org.apache.catalina.connector.Connector;
+import org.apache.coyote.http2.Http2Protocol;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.StringUtils;
+
+/**
+ * Lets co-located batch services call this service through a Unix domain socket, besides the TCP
+ * port, if a socket path is configured. Requires Java 16 or later.
+ *
+ * @author Anton Belousov
+ * @since 0.0.1-SNAPSHOT
+ */
+@Configuration
+public class UnixDomainSocketConfig
+    implements WebServerFactoryCustomizer<TomcatServletWebServerFactory> {
+
+  @Value("${unix-socket.path}")
+  private String path;
+
+  @Value("${server.http2.enabled}")
+  private boolean http2Enabled;
+
+  @Override
+  public void customize(TomcatServletWebServerFactory factory) {
+    if (!StringUtils.hasText(path)) {
+      return;
+    }
+    Connector connector = new Connector(TomcatServletWebServerFactory.DEFAULT_PROTOCOL);
+    connector.setProperty("unixDomainSocketPath", path);
+    if (http2Enabled) {
+      connector.addUpgradeProtocol(new Http2Protocol());
+    }
+    factory.addAdditionalTomcatConnectors(connector);
+  }
+}
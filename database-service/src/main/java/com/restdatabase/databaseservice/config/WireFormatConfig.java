@@ -0,0 +1,40 @@
+package com.restdatabase.databaseservice.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.restbatch.wireformat.EpochTimestamps;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+
+/**
+ * Lets the clients negotiate the wire format through the {@code Accept} and {@code Content-Type}
+ * headers, while plain json is still served by default. Besides json, there are the
+ * {@link EpochTimestamps} json and CBOR, a binary encoding of the same objects, which also writes
+ * dates and timestamps as epoch microseconds.
+ *
+ * @author Anton Belousov
+ * @since 0.0.1-SNAPSHOT
+ */
+@Configuration
+public class WireFormatConfig {
+
+  @Bean
+  public MappingJackson2HttpMessageConverter mappingJackson2HttpMessageConverter(
+      ObjectMapper objectMapper) {
+    MappingJackson2HttpMessageConverter converter =
+        new MappingJackson2HttpMessageConverter(objectMapper);
+    EpochTimestamps.register(converter);
+    return converter;
+  }
+
+  @Bean
+  public MappingJackson2CborHttpMessageConverter mappingJackson2CborHttpMessageConverter(
+      Jackson2ObjectMapperBuilder objectMapperBuilder) {
+    ObjectMapper cborMapper = objectMapperBuilder.factory(new CBORFactory()).build();
+    cborMapper.registerModule(EpochTimestamps.module());
+    return new MappingJackson2CborHttpMessageConverter(cborMapper);
+  }
+}
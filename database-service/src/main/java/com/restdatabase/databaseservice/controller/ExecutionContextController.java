@@ -1,16 +1,24 @@
 package com.restdatabase.databaseservice.controller;
 
+import com.restdatabase.databaseservice.dto.ExecutionContextDeltaDto;
 import com.restdatabase.databaseservice.dto.SerializedContextDto;
 import com.restdatabase.databaseservice.dto.SerializedContextsDto;
+import com.restdatabase.databaseservice.dto.UpdateResultDto;
 import com.restdatabase.databaseservice.service.ExecutionContextService;
+import java.io.InputStream;
 import lombok.RequiredArgsConstructor;
 import org.springframework.batch.item.ExecutionContext;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 /**
  * @author Anton Belousov
@@ -42,4 +50,35 @@ public class ExecutionContextController {
   public void persistSerializedContexts(@RequestBody SerializedContextsDto ctxDto) {
     dao.persistSerializedContexts(ctxDto);
   }
+
+  @GetMapping(value = "/getJobExecutionContextBytes",
+      produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+  public ResponseEntity<StreamingResponseBody> getJobExecutionContextBytes(
+      @RequestParam Long executionId) {
+    return ResponseEntity.ok().contentType(MediaType.APPLICATION_OCTET_STREAM)
+        .body(out -> dao.writeJobExecutionContext(executionId, out));
+  }
+
+  @GetMapping(value = "/getStepExecutionContextBytes",
+      produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+  public ResponseEntity<StreamingResponseBody> getStepExecutionContextBytes(
+      @RequestParam Long executionId) {
+    return ResponseEntity.ok().contentType(MediaType.APPLICATION_OCTET_STREAM)
+        .body(out -> dao.writeStepExecutionContext(executionId, out));
+  }
+
+  @PostMapping(value = "/persistContextBytes",
+      consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+  public void persistContextBytes(@RequestParam Long executionId, @RequestParam String sqlType,
+      @RequestParam int shortContextLength, @RequestParam int clobTypeToUse,
+      @RequestHeader(value = HttpHeaders.CONTENT_LENGTH, required = false) Long contentLength,
+      InputStream context) {
+    dao.persistContext(executionId, context, contentLength != null ? contentLength : -1,
+        sqlType, shortContextLength, clobTypeToUse);
+  }
+
+  @PostMapping("/applyContextDelta")
+  public UpdateResultDto applyContextDelta(@RequestBody ExecutionContextDeltaDto delta) {
+    return dao.applyContextDelta(delta);
+  }
 }
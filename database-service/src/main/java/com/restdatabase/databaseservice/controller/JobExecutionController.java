@@ -1,18 +1,27 @@
 package com.restdatabase.databaseservice.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.restdatabase.databaseservice.dto.JobExecutionGraphDto;
+import com.restdatabase.databaseservice.dto.JobExecutionLaunchDto;
+import com.restdatabase.databaseservice.dto.UpdateResultDto;
 import com.restdatabase.databaseservice.dto.holder.JobExecutionHolder;
 import com.restdatabase.databaseservice.dto.holder.JobExecutionParamHolder;
 import com.restdatabase.databaseservice.service.JobExecutionService;
+import com.restdatabase.databaseservice.service.JobExecutionStatusService;
 import java.util.List;
 import java.util.Set;
 import lombok.RequiredArgsConstructor;
 import org.springframework.batch.core.JobExecution;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 /**
  * @author Anton Belousov
@@ -24,6 +33,15 @@ import org.springframework.web.bind.annotation.RestController;
 public class JobExecutionController {
 
   private final JobExecutionService dao;
+  private final JobExecutionStatusService statusService;
+  private final ObjectMapper objectMapper;
+
+  @GetMapping(value = "/streamJobExecutions", produces = MediaType.APPLICATION_NDJSON_VALUE)
+  public ResponseEntity<StreamingResponseBody> streamJobExecutions(
+      @RequestParam Long jobInstanceId) {
+    return NdjsonResponse.<JobExecution>of(objectMapper,
+        action -> dao.findJobExecutions(jobInstanceId, action));
+  }
 
   @GetMapping("/findJobExecutions")
   public List<JobExecution> findJobExecutions(@RequestParam Long jobInstanceId) {
@@ -35,13 +53,18 @@ public class JobExecutionController {
     return dao.saveJobExecution(holder);
   }
 
+  @PostMapping("/launchJobExecution")
+  public Long launchJobExecution(@RequestBody JobExecutionLaunchDto launchDto) {
+    return dao.launchJobExecution(launchDto);
+  }
+
   @GetMapping("/countJobExecutions")
   public Integer countJobExecutions(@RequestParam Long jobExecutionId) {
     return dao.countJobExecutions(jobExecutionId);
   }
 
   @PostMapping("/updateJobExecution")
-  public Integer updateJobExecution(@RequestBody JobExecutionHolder holder) {
+  public UpdateResultDto updateJobExecution(@RequestBody JobExecutionHolder holder) {
     return dao.updateJobExecution(holder);
   }
 
@@ -65,6 +88,17 @@ public class JobExecutionController {
     return dao.getJobExecution(executionId);
   }
 
+  @GetMapping("/getJobExecutionGraph")
+  public JobExecutionGraphDto getJobExecutionGraph(@RequestParam Long executionId) {
+    return dao.getJobExecutionGraph(executionId);
+  }
+
+  @GetMapping(value = "/statusStream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  public SseEmitter statusStream(@RequestParam(required = false) Set<Long> jobExecutionId,
+      @RequestParam(required = false) Set<String> jobName) {
+    return statusService.subscribe(jobExecutionId, jobName);
+  }
+
   @GetMapping("/findRunningJobExecutions")
   public Set<JobExecution> findRunningJobExecutions(@RequestParam String jobName) {
     return dao.findRunningJobExecutions(jobName);
@@ -74,4 +108,14 @@ public class JobExecutionController {
   public void createJobParameters(@RequestBody JobExecutionParamHolder holder) {
     dao.createJobParameters(holder);
   }
+
+  @PostMapping("/insertJobParameters")
+  public void insertJobParameters(@RequestBody List<JobExecutionParamHolder> holders) {
+    dao.insertJobParameters(holders);
+  }
+
+  @GetMapping("/nextJobExecutionIds")
+  public List<Long> nextJobExecutionIds(@RequestParam int count) {
+    return dao.nextJobExecutionIds(count);
+  }
 }
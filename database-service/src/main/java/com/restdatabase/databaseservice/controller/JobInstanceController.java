@@ -1,15 +1,21 @@
 package com.restdatabase.databaseservice.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.restdatabase.databaseservice.dto.JobInstancePageDto;
+import com.restdatabase.databaseservice.dto.JobInstanceResultDto;
 import com.restdatabase.databaseservice.service.JobInstanceService;
 import java.util.List;
 import lombok.RequiredArgsConstructor;
 import org.springframework.batch.core.JobInstance;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 /**
  * @author Anton Belousov
@@ -21,12 +27,19 @@ import org.springframework.web.bind.annotation.RestController;
 public class JobInstanceController {
 
   private final JobInstanceService dao;
+  private final ObjectMapper objectMapper;
 
   @PostMapping("/createJobInstance")
   public Long createJobInstance(@RequestBody Object[] args) {
     return dao.createJobInstance(args);
   }
 
+  @PostMapping("/getOrCreateJobInstance")
+  public JobInstanceResultDto getOrCreateJobInstance(@RequestParam String jobName,
+      @RequestParam String jobKey) {
+    return dao.getOrCreateJobInstance(jobName, jobKey);
+  }
+
   @GetMapping("/getJobInstance")
   public List<JobInstance> getJobInstance(@RequestParam String jobName,
       @RequestParam String jobKey) {
@@ -49,6 +62,12 @@ public class JobInstanceController {
     return dao.getJobInstances(jobName, start, count);
   }
 
+  @GetMapping("/getJobInstancesPage")
+  public JobInstancePageDto getJobInstancesPage(@RequestParam String jobName,
+      @RequestParam(required = false) String pageToken, @RequestParam int count) {
+    return dao.getJobInstancesPage(jobName, pageToken, count);
+  }
+
   @GetMapping("/getLastJobInstance")
   public JobInstance getLastJobInstance(@RequestParam String jobName) {
     return dao.getLastJobInstance(jobName);
@@ -69,4 +88,17 @@ public class JobInstanceController {
       @RequestParam int start, @RequestParam int count) {
     return dao.findJobInstancesByName(jobName, start, count);
   }
+
+  @GetMapping(value = "/streamJobInstancesByName", produces = MediaType.APPLICATION_NDJSON_VALUE)
+  public ResponseEntity<StreamingResponseBody> streamJobInstancesByName(
+      @RequestParam String jobName) {
+    return NdjsonResponse.<JobInstance>of(objectMapper,
+        action -> dao.findJobInstancesByName(jobName, action));
+  }
+
+  @GetMapping("/findJobInstancesByNamePage")
+  public JobInstancePageDto findJobInstancesByNamePage(@RequestParam String jobName,
+      @RequestParam(required = false) String pageToken, @RequestParam int count) {
+    return dao.findJobInstancesByNamePage(jobName, pageToken, count);
+  }
 }
@@ -0,0 +1,49 @@
+package com.restdatabase.databaseservice.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+/**
+ * Response writing rows as newline-delimited JSON while they are read from the database, so that
+ * the memory needed to serve a listing does not depend on its size.
+ *
+ * @author Anton Belousov
+ * @since 0.0.1-SNAPSHOT
+ */
+public final class NdjsonResponse {
+
+  private NdjsonResponse() {
+  }
+
+  /**
+   * @param objectMapper the mapper to write the rows with
+   * @param query        the query passing every row it reads to the given action
+   * @param <T>          the type of the rows
+   * @return the streaming response
+   */
+  public static <T> ResponseEntity<StreamingResponseBody> of(ObjectMapper objectMapper,
+      Consumer<Consumer<T>> query) {
+    StreamingResponseBody body = out -> {
+      try (SequenceWriter writer = objectMapper.writer()
+          .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+          .withRootValueSeparator("\n")
+          .writeValues(out)) {
+        query.accept(row -> {
+          try {
+            writer.write(row);
+          } catch (IOException e) {
+            throw new UncheckedIOException(e);
+          }
+        });
+      }
+    };
+    return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+  }
+}
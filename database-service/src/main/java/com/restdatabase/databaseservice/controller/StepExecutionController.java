@@ -1,15 +1,21 @@
 package com.restdatabase.databaseservice.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.restdatabase.databaseservice.dto.StepExecutionCommitDto;
+import com.restdatabase.databaseservice.dto.UpdateResultDto;
 import com.restdatabase.databaseservice.dto.holder.StepExecutionHolder;
 import com.restdatabase.databaseservice.service.StepExecutionService;
 import java.util.List;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 /**
  * @author Anton Belousov
@@ -21,6 +27,7 @@ import org.springframework.web.bind.annotation.RestController;
 public class StepExecutionController {
 
   private final StepExecutionService dao;
+  private final ObjectMapper objectMapper;
 
   @PostMapping("/saveStepExecution")
   public void saveStepExecution(@RequestBody StepExecutionHolder holder) {
@@ -33,10 +40,15 @@ public class StepExecutionController {
   }
 
   @PostMapping("/updateStepExecution")
-  public Integer updateStepExecution(@RequestBody StepExecutionHolder holder) {
+  public UpdateResultDto updateStepExecution(@RequestBody StepExecutionHolder holder) {
     return dao.updateStepExecution(holder);
   }
 
+  @PostMapping("/commitStepExecution")
+  public UpdateResultDto commitStepExecution(@RequestBody StepExecutionCommitDto commitDto) {
+    return dao.commitStepExecution(commitDto);
+  }
+
   @GetMapping("/getStepExecutionVersion")
   public Integer getStepExecutionVersion(@RequestParam Long stepExecutionId) {
     return dao.getStepExecutionVersion(stepExecutionId);
@@ -59,6 +71,13 @@ public class StepExecutionController {
     return dao.getStepExecutions(jobExecutionId);
   }
 
+  @GetMapping(value = "/streamStepExecutions", produces = MediaType.APPLICATION_NDJSON_VALUE)
+  public ResponseEntity<StreamingResponseBody> streamStepExecutions(
+      @RequestParam Long jobExecutionId) {
+    return NdjsonResponse.<StepExecutionHolder>of(objectMapper,
+        action -> dao.getStepExecutions(jobExecutionId, action));
+  }
+
   @GetMapping("/countStepExecutions")
   public Integer countStepExecutions(@RequestParam Long jobInstanceId,
       @RequestParam String stepName) {
@@ -69,4 +88,9 @@ public class StepExecutionController {
   public Long nextStepExecutionId() {
     return dao.nextStepExecutionId();
   }
+
+  @GetMapping("/nextStepExecutionIds")
+  public List<Long> nextStepExecutionIds(@RequestParam int count) {
+    return dao.nextStepExecutionIds(count);
+  }
 }
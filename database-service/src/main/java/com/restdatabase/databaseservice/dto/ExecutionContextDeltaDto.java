@@ -0,0 +1,29 @@
+package com.restdatabase.databaseservice.dto;
+
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Update of a serialized execution context as the entries put and removed since the version
+ * stored. The entries put are a json object in the format of the serialized context.
+ *
+ * @author Anton Belousov
+ * @since 0.0.1-SNAPSHOT
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ExecutionContextDeltaDto {
+
+  private Long executionId;
+  private String sqlType;
+  private String baseVersion;
+  private String putEntries;
+  private List<String> removedKeys;
+  private Integer shortContextLength;
+  private Integer clobTypeToUse;
+}
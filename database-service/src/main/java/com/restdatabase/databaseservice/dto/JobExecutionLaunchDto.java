@@ -0,0 +1,24 @@
+package com.restdatabase.databaseservice.dto;
+
+import com.restdatabase.databaseservice.dto.holder.JobExecutionHolder;
+import com.restdatabase.databaseservice.dto.holder.JobExecutionParamHolder;
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * @author Anton Belousov
+ * @since 0.0.1-SNAPSHOT
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class JobExecutionLaunchDto {
+
+  private JobExecutionHolder jobExecution;
+  private List<JobExecutionParamHolder> jobParameters;
+  private SerializedContextDto executionContext;
+}
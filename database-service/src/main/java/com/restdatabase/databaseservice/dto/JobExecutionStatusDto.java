@@ -0,0 +1,22 @@
+package com.restdatabase.databaseservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * @author Anton Belousov
+ * @since 0.0.1-SNAPSHOT
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class JobExecutionStatusDto {
+
+  private Long jobExecutionId;
+  private String jobName;
+  private Integer version;
+  private String status;
+}
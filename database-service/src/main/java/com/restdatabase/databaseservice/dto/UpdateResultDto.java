@@ -0,0 +1,29 @@
+package com.restdatabase.databaseservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * @author Anton Belousov
+ * @since 0.0.1-SNAPSHOT
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UpdateResultDto {
+
+  private Status status;
+  private Integer currentVersion;
+  private Integer jobExecutionVersion;
+  private String jobExecutionStatus;
+  private String contextVersion;
+
+  public enum Status {
+    UPDATED,
+    NOT_FOUND,
+    VERSION_CONFLICT
+  }
+}
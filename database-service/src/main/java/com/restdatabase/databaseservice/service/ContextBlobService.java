@@ -0,0 +1,57 @@
+package com.restdatabase.databaseservice.service;
+
+import java.io.OutputStream;
+import java.io.Reader;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Content-addressed store of large serialized execution contexts, which holds every distinct
+ * context once, so that the context rows of executions with equal contexts only hold a reference.
+ *
+ * @author Anton Belousov
+ * @since 0.0.1-SNAPSHOT
+ */
+public interface ContextBlobService {
+
+  /**
+   * @param context the serialized context to store
+   * @return the reference to store in place of the context
+   */
+  String store(String context);
+
+  /**
+   * @param context the reader of the serialized context to store, which is closed once read
+   * @return the reference to store in place of the context
+   */
+  String store(Reader context);
+
+  /**
+   * @param stored the value stored in a context row
+   * @return {@code true} if the value is a reference to a stored context
+   */
+  boolean isReference(String stored);
+
+  /**
+   * @param stored the value stored in a context row
+   * @return the referenced context if the value is a reference, the value itself otherwise
+   */
+  String resolve(String stored);
+
+  /**
+   * @param stored the values stored in context rows
+   * @return the referenced contexts by the references among the values
+   */
+  Map<String, String> resolveAll(Collection<String> stored);
+
+  /**
+   * @param reference the reference to a stored context
+   * @param out       the output to write the raw bytes of the referenced context to
+   */
+  void write(String reference, OutputStream out);
+
+  /**
+   * @return the count of the deleted stored contexts which no context row references
+   */
+  int deleteUnreferenced();
+}
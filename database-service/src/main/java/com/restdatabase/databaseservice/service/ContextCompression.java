@@ -0,0 +1,317 @@
+package com.restdatabase.databaseservice.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PushbackReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Compression of the long form of execution contexts. The column holding it is a character large
+ * object, so a compressed context is stored as the codec header followed by the Base64 encoding of
+ * the compressed UTF-8 bytes. Serialized contexts never start with a codec header (json and xml
+ * start with a bracket, Base64 has no colon), so contexts stored before the compression was
+ * enabled, or too short to be compressed, are read as they are.
+ * <p>
+ * The contexts are the ISO-8859-1 decoding of the serializer output, so the streaming variants
+ * work on the raw bytes of the serializer output and map every byte to a single char.
+ *
+ * @author Anton Belousov
+ * @since 0.0.1-SNAPSHOT
+ */
+public class ContextCompression {
+
+  public static final String DEFLATE_HEADER = "deflate:";
+
+  private static final int BUFFER_SIZE = 8 * 1024;
+
+  private ContextCompression() {
+  }
+
+  /**
+   * @param context   the long context to store
+   * @param threshold the minimal length of the context to compress it
+   * @return the context compressed behind the codec header, or the context itself if it is
+   * shorter than the threshold or would not get shorter
+   */
+  public static String compress(String context, int threshold) {
+    if (context == null || context.length() < threshold) {
+      return context;
+    }
+
+    Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    try {
+      deflater.setInput(context.getBytes(StandardCharsets.UTF_8));
+      deflater.finish();
+      ByteArrayOutputStream out = new ByteArrayOutputStream(context.length() / 4);
+      byte[] buffer = new byte[BUFFER_SIZE];
+      while (!deflater.finished()) {
+        out.write(buffer, 0, deflater.deflate(buffer));
+      }
+      String compressed = DEFLATE_HEADER + Base64.getEncoder().encodeToString(out.toByteArray());
+      return compressed.length() < context.length() ? compressed : context;
+    } finally {
+      deflater.end();
+    }
+  }
+
+  /**
+   * @param stored the long context as stored
+   * @return the context, decompressed if it has been stored compressed
+   */
+  public static String decompress(String stored) {
+    if (stored == null || !stored.startsWith(DEFLATE_HEADER)) {
+      return stored;
+    }
+
+    Inflater inflater = new Inflater();
+    try {
+      inflater.setInput(Base64.getDecoder().decode(stored.substring(DEFLATE_HEADER.length())));
+      ByteArrayOutputStream out = new ByteArrayOutputStream(stored.length() * 4);
+      byte[] buffer = new byte[BUFFER_SIZE];
+      while (!inflater.finished()) {
+        int count = inflater.inflate(buffer);
+        if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+          throw new IllegalStateException("Compressed execution context is truncated");
+        }
+        out.write(buffer, 0, count);
+      }
+      return out.toString(StandardCharsets.UTF_8);
+    } catch (DataFormatException e) {
+      throw new IllegalStateException("Compressed execution context is corrupted", e);
+    } finally {
+      inflater.end();
+    }
+  }
+
+  /**
+   * The reader compresses the context while it is read, holding a bounded buffer only. Unlike
+   * {@link #compress(String, int)}, it cannot fall back to the context itself if the compressed
+   * form turns out longer, so its length is only known once it has been read.
+   *
+   * @param context the raw bytes of the serialized context
+   * @return the reader of the context compressed behind the codec header
+   */
+  public static Reader compressingReader(InputStream context) {
+    Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    InputStream compressed = new DeflaterInputStream(new Utf8InputStream(context), deflater,
+        BUFFER_SIZE) {
+      @Override
+      public void close() throws IOException {
+        try {
+          super.close();
+        } finally {
+          deflater.end();
+        }
+      }
+    };
+    return new Base64Reader(DEFLATE_HEADER, compressed);
+  }
+
+  /**
+   * Write the context as stored to the output as the raw bytes of the serialized context,
+   * decompressing it while it is read if it has been stored compressed.
+   *
+   * @param stored the reader of the context as stored
+   * @param out    the output to write the context to
+   * @throws IOException if the context cannot be read or written
+   */
+  public static void decompress(Reader stored, OutputStream out) throws IOException {
+    PushbackReader reader = new PushbackReader(stored, DEFLATE_HEADER.length());
+    if (DEFLATE_HEADER.equals(peek(reader, DEFLATE_HEADER.length()))) {
+      reader.skip(DEFLATE_HEADER.length());
+      try (Reader decompressed = new InputStreamReader(new InflaterInputStream(
+          Base64.getDecoder().wrap(new AsciiInputStream(reader)), new Inflater(), BUFFER_SIZE),
+          StandardCharsets.UTF_8)) {
+        copy(decompressed, out);
+      }
+    } else {
+      copy(reader, out);
+    }
+  }
+
+  /**
+   * @param reader the reader to peek into, which can push back at least the given length
+   * @param length the number of chars to peek
+   * @return the next chars of the reader, which are pushed back, shorter than the given length
+   * only if the reader ends before
+   * @throws IOException if the reader cannot be read
+   */
+  public static String peek(PushbackReader reader, int length) throws IOException {
+    char[] head = new char[length];
+    int count = 0;
+    int read;
+    while (count < length && (read = reader.read(head, count, length - count)) != -1) {
+      count += read;
+    }
+    reader.unread(head, 0, count);
+    return new String(head, 0, count);
+  }
+
+  private static void copy(Reader reader, OutputStream out) throws IOException {
+    char[] chars = new char[BUFFER_SIZE];
+    byte[] bytes = new byte[BUFFER_SIZE];
+    int count;
+    while ((count = reader.read(chars)) != -1) {
+      for (int i = 0; i < count; i++) {
+        bytes[i] = (byte) chars[i];
+      }
+      out.write(bytes, 0, count);
+    }
+  }
+
+  /**
+   * UTF-8 encoding of the chars the bytes of the underlying stream map to in ISO-8859-1.
+   */
+  static class Utf8InputStream extends InputStream {
+
+    private final InputStream in;
+    private final byte[] raw = new byte[BUFFER_SIZE];
+    private int pending = -1;
+
+    Utf8InputStream(InputStream in) {
+      this.in = in;
+    }
+
+    @Override
+    public int read() throws IOException {
+      byte[] b = new byte[1];
+      return read(b, 0, 1) == -1 ? -1 : b[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      if (len == 0) {
+        return 0;
+      }
+      int count = 0;
+      if (pending != -1) {
+        b[off + count++] = (byte) pending;
+        pending = -1;
+        if (count == len) {
+          return count;
+        }
+      }
+
+      // Every byte takes two bytes at most once encoded
+      int length = in.read(raw, 0, Math.min(raw.length, Math.max(1, (len - count) / 2)));
+      for (int i = 0; i < length; i++) {
+        int c = raw[i] & 0xFF;
+        if (c < 0x80) {
+          b[off + count++] = (byte) c;
+          continue;
+        }
+        b[off + count++] = (byte) (0xC0 | (c >> 6));
+        int next = 0x80 | (c & 0x3F);
+        if (count < len) {
+          b[off + count++] = (byte) next;
+        } else {
+          pending = next;
+        }
+      }
+      return count == 0 && length == -1 ? -1 : count;
+    }
+
+    @Override
+    public void close() throws IOException {
+      in.close();
+    }
+  }
+
+  /**
+   * Base64 encoding of the underlying stream behind a header.
+   */
+  static class Base64Reader extends Reader {
+
+    private static final int CHUNK_SIZE = 3 * 1024;
+
+    private final InputStream in;
+    private final byte[] chunk = new byte[CHUNK_SIZE];
+    private String buffer;
+    private int position;
+
+    Base64Reader(String header, InputStream in) {
+      this.in = in;
+      this.buffer = header;
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException {
+      if (len == 0) {
+        return 0;
+      }
+      if (position == buffer.length() && !fill()) {
+        return -1;
+      }
+      int count = Math.min(len, buffer.length() - position);
+      buffer.getChars(position, position + count, cbuf, off);
+      position += count;
+      return count;
+    }
+
+    /**
+     * Encode the next chunk, which is a multiple of 3 bytes unless it is the last one, so that
+     * only the last one is padded.
+     */
+    private boolean fill() throws IOException {
+      int length = in.readNBytes(chunk, 0, CHUNK_SIZE);
+      if (length == 0) {
+        return false;
+      }
+      buffer = Base64.getEncoder().encodeToString(
+          length == CHUNK_SIZE ? chunk : Arrays.copyOf(chunk, length));
+      position = 0;
+      return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+      in.close();
+    }
+  }
+
+  /**
+   * Bytes of the ASCII chars of the underlying reader.
+   */
+  private static class AsciiInputStream extends InputStream {
+
+    private final Reader reader;
+
+    private AsciiInputStream(Reader reader) {
+      this.reader = reader;
+    }
+
+    @Override
+    public int read() throws IOException {
+      return reader.read();
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      if (len == 0) {
+        return 0;
+      }
+      char[] chars = new char[Math.min(len, BUFFER_SIZE)];
+      int count = reader.read(chars);
+      for (int i = 0; i < count; i++) {
+        b[off + i] = (byte) chars[i];
+      }
+      return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+      reader.close();
+    }
+  }
+}
@@ -0,0 +1,49 @@
+package com.restdatabase.databaseservice.service;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * SHA-256 hashes of serialized execution contexts, which key the offloaded contexts and version
+ * the stored ones.
+ *
+ * @author Anton Belousov
+ * @since 0.0.1-SNAPSHOT
+ */
+public final class ContextHashes {
+
+  private ContextHashes() {
+  }
+
+  /**
+   * @param content the content to hash
+   * @return the hex SHA-256 hash of the content
+   */
+  public static String sha256Hex(byte[] content) {
+    return toHex(createDigest().digest(content));
+  }
+
+  /**
+   * @return a new SHA-256 digest
+   */
+  public static MessageDigest createDigest() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not supported", e);
+    }
+  }
+
+  /**
+   * @param digest the digest to format
+   * @return the lower case hex form of the digest
+   */
+  public static String toHex(byte[] digest) {
+    StringBuilder hash = new StringBuilder(digest.length * 2);
+    for (byte b : digest) {
+      hash.append(Character.forDigit((b >> 4) & 0xF, 16))
+          .append(Character.forDigit(b & 0xF, 16));
+    }
+    return hash.toString();
+  }
+}
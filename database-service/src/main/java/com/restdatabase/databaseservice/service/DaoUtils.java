@@ -1,5 +1,9 @@
 package com.restdatabase.databaseservice.service;
 
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import org.springframework.jdbc.core.ArgumentPreparedStatementSetter;
+import org.springframework.jdbc.core.PreparedStatementCreator;
 import org.springframework.util.StringUtils;
 
 /**
@@ -11,4 +15,24 @@ public class DaoUtils {
   public static String getQuery(String base, String tablePrefix) {
     return StringUtils.replace(base, "%PREFIX%", tablePrefix);
   }
+
+  /**
+   * Create a forward-only query which fetches the rows from the database in batches of the given
+   * size while they are read, instead of all at once.
+   *
+   * @param query     the query with its table prefix already set
+   * @param fetchSize the count of rows to fetch per round trip
+   * @param args      the arguments of the query
+   * @return the statement creator of the query
+   */
+  public static PreparedStatementCreator getStreamingQuery(String query, int fetchSize,
+      Object... args) {
+    return con -> {
+      PreparedStatement ps = con.prepareStatement(query, ResultSet.TYPE_FORWARD_ONLY,
+          ResultSet.CONCUR_READ_ONLY);
+      ps.setFetchSize(fetchSize);
+      new ArgumentPreparedStatementSetter(args).setValues(ps);
+      return ps;
+    };
+  }
 }
@@ -1,7 +1,12 @@
 package com.restdatabase.databaseservice.service;
 
+import com.restdatabase.databaseservice.dto.ExecutionContextDeltaDto;
 import com.restdatabase.databaseservice.dto.SerializedContextDto;
 import com.restdatabase.databaseservice.dto.SerializedContextsDto;
+import com.restdatabase.databaseservice.dto.UpdateResultDto;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Map;
 import org.springframework.batch.item.ExecutionContext;
 
 /**
@@ -14,7 +19,27 @@ public interface ExecutionContextService {
 
   ExecutionContext getStepExecutionContext(Long executionId);
 
+  String getSerializedJobExecutionContext(Long executionId);
+
+  Map<Long, String> getSerializedStepExecutionContexts(Long jobExecutionId);
+
   void persistSerializedContext(SerializedContextDto ctxDto);
 
   void persistSerializedContexts(SerializedContextsDto ctxDto);
+
+  byte[] getJobExecutionContextBytes(Long executionId);
+
+  byte[] getStepExecutionContextBytes(Long executionId);
+
+  void persistContextBytes(Long executionId, byte[] context, String sqlType,
+      int shortContextLength, int clobTypeToUse);
+
+  boolean writeJobExecutionContext(Long executionId, OutputStream out);
+
+  boolean writeStepExecutionContext(Long executionId, OutputStream out);
+
+  void persistContext(Long executionId, InputStream context, long contentLength, String sqlType,
+      int shortContextLength, int clobTypeToUse);
+
+  UpdateResultDto applyContextDelta(ExecutionContextDeltaDto delta);
 }
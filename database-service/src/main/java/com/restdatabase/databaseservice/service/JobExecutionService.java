@@ -1,9 +1,13 @@
 package com.restdatabase.databaseservice.service;
 
+import com.restdatabase.databaseservice.dto.JobExecutionGraphDto;
+import com.restdatabase.databaseservice.dto.JobExecutionLaunchDto;
+import com.restdatabase.databaseservice.dto.UpdateResultDto;
 import com.restdatabase.databaseservice.dto.holder.JobExecutionHolder;
 import com.restdatabase.databaseservice.dto.holder.JobExecutionParamHolder;
 import java.util.List;
 import java.util.Set;
+import java.util.function.Consumer;
 import org.springframework.batch.core.JobExecution;
 
 /**
@@ -14,11 +18,15 @@ public interface JobExecutionService {
 
   List<JobExecution> findJobExecutions(Long jobInstanceId);
 
+  void findJobExecutions(Long jobInstanceId, Consumer<JobExecution> action);
+
   Long saveJobExecution(JobExecutionHolder holder);
 
+  Long launchJobExecution(JobExecutionLaunchDto launchDto);
+
   Integer countJobExecutions(Long jobExecutionId);
 
-  Integer updateJobExecution(JobExecutionHolder holder);
+  UpdateResultDto updateJobExecution(JobExecutionHolder holder);
 
   Integer getJobExecutionVersion(Long jobExecutionId);
 
@@ -28,7 +36,13 @@ public interface JobExecutionService {
 
   JobExecution getJobExecution(Long executionId);
 
+  JobExecutionGraphDto getJobExecutionGraph(Long executionId);
+
   Set<JobExecution> findRunningJobExecutions(String jobName);
 
   void createJobParameters(JobExecutionParamHolder holder);
+
+  void insertJobParameters(List<JobExecutionParamHolder> holders);
+
+  List<Long> nextJobExecutionIds(int count);
 }
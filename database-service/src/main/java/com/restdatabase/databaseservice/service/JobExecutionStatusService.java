@@ -0,0 +1,15 @@
+package com.restdatabase.databaseservice.service;
+
+import java.util.Set;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * @author Anton Belousov
+ * @since 0.0.1-SNAPSHOT
+ */
+public interface JobExecutionStatusService {
+
+  SseEmitter subscribe(Set<Long> jobExecutionIds, Set<String> jobNames);
+
+  void publish(Long jobExecutionId);
+}
@@ -1,6 +1,9 @@
 package com.restdatabase.databaseservice.service;
 
+import com.restdatabase.databaseservice.dto.JobInstancePageDto;
+import com.restdatabase.databaseservice.dto.JobInstanceResultDto;
 import java.util.List;
+import java.util.function.Consumer;
 import org.springframework.batch.core.JobInstance;
 
 /**
@@ -11,6 +14,8 @@ public interface JobInstanceService {
 
   Long createJobInstance(Object[] args);
 
+  JobInstanceResultDto getOrCreateJobInstance(String jobName, String jobKey);
+
   List<JobInstance> getJobInstance(String jobName, String jobKey);
 
   JobInstance getJobInstance(Long instanceId);
@@ -19,6 +24,8 @@ public interface JobInstanceService {
 
   List<JobInstance> getJobInstances(String jobName, int start, int count);
 
+  JobInstancePageDto getJobInstancesPage(String jobName, String pageToken, int count);
+
   JobInstance getLastJobInstance(String jobName);
 
   JobInstance getJobInstanceByJobExecutionId(Long jobExecutionId);
@@ -26,4 +33,8 @@ public interface JobInstanceService {
   Object getJobInstanceCount(String jobName);
 
   List<JobInstance> findJobInstancesByName(String jobName, int start, int count);
+
+  void findJobInstancesByName(String jobName, Consumer<JobInstance> action);
+
+  JobInstancePageDto findJobInstancesByNamePage(String jobName, String pageToken, int count);
 }
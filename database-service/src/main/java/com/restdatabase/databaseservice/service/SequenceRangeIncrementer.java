@@ -0,0 +1,140 @@
+package com.restdatabase.databaseservice.service;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+import org.springframework.batch.support.DatabaseType;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.incrementer.DataFieldMaxValueIncrementer;
+import org.springframework.util.Assert;
+
+/**
+ * Incrementer which reserves a range of values of a sequence at once: in a single statement on
+ * the databases supporting it, or one value at a time through the underlying incrementer
+ * otherwise. Single values are always taken from the underlying incrementer. On SQL Server the
+ * sequences of Spring Batch are identity tables, so the range is reserved by inserting as many
+ * rows at once, and the rows below the last value are deleted afterwards, the same way as the
+ * underlying incrementer does.
+ *
+ * @author Anton Belousov
+ * @since 0.0.1-SNAPSHOT
+ */
+public class SequenceRangeIncrementer implements DataFieldMaxValueIncrementer {
+
+  private static final String SQLSERVER_RANGE = "SET NOCOUNT ON; "
+      + "MERGE INTO %s USING (SELECT TOP (?) 1 AS N "
+      + "FROM sys.all_columns A CROSS JOIN sys.all_columns B) R ON 1 = 0 "
+      + "WHEN NOT MATCHED THEN INSERT DEFAULT VALUES OUTPUT inserted.ID;";
+
+  private static final String SQLSERVER_CLEANUP = "DELETE FROM %s WHERE ID < ?";
+
+  private static final String POSTGRES_RANGE = "SELECT nextval('%s') FROM generate_series(1, ?)";
+
+  private static final String ORACLE_RANGE = "SELECT %s.NEXTVAL FROM DUAL CONNECT BY LEVEL <= ?";
+
+  private static final String H2_RANGE = "SELECT NEXT VALUE FOR %s FROM SYSTEM_RANGE(1, ?)";
+
+  private static final String MYSQL_RANGE = "UPDATE %s SET ID = LAST_INSERT_ID(ID + ?)";
+
+  private final DataFieldMaxValueIncrementer incrementer;
+  private final JdbcTemplate jdbcTemplate;
+  private final DatabaseType databaseType;
+  private final String sequenceName;
+
+  /**
+   * @param incrementer  the incrementer of single values of the sequence
+   * @param jdbcTemplate the template to reserve the ranges with
+   * @param databaseType the type of the database holding the sequence
+   * @param sequenceName the name of the sequence, or of the table emulating it
+   */
+  public SequenceRangeIncrementer(DataFieldMaxValueIncrementer incrementer,
+      JdbcTemplate jdbcTemplate, DatabaseType databaseType, String sequenceName) {
+    this.incrementer = incrementer;
+    this.jdbcTemplate = jdbcTemplate;
+    this.databaseType = databaseType;
+    this.sequenceName = sequenceName;
+  }
+
+  @Override
+  public int nextIntValue() {
+    return incrementer.nextIntValue();
+  }
+
+  @Override
+  public long nextLongValue() {
+    return incrementer.nextLongValue();
+  }
+
+  @Override
+  public String nextStringValue() {
+    return incrementer.nextStringValue();
+  }
+
+  /**
+   * @param count the count of values to reserve
+   * @return the reserved values, in ascending order
+   */
+  public List<Long> nextLongValues(int count) {
+    Assert.isTrue(count > 0, "Count of values to reserve must be positive");
+    if (count == 1) {
+      return List.of(incrementer.nextLongValue());
+    }
+
+    switch (databaseType) {
+      case SQLSERVER:
+        List<Long> inserted = ascending(jdbcTemplate.queryForList(
+            String.format(SQLSERVER_RANGE, sequenceName), Long.class, count));
+        jdbcTemplate.update(String.format(SQLSERVER_CLEANUP, sequenceName),
+            inserted.get(inserted.size() - 1));
+        return inserted;
+      case POSTGRES:
+        return ascending(jdbcTemplate.queryForList(String.format(POSTGRES_RANGE, sequenceName),
+            Long.class, count));
+      case ORACLE:
+        return ascending(jdbcTemplate.queryForList(String.format(ORACLE_RANGE, sequenceName),
+            Long.class, count));
+      case H2:
+        return ascending(jdbcTemplate.queryForList(String.format(H2_RANGE, sequenceName),
+            Long.class, count));
+      case MYSQL:
+        // The last value of the range is only visible on the connection which has reserved it
+        return jdbcTemplate.execute((ConnectionCallback<List<Long>>) connection -> {
+          try (PreparedStatement update = connection.prepareStatement(
+              String.format(MYSQL_RANGE, sequenceName))) {
+            update.setInt(1, count);
+            update.executeUpdate();
+          }
+          try (PreparedStatement select = connection.prepareStatement("SELECT LAST_INSERT_ID()");
+              ResultSet rs = select.executeQuery()) {
+            rs.next();
+            return range(rs.getLong(1) - count + 1, 1, count);
+          }
+        });
+      default:
+        List<Long> values = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+          values.add(incrementer.nextLongValue());
+        }
+        return values;
+    }
+  }
+
+  /**
+   * The order of the values of a set-returning statement is not defined, and a sequence cannot be
+   * used in a sorted query on every database, so the values are sorted once reserved.
+   */
+  private static List<Long> ascending(List<Long> values) {
+    values.sort(null);
+    return values;
+  }
+
+  private static List<Long> range(long first, long increment, int count) {
+    List<Long> values = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      values.add(first + i * increment);
+    }
+    return values;
+  }
+}
@@ -1,7 +1,10 @@
 package com.restdatabase.databaseservice.service;
 
+import com.restdatabase.databaseservice.dto.StepExecutionCommitDto;
+import com.restdatabase.databaseservice.dto.UpdateResultDto;
 import com.restdatabase.databaseservice.dto.holder.StepExecutionHolder;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * @author Anton Belousov
@@ -13,7 +16,9 @@ public interface StepExecutionService {
 
   void saveStepExecutions(List<StepExecutionHolder> stepExecutionHolders);
 
-  Integer updateStepExecution(StepExecutionHolder holder);
+  UpdateResultDto updateStepExecution(StepExecutionHolder holder);
+
+  UpdateResultDto commitStepExecution(StepExecutionCommitDto commitDto);
 
   Integer getStepExecutionVersion(Long stepExecutionId);
 
@@ -23,7 +28,11 @@ public interface StepExecutionService {
 
   List<StepExecutionHolder> getStepExecutions(Long jobExecutionId);
 
+  void getStepExecutions(Long jobExecutionId, Consumer<StepExecutionHolder> action);
+
   Integer countStepExecutions(Long jobInstanceId, String stepName);
 
   Long nextStepExecutionId();
+
+  List<Long> nextStepExecutionIds(int count);
 }
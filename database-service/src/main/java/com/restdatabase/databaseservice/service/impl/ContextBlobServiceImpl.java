@@ -0,0 +1,295 @@
+package com.restdatabase.databaseservice.service.impl;
+
+import com.restdatabase.databaseservice.service.ContextBlobService;
+import com.restdatabase.databaseservice.service.ContextCompression;
+import com.restdatabase.databaseservice.service.ContextHashes;
+import com.restdatabase.databaseservice.service.DaoUtils;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.support.lob.DefaultLobHandler;
+import org.springframework.jdbc.support.lob.LobHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Stores the contexts in the {@code EXECUTION_CONTEXT_BLOB} table keyed by the SHA-256 hash of
+ * their content. References to stored contexts are resolved even if the offload has been disabled
+ * since.
+ * <p>
+ * Every store of a context marks it as stored at that time, and while the offload is enabled,
+ * contexts which no context row references any more are deleted periodically once they have not
+ * been stored for the grace period. The grace period has to be longer than the transactions
+ * storing contexts, whose references are not visible until they commit.
+ *
+ * @author Anton Belousov
+ * @since 0.0.1-SNAPSHOT
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ContextBlobServiceImpl implements ContextBlobService {
+
+  private static final String REFERENCE_HEADER = "sha256:";
+
+  private static final int BUFFER_SIZE = 8 * 1024;
+
+  private static final String TOUCH_BLOB = "UPDATE %PREFIX%EXECUTION_CONTEXT_BLOB "
+      + "SET LAST_STORED = ? WHERE CONTEXT_HASH = ?";
+
+  private static final String INSERT_BLOB = "INSERT INTO %PREFIX%EXECUTION_CONTEXT_BLOB "
+      + "(CONTEXT_HASH, LAST_STORED, SERIALIZED_CONTEXT) VALUES(?, ?, ?)";
+
+  private static final String FIND_STALE_BLOBS = "SELECT CONTEXT_HASH "
+      + "FROM %PREFIX%EXECUTION_CONTEXT_BLOB WHERE LAST_STORED < ?";
+
+  private static final String FIND_JOB_EXECUTION_REFERENCES = "SELECT SERIALIZED_CONTEXT "
+      + "FROM %PREFIX%JOB_EXECUTION_CONTEXT WHERE SERIALIZED_CONTEXT LIKE 'sha256:%'";
+
+  private static final String FIND_STEP_EXECUTION_REFERENCES = "SELECT SERIALIZED_CONTEXT "
+      + "FROM %PREFIX%STEP_EXECUTION_CONTEXT WHERE SERIALIZED_CONTEXT LIKE 'sha256:%'";
+
+  private static final String DELETE_STALE_BLOB = "DELETE FROM %PREFIX%EXECUTION_CONTEXT_BLOB "
+      + "WHERE CONTEXT_HASH = ? AND LAST_STORED < ?";
+
+  private static final String FIND_BLOB = "SELECT SERIALIZED_CONTEXT "
+      + "FROM %PREFIX%EXECUTION_CONTEXT_BLOB WHERE CONTEXT_HASH = ?";
+
+  private static final String FIND_BLOBS = "SELECT CONTEXT_HASH, SERIALIZED_CONTEXT "
+      + "FROM %PREFIX%EXECUTION_CONTEXT_BLOB WHERE CONTEXT_HASH IN (:hashes)";
+
+  private final JdbcTemplate jdbcTemplate;
+  private final PlatformTransactionManager transactionManager;
+  private final LobHandler lobHandler = new DefaultLobHandler();
+
+  @Value("${table.prefix}")
+  private String tablePrefix;
+
+  @Value("${context-offload.enabled}")
+  private boolean offloadEnabled;
+
+  @Value("${context-offload.cleanup-grace-period}")
+  private long cleanupGracePeriod;
+
+  @Override
+  public String store(String context) {
+    String hash = ContextHashes.sha256Hex(context.getBytes(StandardCharsets.UTF_8));
+    insertIfAbsent(hash, ps -> lobHandler.getLobCreator().setClobAsString(ps, 3, context));
+    return REFERENCE_HEADER + hash;
+  }
+
+  /**
+   * The hash is the key the context is inserted with, so the context is spooled to a temporary
+   * file while it is hashed, and inserted from there.
+   */
+  @Override
+  public String store(Reader context) {
+    Path spool = null;
+    try {
+      spool = Files.createTempFile("execution-context-", ".tmp");
+      MessageDigest digest = ContextHashes.createDigest();
+      long length = 0;
+      try (Reader reader = context;
+          Writer writer = new OutputStreamWriter(new DigestOutputStream(
+              Files.newOutputStream(spool), digest), StandardCharsets.UTF_8)) {
+        char[] buffer = new char[BUFFER_SIZE];
+        int count;
+        while ((count = reader.read(buffer)) != -1) {
+          writer.write(buffer, 0, count);
+          length += count;
+        }
+      }
+
+      String hash = ContextHashes.toHex(digest.digest());
+      int contentLength = Math.toIntExact(length);
+      try (Reader spooled = Files.newBufferedReader(spool, StandardCharsets.UTF_8)) {
+        insertIfAbsent(hash, ps -> lobHandler.getLobCreator()
+            .setClobAsCharacterStream(ps, 3, spooled, contentLength));
+      }
+      return REFERENCE_HEADER + hash;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    } finally {
+      deleteSpool(spool);
+    }
+  }
+
+  /**
+   * A stored context is marked as stored again, which also keeps it from being deleted until the
+   * transaction referencing it commits. Equal contexts stored concurrently race on the primary
+   * key; the insert of the loser is rolled back to a savepoint, so that the failed statement does
+   * not abort the enclosing transaction, and the loser marks the context stored by the winner.
+   */
+  private void insertIfAbsent(String hash, PreparedStatementSetter contextSetter) {
+    Timestamp now = new Timestamp(System.currentTimeMillis());
+    if (touch(hash, now)) {
+      return;
+    }
+    TransactionTemplate savepoint = new TransactionTemplate(transactionManager);
+    savepoint.setPropagationBehavior(TransactionDefinition.PROPAGATION_NESTED);
+    try {
+      savepoint.executeWithoutResult(status ->
+          jdbcTemplate.update(DaoUtils.getQuery(INSERT_BLOB, tablePrefix), ps -> {
+            ps.setString(1, hash);
+            ps.setTimestamp(2, now);
+            contextSetter.setValues(ps);
+          }));
+    } catch (DuplicateKeyException e) {
+      log.debug("Execution context {} has been stored concurrently", hash);
+      touch(hash, now);
+    }
+  }
+
+  private boolean touch(String hash, Timestamp now) {
+    return jdbcTemplate.update(DaoUtils.getQuery(TOUCH_BLOB, tablePrefix), now, hash) > 0;
+  }
+
+  /**
+   * The referenced hashes are collected from the context rows, and the contexts not stored since
+   * the start of the grace period are deleted unless referenced. A context stored again after it
+   * has been found stale is kept, since the deletion checks the time it has been stored at again.
+   */
+  @Override
+  @Scheduled(fixedDelayString = "${context-offload.cleanup-interval}",
+      initialDelayString = "${context-offload.cleanup-interval}")
+  public int deleteUnreferenced() {
+    if (!offloadEnabled) {
+      return 0;
+    }
+    Timestamp staleBefore = new Timestamp(System.currentTimeMillis() - cleanupGracePeriod);
+    List<String> stale = jdbcTemplate.queryForList(
+        DaoUtils.getQuery(FIND_STALE_BLOBS, tablePrefix), String.class, staleBefore);
+    if (stale.isEmpty()) {
+      return 0;
+    }
+
+    Set<String> referenced = new HashSet<>();
+    for (String query : List.of(FIND_JOB_EXECUTION_REFERENCES, FIND_STEP_EXECUTION_REFERENCES)) {
+      jdbcTemplate.query(DaoUtils.getQuery(query, tablePrefix), rs -> {
+        String reference = lobHandler.getClobAsString(rs, "SERIALIZED_CONTEXT");
+        if (isReference(reference)) {
+          referenced.add(reference.substring(REFERENCE_HEADER.length()).trim());
+        }
+      });
+    }
+    List<Object[]> unreferenced = new ArrayList<>();
+    for (String hash : stale) {
+      if (!referenced.contains(hash.trim())) {
+        unreferenced.add(new Object[]{hash, staleBefore});
+      }
+    }
+    if (unreferenced.isEmpty()) {
+      return 0;
+    }
+
+    int deleted = 0;
+    for (int count : jdbcTemplate.batchUpdate(
+        DaoUtils.getQuery(DELETE_STALE_BLOB, tablePrefix), unreferenced)) {
+      deleted += Math.max(count, 0);
+    }
+    log.info("Deleted {} unreferenced execution contexts", deleted);
+    return deleted;
+  }
+
+  private static void deleteSpool(Path spool) {
+    if (spool == null) {
+      return;
+    }
+    try {
+      Files.deleteIfExists(spool);
+    } catch (IOException e) {
+      log.warn("Cannot delete spooled execution context {}", spool, e);
+    }
+  }
+
+  @Override
+  public boolean isReference(String stored) {
+    return stored != null && stored.startsWith(REFERENCE_HEADER);
+  }
+
+  @Override
+  public String resolve(String stored) {
+    if (!isReference(stored)) {
+      return stored;
+    }
+    return resolveAll(List.of(stored)).get(stored);
+  }
+
+  @Override
+  public Map<String, String> resolveAll(Collection<String> stored) {
+    List<String> hashes = stored.stream()
+        .filter(this::isReference)
+        .map(reference -> reference.substring(REFERENCE_HEADER.length()))
+        .distinct()
+        .collect(Collectors.toList());
+    Map<String, String> contexts = new HashMap<>();
+    if (hashes.isEmpty()) {
+      return contexts;
+    }
+
+    new NamedParameterJdbcTemplate(jdbcTemplate).query(
+        DaoUtils.getQuery(FIND_BLOBS, tablePrefix),
+        new MapSqlParameterSource("hashes", hashes),
+        rs -> {
+          contexts.put(REFERENCE_HEADER + rs.getString("CONTEXT_HASH").trim(),
+              lobHandler.getClobAsString(rs, "SERIALIZED_CONTEXT"));
+        });
+    for (String hash : hashes) {
+      if (!contexts.containsKey(REFERENCE_HEADER + hash)) {
+        throw new IllegalStateException("Execution context " + hash + " is missing");
+      }
+    }
+    return contexts;
+  }
+
+  /**
+   * The context is written while it is read from the database, so the connection is held until
+   * it has been written.
+   */
+  @Override
+  public void write(String reference, OutputStream out) {
+    String hash = reference.substring(REFERENCE_HEADER.length());
+    Boolean found = jdbcTemplate.query(DaoUtils.getQuery(FIND_BLOB, tablePrefix), rs -> {
+      if (!rs.next()) {
+        return false;
+      }
+      try (Reader stored = lobHandler.getClobAsCharacterStream(rs, "SERIALIZED_CONTEXT")) {
+        ContextCompression.decompress(stored, out);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      return true;
+    }, hash);
+    if (!Boolean.TRUE.equals(found)) {
+      throw new IllegalStateException("Execution context " + hash + " is missing");
+    }
+  }
+}
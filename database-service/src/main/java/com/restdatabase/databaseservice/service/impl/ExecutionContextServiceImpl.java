@@ -1,25 +1,53 @@
 package com.restdatabase.databaseservice.service.impl;
 
-import com.restdatabase.databaseservice.service.ExecutionContextService;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.restdatabase.databaseservice.dto.ExecutionContextDeltaDto;
 import com.restdatabase.databaseservice.dto.SerializedContextDto;
 import com.restdatabase.databaseservice.dto.SerializedContextsDto;
+import com.restdatabase.databaseservice.dto.UpdateResultDto;
+import com.restdatabase.databaseservice.dto.UpdateResultDto.Status;
+import com.restdatabase.databaseservice.service.ContextBlobService;
+import com.restdatabase.databaseservice.service.ContextCompression;
+import com.restdatabase.databaseservice.service.ContextHashes;
 import com.restdatabase.databaseservice.service.DaoUtils;
+import com.restdatabase.databaseservice.service.ExecutionContextService;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PushbackReader;
+import java.io.Reader;
+import java.io.SequenceInputStream;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Predicate;
 import lombok.RequiredArgsConstructor;
 import org.springframework.batch.item.ExecutionContext;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.jdbc.core.BatchPreparedStatementSetter;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.support.lob.DefaultLobHandler;
 import org.springframework.jdbc.support.lob.LobHandler;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.Assert;
+import org.springframework.util.FileCopyUtils;
 
 /**
  * @author Anton Belousov
@@ -41,51 +69,92 @@ public class ExecutionContextServiceImpl implements ExecutionContextService {
   private static final String FIND_STEP_EXECUTION_CONTEXT = "SELECT SHORT_CONTEXT, SERIALIZED_CONTEXT "
       + "FROM %PREFIX%STEP_EXECUTION_CONTEXT WHERE STEP_EXECUTION_ID = ?";
 
+  private static final String FIND_STEP_EXECUTION_CONTEXTS = "SELECT C.STEP_EXECUTION_ID, C.SHORT_CONTEXT, "
+      + "C.SERIALIZED_CONTEXT FROM %PREFIX%STEP_EXECUTION_CONTEXT C JOIN %PREFIX%STEP_EXECUTION S "
+      + "ON C.STEP_EXECUTION_ID = S.STEP_EXECUTION_ID WHERE S.JOB_EXECUTION_ID = ?";
+
   private static final String INSERT_STEP_EXECUTION_CONTEXT = "INSERT INTO %PREFIX%STEP_EXECUTION_CONTEXT "
       + "(SHORT_CONTEXT, SERIALIZED_CONTEXT, STEP_EXECUTION_ID) " + "VALUES(?, ?, ?)";
 
   private static final String UPDATE_STEP_EXECUTION_CONTEXT = "UPDATE %PREFIX%STEP_EXECUTION_CONTEXT "
       + "SET SHORT_CONTEXT = ?, SERIALIZED_CONTEXT = ? " + "WHERE STEP_EXECUTION_ID = ?";
 
+  private static final String LOCK_JOB_EXECUTION_CONTEXT = "UPDATE %PREFIX%JOB_EXECUTION_CONTEXT "
+      + "SET SHORT_CONTEXT = SHORT_CONTEXT WHERE JOB_EXECUTION_ID = ?";
+
+  private static final String LOCK_STEP_EXECUTION_CONTEXT = "UPDATE %PREFIX%STEP_EXECUTION_CONTEXT "
+      + "SET SHORT_CONTEXT = SHORT_CONTEXT WHERE STEP_EXECUTION_ID = ?";
+
+  private static final int REFERENCE_PEEK_LENGTH = 16;
+
+  /**
+   * Reads and writes serialized contexts as json trees to merge deltas into them, keeping the
+   * numbers as they were written.
+   */
+  private static final ObjectMapper CONTEXT_MAPPER = JsonMapper.builder()
+      .enable(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS)
+      .nodeFactory(JsonNodeFactory.withExactBigDecimals(true))
+      .build();
+
   private final JdbcTemplate jdbcTemplate;
+  private final ContextBlobService contextBlobService;
   private final LobHandler lobHandler = new DefaultLobHandler();
 
   @Value("${table.prefix}")
   private String tablePrefix;
 
+  @Value("${context-compression.enabled}")
+  private boolean compressionEnabled;
+
+  @Value("${context-compression.threshold}")
+  private int compressionThreshold;
+
+  @Value("${context-offload.enabled}")
+  private boolean offloadEnabled;
+
+  @Value("${context-offload.threshold}")
+  private int offloadThreshold;
+
   @Override
   public ExecutionContext getJobExecutionContext(Long executionId) {
-    List<ExecutionContext> results = jdbcTemplate.query(
-        DaoUtils.getQuery(FIND_JOB_EXECUTION_CONTEXT, tablePrefix),
-        new ExecutionContextRowMapper(), executionId);
-    if (results.size() > 0) {
-      return results.get(0);
-    } else {
-      return new ExecutionContext();
-    }
+    return toExecutionContext(findSerializedContext(FIND_JOB_EXECUTION_CONTEXT, executionId));
   }
 
   @Override
   public ExecutionContext getStepExecutionContext(Long executionId) {
-    List<ExecutionContext> results = jdbcTemplate.query(
-        DaoUtils.getQuery(FIND_STEP_EXECUTION_CONTEXT, tablePrefix),
-        new ExecutionContextRowMapper(), executionId);
-    if (results.size() > 0) {
-      return results.get(0);
-    } else {
-      return new ExecutionContext();
-    }
+    return toExecutionContext(findSerializedContext(FIND_STEP_EXECUTION_CONTEXT, executionId));
+  }
+
+  @Override
+  public String getSerializedJobExecutionContext(Long executionId) {
+    return findSerializedContext(FIND_JOB_EXECUTION_CONTEXT, executionId);
+  }
+
+  @Override
+  public Map<Long, String> getSerializedStepExecutionContexts(Long jobExecutionId) {
+    Map<Long, String> results = new HashMap<>();
+    jdbcTemplate.query(DaoUtils.getQuery(FIND_STEP_EXECUTION_CONTEXTS, tablePrefix),
+        rs -> {
+          results.put(rs.getLong("STEP_EXECUTION_ID"), getSerializedContext(rs));
+        }, jobExecutionId);
+
+    // Resolve the references once the rows are read, and every distinct context only once
+    Map<String, String> offloaded = contextBlobService.resolveAll(results.values());
+    results.replaceAll((executionId, stored) ->
+        ContextCompression.decompress(offloaded.getOrDefault(stored, stored)));
+    return results;
   }
 
   @Override
   public void persistSerializedContext(SerializedContextDto ctxDto) {
     String sql = getSql(ctxDto.getSqlType());
     Assert.notNull(sql, "Unknown sql type");
+    String longContext = storeLongContext(ctxDto.getLongContext());
 
     jdbcTemplate.update(DaoUtils.getQuery(sql, tablePrefix), ps -> {
       ps.setString(1, ctxDto.getShortContext());
-      if (ctxDto.getLongContext() != null) {
-        lobHandler.getLobCreator().setClobAsString(ps, 2, ctxDto.getLongContext());
+      if (longContext != null) {
+        lobHandler.getLobCreator().setClobAsString(ps, 2, longContext);
       } else {
         ps.setNull(2, ctxDto.getClobTypeToUse());
       }
@@ -100,6 +169,14 @@ public class ExecutionContextServiceImpl implements ExecutionContextService {
       String sql = getSql(ctxDto.getSqlType());
       Assert.notNull(sql, "Unknown sql type");
 
+      // Store every distinct long context only once, before the batch is sent
+      Map<String, String> storedLongContexts = new HashMap<>();
+      for (String serializedContext : serializedContexts.values()) {
+        if (serializedContext.length() > ctxDto.getShortContextLength()) {
+          storedLongContexts.computeIfAbsent(serializedContext, this::storeLongContext);
+        }
+      }
+
       final Iterator<Long> executionIdIterator = serializedContexts.keySet().iterator();
 
       jdbcTemplate.batchUpdate(DaoUtils.getQuery(sql, tablePrefix), new BatchPreparedStatementSetter() {
@@ -120,7 +197,8 @@ public class ExecutionContextServiceImpl implements ExecutionContextService {
           }
           ps.setString(1, shortContext);
           if (longContext != null) {
-            lobHandler.getLobCreator().setClobAsString(ps, 2, longContext);
+            lobHandler.getLobCreator().setClobAsString(ps, 2,
+                storedLongContexts.get(longContext));
           } else {
             ps.setNull(2, ctxDto.getClobTypeToUse());
           }
@@ -135,6 +213,164 @@ public class ExecutionContextServiceImpl implements ExecutionContextService {
     }
   }
 
+  @Override
+  public byte[] getJobExecutionContextBytes(Long executionId) {
+    return toBytes(out -> writeJobExecutionContext(executionId, out));
+  }
+
+  @Override
+  public byte[] getStepExecutionContextBytes(Long executionId) {
+    return toBytes(out -> writeStepExecutionContext(executionId, out));
+  }
+
+  @Override
+  public boolean writeJobExecutionContext(Long executionId, OutputStream out) {
+    return writeContext(FIND_JOB_EXECUTION_CONTEXT, executionId, out);
+  }
+
+  @Override
+  public boolean writeStepExecutionContext(Long executionId, OutputStream out) {
+    return writeContext(FIND_STEP_EXECUTION_CONTEXT, executionId, out);
+  }
+
+  @Override
+  public void persistContextBytes(Long executionId, byte[] context, String sqlType,
+      int shortContextLength, int clobTypeToUse) {
+    String serializedContext = new String(context, StandardCharsets.ISO_8859_1);
+    String shortContext;
+    String longContext;
+    if (serializedContext.length() > shortContextLength) {
+      // Overestimate length of ellipsis to be on the safe side with
+      // 2-byte chars
+      shortContext = serializedContext.substring(0, shortContextLength - 8) + " ...";
+      longContext = serializedContext;
+    } else {
+      shortContext = serializedContext;
+      longContext = null;
+    }
+
+    persistSerializedContext(SerializedContextDto.builder()
+        .executionId(executionId)
+        .shortContext(shortContext)
+        .longContext(longContext)
+        .sqlType(sqlType)
+        .clobTypeToUse(clobTypeToUse)
+        .build());
+  }
+
+  /**
+   * Long contexts are written to the large object while they are read from the request, so that
+   * only the short context is held in memory. Unlike contexts persisted as a whole, they are
+   * stored compressed above the threshold even if the compression does not make them shorter,
+   * since the compressed length is only known at the end, so the same context may be stored in
+   * either form depending on how it has been sent. Both forms are read back the same, and the
+   * version of a context is the hash of its uncompressed bytes either way. Offloaded contexts are
+   * spooled by the blob store, since their hash is only known at the end as well.
+   */
+  @Override
+  public void persistContext(Long executionId, InputStream context, long contentLength,
+      String sqlType, int shortContextLength, int clobTypeToUse) {
+    try {
+      if (contentLength < 0 || contentLength <= shortContextLength) {
+        persistContextBytes(executionId, context.readAllBytes(), sqlType, shortContextLength,
+            clobTypeToUse);
+        return;
+      }
+
+      String sql = getSql(sqlType);
+      Assert.notNull(sql, "Unknown sql type");
+      // Overestimate length of ellipsis to be on the safe side with
+      // 2-byte chars
+      byte[] head = context.readNBytes(shortContextLength - 8);
+      String shortContext = new String(head, StandardCharsets.ISO_8859_1) + " ...";
+      InputStream longContext = new SequenceInputStream(new ByteArrayInputStream(head), context);
+
+      boolean compressed = compressionEnabled && contentLength >= compressionThreshold;
+      try (Reader stored = compressed ? ContextCompression.compressingReader(longContext)
+          : new InputStreamReader(longContext, StandardCharsets.ISO_8859_1)) {
+        String reference = offloadEnabled && contentLength >= offloadThreshold
+            ? contextBlobService.store(stored) : null;
+        jdbcTemplate.update(DaoUtils.getQuery(sql, tablePrefix), ps -> {
+          ps.setString(1, shortContext);
+          if (reference != null) {
+            lobHandler.getLobCreator().setClobAsString(ps, 2, reference);
+          } else if (compressed) {
+            // The compressed length is only known at the end, and not every driver accepts a
+            // negative length
+            ps.setCharacterStream(2, stored);
+          } else {
+            lobHandler.getLobCreator().setClobAsCharacterStream(ps, 2, stored,
+                Math.toIntExact(contentLength));
+          }
+          ps.setLong(3, executionId);
+        });
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * The delta is merged into the stored context if it is still of the base version, which is the
+   * hash of the raw bytes of the context. Contexts which are not json objects cannot be merged,
+   * so they are reported as a version conflict, for the full context to be persisted instead.
+   * <p>
+   * The row is locked by a no-op update before it is read, which works the same way on every
+   * database, so that concurrent deltas of the same base version are merged one after the other
+   * and all but the first one are reported as a version conflict.
+   */
+  @Override
+  @Transactional
+  public UpdateResultDto applyContextDelta(ExecutionContextDeltaDto delta) {
+    String query = getFindSql(delta.getSqlType());
+    Assert.notNull(query, "Unknown sql type");
+    int locked = jdbcTemplate.update(
+        DaoUtils.getQuery(getLockSql(delta.getSqlType()), tablePrefix), delta.getExecutionId());
+    if (locked == 0) {
+      return UpdateResultDto.builder().status(Status.NOT_FOUND).build();
+    }
+    String stored = findSerializedContext(query, delta.getExecutionId());
+    if (stored == null) {
+      return UpdateResultDto.builder().status(Status.NOT_FOUND).build();
+    }
+    byte[] storedContext = stored.getBytes(StandardCharsets.ISO_8859_1);
+    if (!ContextHashes.sha256Hex(storedContext).equals(delta.getBaseVersion())) {
+      return UpdateResultDto.builder().status(Status.VERSION_CONFLICT).build();
+    }
+
+    byte[] mergedContext;
+    try {
+      JsonNode context = CONTEXT_MAPPER.readTree(storedContext);
+      JsonNode putEntries = delta.getPutEntries() != null
+          ? CONTEXT_MAPPER.readTree(delta.getPutEntries()) : CONTEXT_MAPPER.createObjectNode();
+      if (!context.isObject() || !putEntries.isObject()) {
+        return UpdateResultDto.builder().status(Status.VERSION_CONFLICT).build();
+      }
+      ((ObjectNode) context).setAll((ObjectNode) putEntries);
+      if (delta.getRemovedKeys() != null) {
+        ((ObjectNode) context).remove(delta.getRemovedKeys());
+      }
+      mergedContext = CONTEXT_MAPPER.writeValueAsBytes(context);
+    } catch (IOException e) {
+      return UpdateResultDto.builder().status(Status.VERSION_CONFLICT).build();
+    }
+
+    persistContextBytes(delta.getExecutionId(), mergedContext, delta.getSqlType(),
+        delta.getShortContextLength(), delta.getClobTypeToUse());
+    return UpdateResultDto.builder()
+        .status(Status.UPDATED)
+        .contextVersion(ContextHashes.sha256Hex(mergedContext))
+        .build();
+  }
+
+  /**
+   * @return the bytes written by the given action, or {@code null} if it has found no context
+   */
+  private static byte[] toBytes(Predicate<OutputStream> write) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    return write.test(out) ? out.toByteArray() : null;
+  }
+
   private String getSql(String sqlType) {
     switch (sqlType) {
       case "updateJobExecutionContext":
@@ -150,18 +386,102 @@ public class ExecutionContextServiceImpl implements ExecutionContextService {
     }
   }
 
-  private static class ExecutionContextRowMapper implements RowMapper<ExecutionContext> {
+  private String getFindSql(String sqlType) {
+    switch (sqlType) {
+      case "updateJobExecutionContext":
+        return FIND_JOB_EXECUTION_CONTEXT;
+      case "updateStepExecutionContext":
+        return FIND_STEP_EXECUTION_CONTEXT;
+      default:
+        return null;
+    }
+  }
+
+  private String getLockSql(String sqlType) {
+    switch (sqlType) {
+      case "updateJobExecutionContext":
+        return LOCK_JOB_EXECUTION_CONTEXT;
+      case "updateStepExecutionContext":
+        return LOCK_STEP_EXECUTION_CONTEXT;
+      default:
+        return null;
+    }
+  }
+
+  /**
+   * @return the long context to store, compressed and offloaded as configured
+   */
+  private String storeLongContext(String longContext) {
+    if (longContext == null) {
+      return null;
+    }
+    String stored = compressionEnabled
+        ? ContextCompression.compress(longContext, compressionThreshold) : longContext;
+    if (offloadEnabled && longContext.length() >= offloadThreshold) {
+      stored = contextBlobService.store(stored);
+    }
+    return stored;
+  }
 
-    @Override
-    public ExecutionContext mapRow(ResultSet rs, int i) throws SQLException {
-      ExecutionContext executionContext = new ExecutionContext();
-      String serializedContext = rs.getString("SERIALIZED_CONTEXT");
-      if (serializedContext == null) {
-        serializedContext = rs.getString("SHORT_CONTEXT");
+  /**
+   * The context is written while it is read from the large object, so that the memory needed
+   * does not depend on its size. A reference to an offloaded context is read from the row only,
+   * and the referenced context is written once the row has been read.
+   *
+   * @return {@code false} if there is no context for the execution
+   */
+  private boolean writeContext(String query, Long executionId, OutputStream out) {
+    List<String> references = new ArrayList<>(1);
+    Boolean found = jdbcTemplate.query(DaoUtils.getQuery(query, tablePrefix), rs -> {
+      if (!rs.next()) {
+        return false;
+      }
+      String shortContext = rs.getString("SHORT_CONTEXT");
+      Reader longContext = lobHandler.getClobAsCharacterStream(rs, "SERIALIZED_CONTEXT");
+      try (PushbackReader stored = new PushbackReader(
+          longContext != null ? longContext : new StringReader(shortContext),
+          REFERENCE_PEEK_LENGTH)) {
+        if (contextBlobService.isReference(
+            ContextCompression.peek(stored, REFERENCE_PEEK_LENGTH))) {
+          references.add(FileCopyUtils.copyToString(stored));
+        } else {
+          ContextCompression.decompress(stored, out);
+        }
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
       }
+      return true;
+    }, executionId);
+
+    if (!references.isEmpty()) {
+      contextBlobService.write(references.get(0), out);
+    }
+    return Boolean.TRUE.equals(found);
+  }
+
+  private String findSerializedContext(String query, Long executionId) {
+    List<String> results = jdbcTemplate.query(DaoUtils.getQuery(query, tablePrefix),
+        (rs, i) -> getSerializedContext(rs), executionId);
+    return results.isEmpty() ? null
+        : ContextCompression.decompress(contextBlobService.resolve(results.get(0)));
+  }
 
+  private static ExecutionContext toExecutionContext(String serializedContext) {
+    ExecutionContext executionContext = new ExecutionContext();
+    if (serializedContext != null) {
       executionContext.put("_CTX", serializedContext);
-      return executionContext;
     }
+    return executionContext;
+  }
+
+  /**
+   * @return the long context as stored, or the short one if the context is not long
+   */
+  private static String getSerializedContext(ResultSet rs) throws SQLException {
+    String serializedContext = rs.getString("SERIALIZED_CONTEXT");
+    if (serializedContext == null) {
+      serializedContext = rs.getString("SHORT_CONTEXT");
+    }
+    return serializedContext;
   }
 }
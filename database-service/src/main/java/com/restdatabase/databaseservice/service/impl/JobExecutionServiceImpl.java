@@ -1,17 +1,31 @@
 package com.restdatabase.databaseservice.service.impl;
 
+import com.restdatabase.databaseservice.dto.JobExecutionGraphDto;
+import com.restdatabase.databaseservice.dto.JobExecutionLaunchDto;
+import com.restdatabase.databaseservice.dto.SerializedContextDto;
+import com.restdatabase.databaseservice.dto.UpdateResultDto;
+import com.restdatabase.databaseservice.dto.UpdateResultDto.Status;
 import com.restdatabase.databaseservice.dto.holder.JobExecutionHolder;
 import com.restdatabase.databaseservice.dto.holder.JobExecutionParamHolder;
 import com.restdatabase.databaseservice.service.DaoUtils;
+import com.restdatabase.databaseservice.service.ExecutionContextService;
 import com.restdatabase.databaseservice.service.JobExecutionService;
+import com.restdatabase.databaseservice.service.JobExecutionStatusService;
+import com.restdatabase.databaseservice.service.JobInstanceService;
+import com.restdatabase.databaseservice.service.SequenceRangeIncrementer;
+import com.restdatabase.databaseservice.service.StepExecutionService;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 import lombok.RequiredArgsConstructor;
 import org.springframework.batch.core.BatchStatus;
 import org.springframework.batch.core.ExitStatus;
@@ -20,12 +34,13 @@ import org.springframework.batch.core.JobParameter;
 import org.springframework.batch.core.JobParameter.ParameterType;
 import org.springframework.batch.core.JobParameters;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
-import org.springframework.jdbc.support.incrementer.DataFieldMaxValueIncrementer;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
 
 /**
  * @author Anton Belousov
@@ -61,32 +76,72 @@ public class JobExecutionServiceImpl implements JobExecutionService {
 
   private static final String GET_RUNNING_EXECUTIONS =
       "SELECT E.JOB_EXECUTION_ID, E.START_TIME, E.END_TIME, E.STATUS, E.EXIT_CODE, E.EXIT_MESSAGE, E.CREATE_TIME, E.LAST_UPDATED, E.VERSION, "
-          + "E.JOB_INSTANCE_ID, E.JOB_CONFIGURATION_LOCATION from %PREFIX%JOB_EXECUTION E, %PREFIX%JOB_INSTANCE I where E.JOB_INSTANCE_ID=I.JOB_INSTANCE_ID and I.JOB_NAME=? and E.START_TIME is not NULL and E.END_TIME is NULL order by E.JOB_EXECUTION_ID desc";
+          + "E.JOB_CONFIGURATION_LOCATION, E.JOB_INSTANCE_ID from %PREFIX%JOB_EXECUTION E, %PREFIX%JOB_INSTANCE I where E.JOB_INSTANCE_ID=I.JOB_INSTANCE_ID and I.JOB_NAME=? and E.START_TIME is not NULL and E.END_TIME is NULL order by E.JOB_EXECUTION_ID desc";
 
   private static final String CURRENT_VERSION_JOB_EXECUTION = "SELECT VERSION FROM %PREFIX%JOB_EXECUTION WHERE JOB_EXECUTION_ID=?";
 
-  private static final String FIND_PARAMS_FROM_ID = "SELECT JOB_EXECUTION_ID, KEY_NAME, TYPE_CD, "
-      + "STRING_VAL, DATE_VAL, LONG_VAL, DOUBLE_VAL, IDENTIFYING from %PREFIX%JOB_EXECUTION_PARAMS where JOB_EXECUTION_ID = ?";
+  private static final String FIND_PARAMS_FROM_IDS = "SELECT JOB_EXECUTION_ID, KEY_NAME, TYPE_CD, "
+      + "STRING_VAL, DATE_VAL, LONG_VAL, DOUBLE_VAL, IDENTIFYING from %PREFIX%JOB_EXECUTION_PARAMS where JOB_EXECUTION_ID in (%IDS%)";
+
+  /**
+   * Maximum count of job execution ids in a single parameters query, well below the limit of 2100
+   * parameters per statement of SQL Server.
+   */
+  private static final int MAX_PARAMS_QUERY_IDS = 1000;
 
   private static final String CREATE_JOB_PARAMETERS =
       "INSERT into %PREFIX%JOB_EXECUTION_PARAMS(JOB_EXECUTION_ID, KEY_NAME, TYPE_CD, "
           + "STRING_VAL, DATE_VAL, LONG_VAL, DOUBLE_VAL, IDENTIFYING) values (?, ?, ?, ?, ?, ?, ?, ?)";
 
+  private static final int[] JOB_PARAMETER_TYPES = new int[]{Types.BIGINT, Types.VARCHAR,
+      Types.VARCHAR, Types.VARCHAR, Types.TIMESTAMP, Types.BIGINT, Types.DOUBLE, Types.CHAR};
+
   private final JdbcTemplate jdbcTemplate;
-  private final DataFieldMaxValueIncrementer jobExecutionIncrementer;
+  private final SequenceRangeIncrementer jobExecutionIncrementer;
+  private final ExecutionContextService executionContextService;
+  private final JobExecutionStatusService jobExecutionStatusService;
+  private final JobInstanceService jobInstanceService;
+  private final StepExecutionService stepExecutionService;
 
   @Value("${table.prefix}")
   private String tablePrefix;
 
+  @Value("${streaming.fetch-size}")
+  private int fetchSize;
+
   @Override
   public List<JobExecution> findJobExecutions(Long jobInstanceId) {
-    return jdbcTemplate.query(DaoUtils.getQuery(FIND_JOB_EXECUTIONS, tablePrefix),
-        new JobExecutionRowMapper(), jobInstanceId);
+    return withJobParameters(jdbcTemplate.query(
+        DaoUtils.getQuery(FIND_JOB_EXECUTIONS, tablePrefix), new JobExecutionRowMapper(),
+        jobInstanceId));
+  }
+
+  /**
+   * The job executions are passed on while they are read, with the job parameters loaded per
+   * chunk of executions.
+   */
+  @Override
+  public void findJobExecutions(Long jobInstanceId, Consumer<JobExecution> action) {
+    List<JobExecutionHolder> chunk = new ArrayList<>(MAX_PARAMS_QUERY_IDS);
+    JobExecutionRowMapper rowMapper = new JobExecutionRowMapper();
+    jdbcTemplate.query(DaoUtils.getStreamingQuery(
+            DaoUtils.getQuery(FIND_JOB_EXECUTIONS, tablePrefix), fetchSize, jobInstanceId),
+        rs -> {
+          chunk.add(rowMapper.mapRow(rs, 0));
+          if (chunk.size() == MAX_PARAMS_QUERY_IDS) {
+            withJobParameters(chunk).forEach(action);
+            chunk.clear();
+          }
+        });
+    withJobParameters(chunk).forEach(action);
   }
 
   @Override
   public Long saveJobExecution(JobExecutionHolder holder) {
-    Long jobExecutionId = jobExecutionIncrementer.nextLongValue();
+    // The id is assigned by the client if it reserved one beforehand
+    Long jobExecutionId = holder.getId() != null
+        ? holder.getId()
+        : jobExecutionIncrementer.nextLongValue();
     Object[] parameters = new Object[]{jobExecutionId, holder.getJobId(), holder.getStartTime(),
         holder.getEndTime(), holder.getStatus(), holder.getExitCode(), holder.getExitDescription(),
         holder.getVersion(), holder.getCreateTime(), holder.getLastUpdated(),
@@ -97,6 +152,22 @@ public class JobExecutionServiceImpl implements JobExecutionService {
         new int[]{Types.BIGINT, Types.BIGINT, Types.TIMESTAMP, Types.TIMESTAMP, Types.VARCHAR,
             Types.VARCHAR, Types.VARCHAR, Types.INTEGER, Types.TIMESTAMP, Types.TIMESTAMP,
             Types.VARCHAR});
+    jobExecutionStatusService.publish(jobExecutionId);
+    return jobExecutionId;
+  }
+
+  @Override
+  @Transactional
+  public Long launchJobExecution(JobExecutionLaunchDto launchDto) {
+    Long jobExecutionId = saveJobExecution(launchDto.getJobExecution());
+
+    List<JobExecutionParamHolder> jobParameters = launchDto.getJobParameters();
+    jobParameters.forEach(holder -> holder.setJobExecutionId(jobExecutionId));
+    insertJobParameters(jobParameters);
+
+    SerializedContextDto executionContext = launchDto.getExecutionContext();
+    executionContext.setExecutionId(jobExecutionId);
+    executionContextService.persistSerializedContext(executionContext);
     return jobExecutionId;
   }
 
@@ -107,16 +178,34 @@ public class JobExecutionServiceImpl implements JobExecutionService {
   }
 
   @Override
-  public Integer updateJobExecution(JobExecutionHolder holder) {
+  public UpdateResultDto updateJobExecution(JobExecutionHolder holder) {
     Object[] parameters = new Object[]{holder.getStartTime(), holder.getEndTime(),
         holder.getStatus(), holder.getExitCode(), holder.getExitDescription(),
         holder.getUpdateVersion(), holder.getCreateTime(), holder.getLastUpdated(), holder.getId(),
         holder.getVersion()};
 
-    return jdbcTemplate.update(
+    int count = jdbcTemplate.update(
         DaoUtils.getQuery(UPDATE_JOB_EXECUTION, tablePrefix), parameters,
         new int[]{Types.TIMESTAMP, Types.TIMESTAMP, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR,
             Types.INTEGER, Types.TIMESTAMP, Types.TIMESTAMP, Types.BIGINT, Types.INTEGER});
+
+    if (count > 0) {
+      jobExecutionStatusService.publish(holder.getId());
+      return UpdateResultDto.builder()
+          .status(Status.UPDATED)
+          .currentVersion(holder.getUpdateVersion())
+          .build();
+    }
+    // Distinguish a missing job execution from a concurrent modification
+    List<Integer> versions = jdbcTemplate.queryForList(
+        DaoUtils.getQuery(CURRENT_VERSION_JOB_EXECUTION, tablePrefix), Integer.class,
+        holder.getId());
+    return versions.isEmpty()
+        ? UpdateResultDto.builder().status(Status.NOT_FOUND).build()
+        : UpdateResultDto.builder()
+            .status(Status.VERSION_CONFLICT)
+            .currentVersion(versions.get(0))
+            .build();
   }
 
   @Override
@@ -134,108 +223,156 @@ public class JobExecutionServiceImpl implements JobExecutionService {
 
   @Override
   public List<JobExecution> getLastJobExecution(Long jobInstanceId) {
-    return jdbcTemplate.query(
+    return withJobParameters(jdbcTemplate.query(
         DaoUtils.getQuery(GET_LAST_EXECUTION, tablePrefix), new JobExecutionRowMapper(),
-        jobInstanceId, jobInstanceId);
+        jobInstanceId, jobInstanceId));
   }
 
   @Override
   public JobExecution getJobExecution(Long executionId) {
-    try {
-      return jdbcTemplate.queryForObject(DaoUtils.getQuery(GET_EXECUTION_BY_ID, tablePrefix),
-          new JobExecutionRowMapper(), executionId);
-    } catch (EmptyResultDataAccessException e) {
+    List<JobExecution> executions = withJobParameters(jdbcTemplate.query(
+        DaoUtils.getQuery(GET_EXECUTION_BY_ID, tablePrefix), new JobExecutionRowMapper(),
+        executionId));
+    return executions.isEmpty() ? null : executions.get(0);
+  }
+
+  @Override
+  public JobExecutionGraphDto getJobExecutionGraph(Long executionId) {
+    JobExecution jobExecution = getJobExecution(executionId);
+    if (jobExecution == null) {
       return null;
     }
+
+    return JobExecutionGraphDto.builder()
+        .jobExecution(jobExecution)
+        .jobInstance(jobInstanceService.getJobInstanceByJobExecutionId(executionId))
+        .executionContext(executionContextService.getSerializedJobExecutionContext(executionId))
+        .stepExecutions(stepExecutionService.getStepExecutions(executionId))
+        .stepExecutionContexts(
+            executionContextService.getSerializedStepExecutionContexts(executionId))
+        .build();
   }
 
   @Override
   public Set<JobExecution> findRunningJobExecutions(String jobName) {
-    final Set<JobExecution> result = new HashSet<>();
-    RowCallbackHandler handler = rs -> {
-      JobExecutionRowMapper mapper = new JobExecutionRowMapper();
-      result.add(mapper.mapRow(rs, 0));
-    };
-    jdbcTemplate.query(DaoUtils.getQuery(GET_RUNNING_EXECUTIONS, tablePrefix), handler, jobName);
-
-    return result;
+    return new HashSet<>(withJobParameters(jdbcTemplate.query(
+        DaoUtils.getQuery(GET_RUNNING_EXECUTIONS, tablePrefix), new JobExecutionRowMapper(),
+        jobName)));
   }
 
   @Override
   public void createJobParameters(JobExecutionParamHolder holder) {
-    Object[] args = new Object[]{holder.getJobExecutionId(), holder.getKeyName(), holder.getType(),
+    jdbcTemplate.update(DaoUtils.getQuery(CREATE_JOB_PARAMETERS, tablePrefix),
+        getJobParameterArgs(holder), JOB_PARAMETER_TYPES);
+  }
+
+  @Override
+  @Transactional
+  public void insertJobParameters(List<JobExecutionParamHolder> holders) {
+    if (!holders.isEmpty()) {
+      jdbcTemplate.batchUpdate(DaoUtils.getQuery(CREATE_JOB_PARAMETERS, tablePrefix),
+          holders.stream().map(this::getJobParameterArgs).collect(Collectors.toList()),
+          JOB_PARAMETER_TYPES);
+    }
+  }
+
+  @Override
+  public List<Long> nextJobExecutionIds(int count) {
+    Assert.isTrue(count > 0, "Count of job execution ids to reserve must be positive");
+    return jobExecutionIncrementer.nextLongValues(count);
+  }
+
+  private Object[] getJobParameterArgs(JobExecutionParamHolder holder) {
+    return new Object[]{holder.getJobExecutionId(), holder.getKeyName(), holder.getType(),
         holder.getStringValue(), holder.getDateValue(), holder.getLongValue(),
         holder.getDoubleValue(), holder.getIdentifyingFlag()};
+  }
 
-    jdbcTemplate.update(DaoUtils.getQuery(CREATE_JOB_PARAMETERS, tablePrefix), args,
-        new int[]{Types.BIGINT, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.TIMESTAMP,
-            Types.BIGINT, Types.DOUBLE, Types.CHAR});
+  /**
+   * Build the job executions of the given rows with their job parameters, which are loaded for
+   * all of them at once.
+   */
+  private List<JobExecution> withJobParameters(List<JobExecutionHolder> holders) {
+    Map<Long, Map<String, JobParameter>> parameters = getJobParameters(
+        holders.stream().map(JobExecutionHolder::getId).collect(Collectors.toList()));
+
+    List<JobExecution> executions = new ArrayList<>(holders.size());
+    for (JobExecutionHolder holder : holders) {
+      JobExecution jobExecution = new JobExecution(holder.getId(),
+          new JobParameters(parameters.getOrDefault(holder.getId(), new HashMap<>())),
+          holder.getJobConfigurationName());
+      jobExecution.setStartTime(holder.getStartTime());
+      jobExecution.setEndTime(holder.getEndTime());
+      jobExecution.setStatus(BatchStatus.valueOf(holder.getStatus()));
+      jobExecution.setExitStatus(new ExitStatus(holder.getExitCode(), holder.getExitDescription()));
+      jobExecution.setCreateTime(holder.getCreateTime());
+      jobExecution.setLastUpdated(holder.getLastUpdated());
+      jobExecution.setVersion(holder.getVersion());
+      executions.add(jobExecution);
+    }
+    return executions;
   }
 
   /**
-   * Re-usable mapper for {@link JobExecution} instances.
-   *
-   * @author Dave Syer
+   * @param executionIds ids of the executions, queried in chunks of
+   *                     {@link #MAX_PARAMS_QUERY_IDS}
+   * @return job parameters by the execution id
    */
-  private final class JobExecutionRowMapper implements RowMapper<JobExecution> {
+  private Map<Long, Map<String, JobParameter>> getJobParameters(List<Long> executionIds) {
+    final Map<Long, Map<String, JobParameter>> parameters = new HashMap<>();
+    RowCallbackHandler handler = rs -> {
+      ParameterType type = ParameterType.valueOf(rs.getString(3));
+      JobParameter value = null;
+
+      if (type == ParameterType.STRING) {
+        value = new JobParameter(rs.getString(4), rs.getString(8).equalsIgnoreCase("Y"));
+      } else if (type == ParameterType.LONG) {
+        long longValue = rs.getLong(6);
+        value = new JobParameter(rs.wasNull() ? null : longValue,
+            rs.getString(8).equalsIgnoreCase("Y"));
+      } else if (type == ParameterType.DOUBLE) {
+        double doubleValue = rs.getDouble(7);
+        value = new JobParameter(rs.wasNull() ? null : doubleValue,
+            rs.getString(8).equalsIgnoreCase("Y"));
+      } else if (type == ParameterType.DATE) {
+        value = new JobParameter(rs.getTimestamp(5), rs.getString(8).equalsIgnoreCase("Y"));
+      }
 
-    private JobParameters jobParameters;
+      // No need to assert that value is not null because it's an enum
+      parameters.computeIfAbsent(rs.getLong(1), id -> new HashMap<>())
+          .put(rs.getString(2), value);
+    };
 
-    public JobExecutionRowMapper() {
+    for (int from = 0; from < executionIds.size(); from += MAX_PARAMS_QUERY_IDS) {
+      List<Long> chunk = executionIds.subList(from,
+          Math.min(from + MAX_PARAMS_QUERY_IDS, executionIds.size()));
+      String query = StringUtils.replace(DaoUtils.getQuery(FIND_PARAMS_FROM_IDS, tablePrefix),
+          "%IDS%", String.join(", ", Collections.nCopies(chunk.size(), "?")));
+      jdbcTemplate.query(query, handler, chunk.toArray());
     }
+    return parameters;
+  }
 
-    /**
-     * @param executionId {@link Long} containing the id for the execution.
-     * @return job parameters for the requested execution id
-     */
-    private JobParameters getJobParameters(Long executionId) {
-      final Map<String, JobParameter> map = new HashMap<>();
-      RowCallbackHandler handler = rs -> {
-        ParameterType type = ParameterType.valueOf(rs.getString(3));
-        JobParameter value = null;
-
-        if (type == ParameterType.STRING) {
-          value = new JobParameter(rs.getString(4), rs.getString(8).equalsIgnoreCase("Y"));
-        } else if (type == ParameterType.LONG) {
-          long longValue = rs.getLong(6);
-          value = new JobParameter(rs.wasNull() ? null : longValue,
-              rs.getString(8).equalsIgnoreCase("Y"));
-        } else if (type == ParameterType.DOUBLE) {
-          double doubleValue = rs.getDouble(7);
-          value = new JobParameter(rs.wasNull() ? null : doubleValue,
-              rs.getString(8).equalsIgnoreCase("Y"));
-        } else if (type == ParameterType.DATE) {
-          value = new JobParameter(rs.getTimestamp(5), rs.getString(8).equalsIgnoreCase("Y"));
-        }
-
-        // No need to assert that value is not null because it's an enum
-        map.put(rs.getString(2), value);
-      };
-
-      jdbcTemplate.query(DaoUtils.getQuery(FIND_PARAMS_FROM_ID, tablePrefix), handler, executionId);
-
-      return new JobParameters(map);
-    }
+  /**
+   * Re-usable mapper for the rows of {@link JobExecution} instances, without their job
+   * parameters.
+   */
+  private static final class JobExecutionRowMapper implements RowMapper<JobExecutionHolder> {
 
     @Override
-    public JobExecution mapRow(ResultSet rs, int rowNum) throws SQLException {
-      Long id = rs.getLong(1);
-      String jobConfigurationLocation = rs.getString(10);
-      JobExecution jobExecution;
-      if (jobParameters == null) {
-        jobParameters = getJobParameters(id);
-      }
-
-      jobExecution = new JobExecution(id, jobParameters, jobConfigurationLocation);
-
-      jobExecution.setStartTime(rs.getTimestamp(2));
-      jobExecution.setEndTime(rs.getTimestamp(3));
-      jobExecution.setStatus(BatchStatus.valueOf(rs.getString(4)));
-      jobExecution.setExitStatus(new ExitStatus(rs.getString(5), rs.getString(6)));
-      jobExecution.setCreateTime(rs.getTimestamp(7));
-      jobExecution.setLastUpdated(rs.getTimestamp(8));
-      jobExecution.setVersion(rs.getInt(9));
-      return jobExecution;
+    public JobExecutionHolder mapRow(ResultSet rs, int rowNum) throws SQLException {
+      return JobExecutionHolder.builder()
+          .id(rs.getLong(1))
+          .startTime(rs.getTimestamp(2))
+          .endTime(rs.getTimestamp(3))
+          .status(rs.getString(4))
+          .exitCode(rs.getString(5))
+          .exitDescription(rs.getString(6))
+          .createTime(rs.getTimestamp(7))
+          .lastUpdated(rs.getTimestamp(8))
+          .version(rs.getInt(9))
+          .jobConfigurationName(rs.getString(10))
+          .build();
     }
   }
 }
@@ -0,0 +1,163 @@
+package com.restdatabase.databaseservice.service.impl;
+
+import com.restdatabase.databaseservice.dto.JobExecutionStatusDto;
+import com.restdatabase.databaseservice.service.DaoUtils;
+import com.restdatabase.databaseservice.service.JobExecutionStatusService;
+import java.io.IOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Pushes the status and version of job executions to subscribers as Server-Sent Events, so that
+ * running jobs notice stop requests and dashboards follow running executions without polling.
+ * A subscriber first receives the current state of the subscribed job executions (or of the
+ * running executions of the subscribed jobs), then every change made through this service.
+ *
+ * @author Anton Belousov
+ * @since 0.0.1-SNAPSHOT
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class JobExecutionStatusServiceImpl implements JobExecutionStatusService {
+
+  private static final String STATUS_EVENT = "status";
+
+  private static final String GET_RAW_STATUSES =
+      "SELECT E.JOB_EXECUTION_ID, I.JOB_NAME, E.VERSION, E.STATUS from %PREFIX%JOB_EXECUTION E "
+          + "join %PREFIX%JOB_INSTANCE I on E.JOB_INSTANCE_ID = I.JOB_INSTANCE_ID";
+
+  private static final String GET_STATUS = GET_RAW_STATUSES + " where E.JOB_EXECUTION_ID = ?";
+
+  private static final String GET_RUNNING_STATUSES =
+      GET_RAW_STATUSES + " where I.JOB_NAME = ? and E.END_TIME is NULL";
+
+  private final JdbcTemplate jdbcTemplate;
+
+  private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+
+  @Value("${table.prefix}")
+  private String tablePrefix;
+
+  @Value("${status-stream.timeout}")
+  private Long timeout;
+
+  @Override
+  public SseEmitter subscribe(Set<Long> jobExecutionIds, Set<String> jobNames) {
+    Subscription subscription = new Subscription(new SseEmitter(timeout),
+        jobExecutionIds != null ? jobExecutionIds : Collections.emptySet(),
+        jobNames != null ? jobNames : Collections.emptySet());
+    SseEmitter emitter = subscription.emitter;
+    emitter.onCompletion(() -> subscriptions.remove(subscription));
+    emitter.onTimeout(() -> subscriptions.remove(subscription));
+    emitter.onError(e -> subscriptions.remove(subscription));
+    // Subscribe before reading the current state, so that no change in between is missed
+    subscriptions.add(subscription);
+
+    RowMapper<JobExecutionStatusDto> rowMapper = new JobExecutionStatusRowMapper();
+    for (Long jobExecutionId : subscription.jobExecutionIds) {
+      jdbcTemplate.query(DaoUtils.getQuery(GET_STATUS, tablePrefix), rowMapper, jobExecutionId)
+          .forEach(status -> send(subscription, status));
+    }
+    for (String jobName : subscription.jobNames) {
+      jdbcTemplate.query(DaoUtils.getQuery(GET_RUNNING_STATUSES, tablePrefix), rowMapper, jobName)
+          .forEach(status -> send(subscription, status));
+    }
+    return emitter;
+  }
+
+  @Override
+  public void publish(Long jobExecutionId) {
+    if (subscriptions.stream().noneMatch(subscription -> subscription.accepts(jobExecutionId))) {
+      return;
+    }
+
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      // Subscribers must not see changes which may still be rolled back
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCommit() {
+          doPublish(jobExecutionId);
+        }
+      });
+    } else {
+      doPublish(jobExecutionId);
+    }
+  }
+
+  private void doPublish(Long jobExecutionId) {
+    List<JobExecutionStatusDto> statuses = jdbcTemplate.query(
+        DaoUtils.getQuery(GET_STATUS, tablePrefix), new JobExecutionStatusRowMapper(),
+        jobExecutionId);
+    if (statuses.isEmpty()) {
+      return;
+    }
+
+    JobExecutionStatusDto status = statuses.get(0);
+    for (Subscription subscription : subscriptions) {
+      if (subscription.accepts(status)) {
+        send(subscription, status);
+      }
+    }
+  }
+
+  private void send(Subscription subscription, JobExecutionStatusDto status) {
+    try {
+      // Events are text, whatever the wire format negotiated for the other calls
+      subscription.emitter.send(SseEmitter.event().name(STATUS_EVENT)
+          .data(status, MediaType.APPLICATION_JSON));
+    } catch (IOException | IllegalStateException e) {
+      log.debug("Cannot send job execution status to subscriber: {}", e.getMessage());
+      subscriptions.remove(subscription);
+      subscription.emitter.completeWithError(e);
+    }
+  }
+
+  @RequiredArgsConstructor
+  private static class Subscription {
+
+    private final SseEmitter emitter;
+    private final Set<Long> jobExecutionIds;
+    private final Set<String> jobNames;
+
+    /**
+     * @return whether the subscriber may be interested in the job execution, before its job name
+     * is known
+     */
+    private boolean accepts(Long jobExecutionId) {
+      return !jobNames.isEmpty() || jobExecutionIds.contains(jobExecutionId);
+    }
+
+    private boolean accepts(JobExecutionStatusDto status) {
+      return jobExecutionIds.contains(status.getJobExecutionId())
+          || jobNames.contains(status.getJobName());
+    }
+  }
+
+  private static class JobExecutionStatusRowMapper implements RowMapper<JobExecutionStatusDto> {
+
+    @Override
+    public JobExecutionStatusDto mapRow(ResultSet rs, int rowNum) throws SQLException {
+      return JobExecutionStatusDto.builder()
+          .jobExecutionId(rs.getLong(1))
+          .jobName(rs.getString(2))
+          .version(rs.getInt(3))
+          .status(rs.getString(4))
+          .build();
+    }
+  }
+}
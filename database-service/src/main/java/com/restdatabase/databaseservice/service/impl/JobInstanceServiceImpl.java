@@ -1,23 +1,31 @@
 package com.restdatabase.databaseservice.service.impl;
 
+import com.restdatabase.databaseservice.dto.JobInstancePageDto;
+import com.restdatabase.databaseservice.dto.JobInstanceResultDto;
 import com.restdatabase.databaseservice.service.JobInstanceService;
 import com.restdatabase.databaseservice.service.DaoUtils;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Types;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.function.Consumer;
+import javax.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import org.springframework.batch.core.JobInstance;
 import org.springframework.batch.core.launch.NoSuchJobException;
+import org.springframework.batch.support.DatabaseType;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.ResultSetExtractor;
 import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.support.MetaDataAccessException;
 import org.springframework.jdbc.support.incrementer.DataFieldMaxValueIncrementer;
 import org.springframework.stereotype.Service;
+import org.springframework.util.Assert;
 import org.springframework.util.StringUtils;
 
 /**
@@ -58,12 +66,34 @@ public class JobInstanceServiceImpl implements JobInstanceService {
 
   private static final String FIND_LAST_JOBS_LIKE_NAME = "SELECT JOB_INSTANCE_ID, JOB_NAME from %PREFIX%JOB_INSTANCE where JOB_NAME like ? order by JOB_INSTANCE_ID desc";
 
+  private static final String OFFSET_FETCH = " OFFSET ? ROWS FETCH NEXT ? ROWS ONLY";
+
+  private static final String LIMIT = " LIMIT ?, ?";
+
+  private static final String FIND_JOBS_BY_NAME_AFTER_ID = "SELECT JOB_INSTANCE_ID, JOB_NAME from %PREFIX%JOB_INSTANCE where JOB_NAME = ? and JOB_INSTANCE_ID < ? order by JOB_INSTANCE_ID desc";
+
+  private static final String FIND_JOBS_LIKE_NAME_AFTER_ID = "SELECT JOB_INSTANCE_ID, JOB_NAME from %PREFIX%JOB_INSTANCE where JOB_NAME like ? and JOB_INSTANCE_ID < ? order by JOB_INSTANCE_ID desc";
+
   private final JdbcTemplate jdbcTemplate;
   private final DataFieldMaxValueIncrementer jobInstanceIncrementer;
 
   @Value("${table.prefix}")
   private String tablePrefix;
 
+  @Value("${streaming.fetch-size}")
+  private int fetchSize;
+
+  /**
+   * Clause of the page offset and size, {@code null} if the database has none and the rows
+   * before the page are skipped in the result set.
+   */
+  private String pageClause;
+
+  @PostConstruct
+  public void initialize() throws MetaDataAccessException {
+    pageClause = getPageClause(DatabaseType.fromMetaData(jdbcTemplate.getDataSource()));
+  }
+
   @Override
   public Long createJobInstance(Object[] args) {
     Long jobId = jobInstanceIncrementer.nextLongValue();
@@ -76,6 +106,32 @@ public class JobInstanceServiceImpl implements JobInstanceService {
     return jobId;
   }
 
+  /**
+   * Each statement runs in its own transaction, so that the instance inserted by a concurrent
+   * launch that won the race on the unique (JOB_NAME, JOB_KEY) constraint can be read back.
+   */
+  @Override
+  public JobInstanceResultDto getOrCreateJobInstance(String jobName, String jobKey) {
+    JobInstance existing = findSingleJobInstance(jobName, jobKey);
+    if (existing != null) {
+      return new JobInstanceResultDto(existing, false);
+    }
+
+    JobInstance jobInstance = new JobInstance(0L, jobName);
+    jobInstance.incrementVersion();
+    try {
+      jobInstance.setId(
+          createJobInstance(new Object[]{jobName, jobKey, jobInstance.getVersion()}));
+      return new JobInstanceResultDto(jobInstance, true);
+    } catch (DuplicateKeyException e) {
+      existing = findSingleJobInstance(jobName, jobKey);
+      if (existing == null) {
+        throw e;
+      }
+      return new JobInstanceResultDto(existing, false);
+    }
+  }
+
   @Override
   public List<JobInstance> getJobInstance(String jobName, String jobKey) {
     RowMapper<JobInstance> rowMapper = new JobInstanceRowMapper();
@@ -108,29 +164,13 @@ public class JobInstanceServiceImpl implements JobInstanceService {
 
   @Override
   public List<JobInstance> getJobInstances(String jobName, int start, int count) {
-    ResultSetExtractor<List<JobInstance>> extractor = new ResultSetExtractor<>() {
-
-      private final List<JobInstance> list = new ArrayList<>();
-
-      @Override
-      public List<JobInstance> extractData(ResultSet rs) throws SQLException,
-          DataAccessException {
-        int rowNum = 0;
-        while (rowNum < start && rs.next()) {
-          rowNum++;
-        }
-        while (rowNum < start + count && rs.next()) {
-          RowMapper<JobInstance> rowMapper = new JobInstanceRowMapper();
-          list.add(rowMapper.mapRow(rs, rowNum));
-          rowNum++;
-        }
-        return list;
-      }
-
-    };
+    return queryPage(FIND_LAST_JOBS_BY_NAME, jobName, start, count);
+  }
 
-    return jdbcTemplate.query(DaoUtils.getQuery(FIND_LAST_JOBS_BY_NAME, tablePrefix),
-        new Object[]{jobName}, new int[]{Types.VARCHAR}, extractor);
+  @Override
+  public JobInstancePageDto getJobInstancesPage(String jobName, String pageToken, int count) {
+    return querySeekPage(FIND_LAST_JOBS_BY_NAME, FIND_JOBS_BY_NAME_AFTER_ID, jobName, pageToken,
+        count);
   }
 
   @Override
@@ -168,36 +208,127 @@ public class JobInstanceServiceImpl implements JobInstanceService {
 
   @Override
   public List<JobInstance> findJobInstancesByName(String jobName, int start, int count) {
-    @SuppressWarnings("rawtypes")
-    ResultSetExtractor extractor = new ResultSetExtractor() {
-      private final List<JobInstance> list = new ArrayList<>();
-
-      @Override
-      public Object extractData(ResultSet rs) throws SQLException,
-          DataAccessException {
-        int rowNum = 0;
-        while (rowNum < start && rs.next()) {
-          rowNum++;
-        }
-        while (rowNum < start + count && rs.next()) {
-          RowMapper<JobInstance> rowMapper = new JobInstanceRowMapper();
-          list.add(rowMapper.mapRow(rs, rowNum));
-          rowNum++;
-        }
-        return list;
-      }
-    };
+    return queryPage(FIND_LAST_JOBS_LIKE_NAME, toSqlPattern(jobName), start, count);
+  }
 
+  @Override
+  public void findJobInstancesByName(String jobName, Consumer<JobInstance> action) {
+    JobInstanceRowMapper rowMapper = new JobInstanceRowMapper();
+    jdbcTemplate.query(DaoUtils.getStreamingQuery(
+            DaoUtils.getQuery(FIND_LAST_JOBS_LIKE_NAME, tablePrefix), fetchSize,
+            toSqlPattern(jobName)),
+        rs -> {
+          action.accept(rowMapper.mapRow(rs, 0));
+        });
+  }
+
+  @Override
+  public JobInstancePageDto findJobInstancesByNamePage(String jobName, String pageToken,
+      int count) {
+    return querySeekPage(FIND_LAST_JOBS_LIKE_NAME, FIND_JOBS_LIKE_NAME_AFTER_ID,
+        toSqlPattern(jobName), pageToken, count);
+  }
+
+  private String toSqlPattern(String jobName) {
     if (jobName.contains(STAR_WILDCARD)) {
       jobName = jobName.replaceAll("\\" + STAR_WILDCARD, SQL_WILDCARD);
     }
+    return jobName;
+  }
+
+  private List<JobInstance> queryPage(String query, String jobName, int start, int count) {
+    return queryPage(query, new Object[]{jobName}, new int[]{Types.VARCHAR}, start, count);
+  }
+
+  /**
+   * Page through the job instances on the database side instead of skipping the first
+   * {@code start} rows of the result set, on the databases which have a clause for it.
+   */
+  private List<JobInstance> queryPage(String query, Object[] args, int[] argTypes, int start,
+      int count) {
+    if (count <= 0) {
+      return new ArrayList<>();
+    }
+    if (pageClause == null) {
+      return jdbcTemplate.query(DaoUtils.getQuery(query, tablePrefix), args, argTypes,
+          skipToPage(start, count));
+    }
+
+    Object[] pageArgs = Arrays.copyOf(args, args.length + 2);
+    pageArgs[args.length] = start;
+    pageArgs[args.length + 1] = count;
+    int[] pageArgTypes = Arrays.copyOf(argTypes, argTypes.length + 2);
+    pageArgTypes[argTypes.length] = Types.INTEGER;
+    pageArgTypes[argTypes.length + 1] = Types.INTEGER;
+    return jdbcTemplate.query(DaoUtils.getQuery(query + pageClause, tablePrefix), pageArgs,
+        pageArgTypes, new JobInstanceRowMapper());
+  }
 
-    @SuppressWarnings("unchecked")
-    List<JobInstance> result = (List<JobInstance>) jdbcTemplate.query(
-        DaoUtils.getQuery(FIND_LAST_JOBS_LIKE_NAME, tablePrefix),
-        new Object[]{jobName}, new int[]{Types.VARCHAR}, extractor);
+  private static ResultSetExtractor<List<JobInstance>> skipToPage(int start, int count) {
+    return rs -> {
+      List<JobInstance> list = new ArrayList<>();
+      RowMapper<JobInstance> rowMapper = new JobInstanceRowMapper();
+      int rowNum = 0;
+      while (rowNum < start && rs.next()) {
+        rowNum++;
+      }
+      while (rowNum < start + count && rs.next()) {
+        list.add(rowMapper.mapRow(rs, rowNum));
+        rowNum++;
+      }
+      return list;
+    };
+  }
 
-    return result;
+  /**
+   * Both clauses take the offset before the size.
+   */
+  private static String getPageClause(DatabaseType databaseType) {
+    switch (databaseType) {
+      case MYSQL:
+      case SQLITE:
+        return LIMIT;
+      case SYBASE:
+        return null;
+      default:
+        return OFFSET_FETCH;
+    }
+  }
+
+  /**
+   * Seek to the job instances following the one the page token refers to, so that the cost of a
+   * page does not depend on how deep it is. The token is the id of the last job instance of the
+   * previous page; one more row than requested is read to know if there is a next page.
+   */
+  private JobInstancePageDto querySeekPage(String firstPageQuery, String nextPageQuery,
+      String jobName, String pageToken, int count) {
+    Assert.isTrue(count > 0, "Page size must be positive");
+    List<JobInstance> jobInstances;
+    if (StringUtils.hasLength(pageToken)) {
+      jobInstances = queryPage(nextPageQuery, new Object[]{jobName, Long.valueOf(pageToken)},
+          new int[]{Types.VARCHAR, Types.BIGINT}, 0, count + 1);
+    } else {
+      jobInstances = queryPage(firstPageQuery, jobName, 0, count + 1);
+    }
+
+    String nextPageToken = null;
+    if (jobInstances.size() > count) {
+      jobInstances = jobInstances.subList(0, count);
+      nextPageToken = String.valueOf(jobInstances.get(count - 1).getInstanceId());
+    }
+    return JobInstancePageDto.builder()
+        .jobInstances(new ArrayList<>(jobInstances))
+        .nextPageToken(nextPageToken)
+        .build();
+  }
+
+  private JobInstance findSingleJobInstance(String jobName, String jobKey) {
+    List<JobInstance> instances = getJobInstance(jobName, jobKey);
+    if (instances.isEmpty()) {
+      return null;
+    }
+    Assert.state(instances.size() == 1, "instance count must be 1 but was " + instances.size());
+    return instances.get(0);
   }
 
   /**
@@ -1,7 +1,12 @@
 package com.restdatabase.databaseservice.service.impl;
 
+import com.restdatabase.databaseservice.dto.StepExecutionCommitDto;
+import com.restdatabase.databaseservice.dto.UpdateResultDto;
+import com.restdatabase.databaseservice.dto.UpdateResultDto.Status;
 import com.restdatabase.databaseservice.dto.holder.StepExecutionHolder;
 import com.restdatabase.databaseservice.service.DaoUtils;
+import com.restdatabase.databaseservice.service.ExecutionContextService;
+import com.restdatabase.databaseservice.service.SequenceRangeIncrementer;
 import com.restdatabase.databaseservice.service.StepExecutionService;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -11,6 +16,7 @@ import java.sql.Types;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 import lombok.RequiredArgsConstructor;
 import org.springframework.batch.core.BatchStatus;
 import org.springframework.batch.core.ExitStatus;
@@ -19,8 +25,9 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.jdbc.core.BatchPreparedStatementSetter;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
-import org.springframework.jdbc.support.incrementer.DataFieldMaxValueIncrementer;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.Assert;
 
 /**
  * @author Anton Belousov
@@ -71,6 +78,10 @@ public class StepExecutionServiceImpl implements StepExecutionService {
       "SELECT VERSION FROM %PREFIX%STEP_EXECUTION WHERE "
           + "STEP_EXECUTION_ID=?";
 
+  private static final String GET_JOB_EXECUTION_STATUS =
+      "SELECT JE.VERSION, JE.STATUS from %PREFIX%JOB_EXECUTION JE join %PREFIX%STEP_EXECUTION SE"
+          + " on SE.JOB_EXECUTION_ID = JE.JOB_EXECUTION_ID where SE.STEP_EXECUTION_ID = ?";
+
   private static final String COUNT_STEP_EXECUTIONS = "SELECT COUNT(*) "
       + " from %PREFIX%JOB_EXECUTION JE JOIN %PREFIX%STEP_EXECUTION SE "
       + "      on SE.JOB_EXECUTION_ID = JE.JOB_EXECUTION_ID "
@@ -78,11 +89,15 @@ public class StepExecutionServiceImpl implements StepExecutionService {
       + "      and SE.STEP_NAME = ?";
 
   private final JdbcTemplate jdbcTemplate;
-  private final DataFieldMaxValueIncrementer stepExecutionIncrementer;
+  private final SequenceRangeIncrementer stepExecutionIncrementer;
+  private final ExecutionContextService executionContextService;
 
   @Value("${table.prefix}")
   private String tablePrefix;
 
+  @Value("${streaming.fetch-size}")
+  private int fetchSize;
+
   @Override
   public void saveStepExecution(StepExecutionHolder holder) {
     Object[] parameters = new Object[]{holder.getId(), holder.getVersion(), holder.getStepName(),
@@ -154,18 +169,65 @@ public class StepExecutionServiceImpl implements StepExecutionService {
   }
 
   @Override
-  public Integer updateStepExecution(StepExecutionHolder holder) {
+  public UpdateResultDto updateStepExecution(StepExecutionHolder holder) {
     Object[] parameters = new Object[]{holder.getStartTime(), holder.getEndTime(),
         holder.getStatus().toString(), holder.getCommitCount(), holder.getReadCount(),
         holder.getFilterCount(), holder.getWriteCount(), holder.getExitCode(),
         holder.getExitDescription(), holder.getUpdateVersion(), holder.getReadSkipCount(),
         holder.getProcessSkipCount(), holder.getWriteSkipCount(), holder.getRollbackCount(),
         holder.getLastUpdated(), holder.getId(), holder.getVersion()};
-    return jdbcTemplate.update(DaoUtils.getQuery(UPDATE_STEP_EXECUTION, tablePrefix), parameters,
+    int count = jdbcTemplate.update(DaoUtils.getQuery(UPDATE_STEP_EXECUTION, tablePrefix),
+        parameters,
         new int[]{Types.TIMESTAMP, Types.TIMESTAMP, Types.VARCHAR, Types.INTEGER, Types.INTEGER,
             Types.INTEGER, Types.INTEGER, Types.VARCHAR, Types.VARCHAR, Types.INTEGER,
             Types.INTEGER, Types.INTEGER, Types.INTEGER, Types.INTEGER, Types.TIMESTAMP,
             Types.BIGINT, Types.INTEGER});
+
+    if (count > 0) {
+      // Report the state of the owning job execution, so that checking for a stop request
+      // does not need another call
+      UpdateResultDto result = UpdateResultDto.builder()
+          .status(Status.UPDATED)
+          .currentVersion(holder.getUpdateVersion())
+          .build();
+      jdbcTemplate.query(DaoUtils.getQuery(GET_JOB_EXECUTION_STATUS, tablePrefix), rs -> {
+        result.setJobExecutionVersion(rs.getInt(1));
+        result.setJobExecutionStatus(rs.getString(2));
+      }, holder.getId());
+      return result;
+    }
+    // Distinguish a missing step execution from a concurrent modification
+    List<Integer> versions = jdbcTemplate.queryForList(
+        DaoUtils.getQuery(CURRENT_VERSION_STEP_EXECUTION, tablePrefix), Integer.class,
+        holder.getId());
+    return versions.isEmpty()
+        ? UpdateResultDto.builder().status(Status.NOT_FOUND).build()
+        : UpdateResultDto.builder()
+            .status(Status.VERSION_CONFLICT)
+            .currentVersion(versions.get(0))
+            .build();
+  }
+
+  /**
+   * Update the step execution and its context in one transaction. A context delta which does
+   * not apply to the stored context is not an error: the step execution is committed without its
+   * context, and the client persists the full context in a call of its own, outside of this
+   * transaction.
+   */
+  @Override
+  @Transactional
+  public UpdateResultDto commitStepExecution(StepExecutionCommitDto commitDto) {
+    UpdateResultDto result = updateStepExecution(commitDto.getStepExecution());
+    // The context is not sent if it has not changed since it was persisted last, and it is left
+    // as is if its delta conflicts, for the full context to be sent instead
+    if (result.getStatus() == Status.UPDATED && commitDto.getExecutionContext() != null) {
+      executionContextService.persistSerializedContext(commitDto.getExecutionContext());
+    } else if (result.getStatus() == Status.UPDATED
+        && commitDto.getExecutionContextDelta() != null) {
+      result.setContextVersion(executionContextService
+          .applyContextDelta(commitDto.getExecutionContextDelta()).getContextVersion());
+    }
+    return result;
   }
 
   @Override
@@ -215,6 +277,16 @@ public class StepExecutionServiceImpl implements StepExecutionService {
         new StepExecutionRowMapper(), jobExecutionId);
   }
 
+  @Override
+  public void getStepExecutions(Long jobExecutionId, Consumer<StepExecutionHolder> action) {
+    StepExecutionRowMapper rowMapper = new StepExecutionRowMapper();
+    jdbcTemplate.query(DaoUtils.getStreamingQuery(
+            DaoUtils.getQuery(GET_STEP_EXECUTIONS, tablePrefix), fetchSize, jobExecutionId),
+        rs -> {
+          action.accept(rowMapper.mapRow(rs, 0));
+        });
+  }
+
   @Override
   public Integer countStepExecutions(Long jobInstanceId, String stepName) {
     return jdbcTemplate.queryForObject(DaoUtils.getQuery(COUNT_STEP_EXECUTIONS, tablePrefix),
@@ -226,6 +298,12 @@ public class StepExecutionServiceImpl implements StepExecutionService {
     return stepExecutionIncrementer.nextLongValue();
   }
 
+  @Override
+  public List<Long> nextStepExecutionIds(int count) {
+    Assert.isTrue(count > 0, "Count of step execution ids to reserve must be positive");
+    return stepExecutionIncrementer.nextLongValues(count);
+  }
+
   private static class StepExecutionRowMapper implements RowMapper<StepExecutionHolder> {
 
     @Override
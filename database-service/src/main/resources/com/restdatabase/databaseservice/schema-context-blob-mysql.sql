@@ -0,0 +1,7 @@
+-- Content-addressed store of the offloaded execution contexts
+
+CREATE TABLE BATCH_EXECUTION_CONTEXT_BLOB (
+	CONTEXT_HASH CHAR(64) NOT NULL PRIMARY KEY,
+	LAST_STORED DATETIME(6) NOT NULL,
+	SERIALIZED_CONTEXT LONGTEXT NOT NULL
+) ENGINE=InnoDB;
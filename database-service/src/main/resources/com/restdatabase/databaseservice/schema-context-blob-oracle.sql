@@ -0,0 +1,7 @@
+-- Content-addressed store of the offloaded execution contexts
+
+CREATE TABLE BATCH_EXECUTION_CONTEXT_BLOB (
+	CONTEXT_HASH CHAR(64) NOT NULL PRIMARY KEY,
+	LAST_STORED TIMESTAMP NOT NULL,
+	SERIALIZED_CONTEXT CLOB NOT NULL
+);
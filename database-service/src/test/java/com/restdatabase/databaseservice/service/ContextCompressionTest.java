@@ -0,0 +1,145 @@
+package com.restdatabase.databaseservice.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.restdatabase.databaseservice.service.ContextCompression.Base64Reader;
+import com.restdatabase.databaseservice.service.ContextCompression.Utf8InputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class ContextCompressionTest {
+
+  @ParameterizedTest
+  @ValueSource(ints = {0, 1, 2, 3070, 3071, 3072, 3073, 3074, 6144, 8191, 8192, 8193, 20000})
+  void encodesBytesAsUtf8OfTheirIso88591Chars(int length) throws IOException {
+    byte[] raw = randomBytes(length);
+    byte[] expected = new String(raw, StandardCharsets.ISO_8859_1)
+        .getBytes(StandardCharsets.UTF_8);
+
+    // Odd read sizes split the two bytes of an encoded char across reads
+    for (int readSize : new int[]{1, 2, 3, 7, 8192}) {
+      assertThat(readFully(new Utf8InputStream(new ByteArrayInputStream(raw)), readSize))
+          .as("read size %d", readSize)
+          .isEqualTo(expected);
+    }
+  }
+
+  @ParameterizedTest
+  @ValueSource(ints = {0, 1, 2, 3, 3071, 3072, 3073, 6143, 6144, 6145, 8192, 20000})
+  void encodesBase64InChunksAsAWhole(int length) throws IOException {
+    byte[] raw = randomBytes(length);
+    String expected = "header:" + Base64.getEncoder().encodeToString(raw);
+
+    for (int readSize : new int[]{1, 5, 4096, 8192}) {
+      assertThat(readFully(new Base64Reader("header:", new ByteArrayInputStream(raw)), readSize))
+          .as("read size %d", readSize)
+          .isEqualTo(expected);
+    }
+  }
+
+  @ParameterizedTest
+  @ValueSource(ints = {3071, 3072, 3073, 8191, 8192, 8193, 50000})
+  void streamsTheSameContextAsTheStringVariants(int length) throws IOException {
+    byte[] raw = compressibleBytes(length);
+    String context = new String(raw, StandardCharsets.ISO_8859_1);
+
+    String streamed = readFully(
+        ContextCompression.compressingReader(new ByteArrayInputStream(raw)), 8192);
+    String compressed = ContextCompression.compress(context, 0);
+
+    assertThat(streamed).startsWith(ContextCompression.DEFLATE_HEADER);
+    assertThat(compressed).startsWith(ContextCompression.DEFLATE_HEADER);
+    assertThat(ContextCompression.decompress(streamed)).isEqualTo(context);
+    assertThat(decompress(streamed)).isEqualTo(raw);
+    assertThat(decompress(compressed)).isEqualTo(raw);
+  }
+
+  @ParameterizedTest
+  @ValueSource(ints = {3072, 8192, 8193})
+  void streamsIncompressibleContext(int length) throws IOException {
+    byte[] raw = randomBytes(length);
+
+    String streamed = readFully(
+        ContextCompression.compressingReader(new ByteArrayInputStream(raw)), 1000);
+
+    assertThat(decompress(streamed)).isEqualTo(raw);
+    assertThat(ContextCompression.decompress(streamed))
+        .isEqualTo(new String(raw, StandardCharsets.ISO_8859_1));
+  }
+
+  @Test
+  void copiesContextStoredUncompressed() throws IOException {
+    byte[] raw = compressibleBytes(10000);
+
+    assertThat(decompress(new String(raw, StandardCharsets.ISO_8859_1))).isEqualTo(raw);
+    assertThat(decompress("")).isEmpty();
+    assertThat(decompress("defl")).isEqualTo("defl".getBytes(StandardCharsets.ISO_8859_1));
+  }
+
+  @Test
+  void keepsContextShorterThanTheThreshold() {
+    String context = "{\"a\":\"é\"}";
+
+    assertThat(ContextCompression.compress(context, context.length() + 1)).isSameAs(context);
+    assertThat(ContextCompression.decompress(context)).isSameAs(context);
+  }
+
+  private static byte[] decompress(String stored) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ContextCompression.decompress(new StringReader(stored), out);
+    return out.toByteArray();
+  }
+
+  private static byte[] randomBytes(int length) {
+    byte[] bytes = new byte[length];
+    new Random(length).nextBytes(bytes);
+    return bytes;
+  }
+
+  /**
+   * UTF-8 json with non-ASCII chars, so that the multibyte chars are split across the chunks.
+   */
+  private static byte[] compressibleBytes(int length) {
+    StringBuilder json = new StringBuilder("{");
+    Random random = new Random(length);
+    while (json.length() < length) {
+      json.append("\"clé").append(random.nextInt(1000)).append("\":\"värde €😀\",");
+    }
+    byte[] utf8 = json.toString().getBytes(StandardCharsets.UTF_8);
+    byte[] bytes = new byte[length];
+    System.arraycopy(utf8, 0, bytes, 0, length);
+    return bytes;
+  }
+
+  private static byte[] readFully(InputStream in, int readSize) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    byte[] buffer = new byte[readSize];
+    int count;
+    while ((count = in.read(buffer, 0, readSize)) != -1) {
+      out.write(buffer, 0, count);
+    }
+    in.close();
+    return out.toByteArray();
+  }
+
+  private static String readFully(Reader reader, int readSize) throws IOException {
+    StringBuilder out = new StringBuilder();
+    char[] buffer = new char[readSize];
+    int count;
+    while ((count = reader.read(buffer, 0, readSize)) != -1) {
+      out.append(buffer, 0, count);
+    }
+    reader.close();
+    return out.toString();
+  }
+}
@@ -0,0 +1,110 @@
+package com.restdatabase.databaseservice.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.batch.support.DatabaseType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.jdbc.support.incrementer.DataFieldMaxValueIncrementer;
+import org.springframework.jdbc.support.incrementer.H2SequenceMaxValueIncrementer;
+
+class SequenceRangeIncrementerTest {
+
+  private EmbeddedDatabase database;
+
+  @BeforeEach
+  void createDatabase() {
+    database = new EmbeddedDatabaseBuilder()
+        .setType(EmbeddedDatabaseType.H2)
+        .generateUniqueName(true)
+        .build();
+    new JdbcTemplate(database).execute("CREATE SEQUENCE TEST_SEQ");
+  }
+
+  @AfterEach
+  void shutdownDatabase() {
+    database.shutdown();
+  }
+
+  @Test
+  void reservesConsecutiveRangesOnH2() {
+    JdbcTemplate jdbcTemplate = new JdbcTemplate(database);
+    SequenceRangeIncrementer incrementer = new SequenceRangeIncrementer(
+        new H2SequenceMaxValueIncrementer(database, "TEST_SEQ"), jdbcTemplate, DatabaseType.H2,
+        "TEST_SEQ");
+
+    assertThat(incrementer.nextLongValues(5)).containsExactly(1L, 2L, 3L, 4L, 5L);
+    assertThat(incrementer.nextLongValue()).isEqualTo(6L);
+    assertThat(incrementer.nextLongValues(1)).containsExactly(7L);
+    assertThat(incrementer.nextLongValues(3)).containsExactly(8L, 9L, 10L);
+  }
+
+  @Test
+  void rejectsNonPositiveCount() {
+    SequenceRangeIncrementer incrementer = new SequenceRangeIncrementer(
+        new H2SequenceMaxValueIncrementer(database, "TEST_SEQ"), new JdbcTemplate(database),
+        DatabaseType.H2, "TEST_SEQ");
+
+    assertThatThrownBy(() -> incrementer.nextLongValues(0))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  void reservesRangeOnSqlServerByInsertingIntoTheIdentityTable() {
+    JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    when(jdbcTemplate.queryForList(anyString(), eq(Long.class), eq(3)))
+        .thenReturn(new ArrayList<>(List.of(42L, 40L, 41L)));
+    SequenceRangeIncrementer incrementer = new SequenceRangeIncrementer(
+        mock(DataFieldMaxValueIncrementer.class), jdbcTemplate, DatabaseType.SQLSERVER,
+        "BATCH_STEP_EXECUTION_SEQ");
+
+    assertThat(incrementer.nextLongValues(3)).containsExactly(40L, 41L, 42L);
+
+    ArgumentCaptor<String> range = ArgumentCaptor.forClass(String.class);
+    verify(jdbcTemplate).queryForList(range.capture(), eq(Long.class), eq(3));
+    assertThat(range.getValue())
+        .contains("MERGE INTO BATCH_STEP_EXECUTION_SEQ")
+        .contains("INSERT DEFAULT VALUES OUTPUT inserted.ID")
+        .doesNotContain("sp_sequence_get_range");
+    verify(jdbcTemplate).update("DELETE FROM BATCH_STEP_EXECUTION_SEQ WHERE ID < ?", 42L);
+  }
+
+  @Test
+  void sortsRangeReservedOnPostgres() {
+    JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    when(jdbcTemplate.queryForList(anyString(), eq(Long.class), eq(3)))
+        .thenReturn(new ArrayList<>(List.of(7L, 5L, 6L)));
+    SequenceRangeIncrementer incrementer = new SequenceRangeIncrementer(
+        mock(DataFieldMaxValueIncrementer.class), jdbcTemplate, DatabaseType.POSTGRES,
+        "BATCH_STEP_EXECUTION_SEQ");
+
+    assertThat(incrementer.nextLongValues(3)).containsExactly(5L, 6L, 7L);
+  }
+
+  @Test
+  void reservesOneValueAtATimeOnOtherDatabases() {
+    JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    DataFieldMaxValueIncrementer underlying = mock(DataFieldMaxValueIncrementer.class);
+    when(underlying.nextLongValue()).thenReturn(1L, 2L, 3L);
+    SequenceRangeIncrementer incrementer = new SequenceRangeIncrementer(
+        underlying, jdbcTemplate, DatabaseType.DERBY, "BATCH_STEP_EXECUTION_SEQ");
+
+    assertThat(incrementer.nextLongValues(3)).containsExactly(1L, 2L, 3L);
+    verifyNoInteractions(jdbcTemplate);
+  }
+}
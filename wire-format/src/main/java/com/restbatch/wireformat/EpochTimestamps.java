@@ -0,0 +1,118 @@
+package com.restbatch.wireformat;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.deser.std.StdScalarDeserializer;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.std.StdScalarSerializer;
+import java.io.IOException;
+import java.sql.Timestamp;
+import java.util.Date;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+
+/**
+ * Compact wire format of the batch meta-data, negotiated through the {@link #MEDIA_TYPE} media
+ * type: it is plain json, except that dates and timestamps are written as the count of
+ * microseconds since the epoch instead of ISO-8601 strings. Numbers are smaller and cheaper to
+ * decode than strings, and keep the microseconds of the timestamps read from the database.
+ * <p>
+ * Shared by the database service and its clients, which have to agree on the format.
+ *
+ * @author Anton Belousov
+ * @since 0.0.1-SNAPSHOT
+ */
+public final class EpochTimestamps {
+
+  public static final String MEDIA_TYPE_VALUE =
+      "application/vnd.batch-meta-data.epoch-micros+json";
+  public static final MediaType MEDIA_TYPE = MediaType.valueOf(MEDIA_TYPE_VALUE);
+
+  private static final int MICROS_PER_SECOND = 1_000_000;
+  private static final int NANOS_PER_MICRO = 1_000;
+
+  private EpochTimestamps() {
+  }
+
+  /**
+   * Let the converter read and write {@link #MEDIA_TYPE} with a copy of its object mapper using
+   * epoch timestamps, next to plain json with its object mapper as is.
+   *
+   * @param converter the json converter to register the wire format in
+   */
+  public static void register(MappingJackson2HttpMessageConverter converter) {
+    ObjectMapper defaultMapper = converter.getObjectMapper();
+    ObjectMapper epochMapper = defaultMapper.copy().registerModule(module());
+    converter.registerObjectMappersForType(Object.class, mappers -> {
+      // The first media type is the default one, e.g. for clients accepting any media type
+      mappers.put(MediaType.APPLICATION_JSON, defaultMapper);
+      mappers.put(MEDIA_TYPE, epochMapper);
+      mappers.put(new MediaType("application", "*+json"), defaultMapper);
+      // Server-Sent Events data is written as json under the content type of the stream
+      mappers.put(MediaType.TEXT_EVENT_STREAM, defaultMapper);
+    });
+  }
+
+  /**
+   * @return the module writing and reading dates and timestamps as epoch microseconds
+   */
+  public static SimpleModule module() {
+    SimpleModule module = new SimpleModule("EpochTimestamps");
+    module.addSerializer(Date.class, new EpochMicrosSerializer());
+    module.addDeserializer(Date.class, new EpochMicrosDeserializer());
+    module.addDeserializer(Timestamp.class, new EpochMicrosDeserializer());
+    return module;
+  }
+
+  private static long toEpochMicros(Date date) {
+    if (date instanceof Timestamp) {
+      Timestamp timestamp = (Timestamp) date;
+      return Math.floorDiv(timestamp.getTime(), 1000) * MICROS_PER_SECOND
+          + timestamp.getNanos() / NANOS_PER_MICRO;
+    }
+    return date.getTime() * 1000;
+  }
+
+  private static Timestamp fromEpochMicros(long micros) {
+    Timestamp timestamp = new Timestamp(Math.floorDiv(micros, MICROS_PER_SECOND) * 1000);
+    timestamp.setNanos((int) Math.floorMod(micros, MICROS_PER_SECOND) * NANOS_PER_MICRO);
+    return timestamp;
+  }
+
+  private static class EpochMicrosSerializer extends StdScalarSerializer<Date> {
+
+    private EpochMicrosSerializer() {
+      super(Date.class);
+    }
+
+    @Override
+    public void serialize(Date value, JsonGenerator gen, SerializerProvider provider)
+        throws IOException {
+      gen.writeNumber(toEpochMicros(value));
+    }
+  }
+
+  /**
+   * Reads dates as timestamps, the only dates able to hold the microseconds. Strings are still
+   * accepted as by default.
+   */
+  private static class EpochMicrosDeserializer extends StdScalarDeserializer<Timestamp> {
+
+    private EpochMicrosDeserializer() {
+      super(Timestamp.class);
+    }
+
+    @Override
+    public Timestamp deserialize(JsonParser p, DeserializationContext ctx) throws IOException {
+      if (p.hasToken(JsonToken.VALUE_NUMBER_INT)) {
+        return fromEpochMicros(p.getLongValue());
+      }
+      Date date = _parseDate(p, ctx);
+      return date != null ? new Timestamp(date.getTime()) : null;
+    }
+  }
+}